@@ -51,8 +51,9 @@ void draw() {
   scene.traverse();
   scene.endDraw();
   scene.display();
-  // 2. Display back buffer
-  image(scene.backBuffer(), 0, h / 2);
+  // 2. Display back buffer, which picking only renders around the pointer,
+  // so it's rendered in full here
+  image(scene.renderBackBuffer(), 0, h / 2);
 }
 
 PShape caja() {
@@ -21,9 +21,14 @@ import frames.timing.Animator;
 import frames.timing.TimingHandler;
 import frames.timing.TimingTask;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A 2D or 3D scene graph providing eye, input and timing handling to a raster or ray-tracing
@@ -65,6 +70,10 @@ import java.util.List;
  * to call {@link #enableBoundaryEquations()} first, since update of the viewing volume
  * boundary equations are disabled by default (see {@link #enableBoundaryEquations()} and
  * {@link #areBoundaryEquationsEnabled()}).
+ * <p>
+ * Whole node branches may also be culled by the {@link #traverse()} algorithm: give the
+ * nodes some local bounds (see {@link Node#setBoundingBall(Vector, float)}) and call
+ * {@link #enableBoundsCulling()}.
  * <h2>Input handling</h2>
  * The graph performs input handling through an {@link #inputHandler()}. Several
  * {@link InputHandler} wrapper functions, such as {@link #isInputGrabber(Grabber)},
@@ -139,10 +148,31 @@ public class Graph {
   // 4. Graph
   protected List<Node> _seeds;
   protected int _nodeCount;
+  protected TransformStore _store;
+  protected boolean _parallelUpdate;
+  protected boolean _boundsCulling;
+  protected SpatialIndex _index;
+  protected TrackingGrid _trackingGrid;
+  // ray picking cache
+  protected Vector _pickOrigin, _pickDirection;
+  protected float _pickX, _pickY;
+  protected long _pickFrame = -1;
+  protected Node _pickNode;
+  // node hierarchy depth up to which subtrees are split into parallel tasks
+  protected int _parallelUpdateDepth = 4;
+  // number of points per parallel task of the bulk (un)projection methods
+  protected int _bulkChunkSize = 4096;
+  protected Matrix _bulkMatrix, _bulkFrameMatrix;
   protected long _lastNonEyeUpdate = 0;
 
   // 5. IKinematics solvers
   protected List<TreeSolver> _solvers;
+  protected boolean _parallelSolving;
+  protected TimingTask _solverTask;
+  // per frame IK time budget (in milliseconds) and scheduling scratch
+  protected float _ikBudget;
+  protected TreeSolver[] _schedule = new TreeSolver[0];
+  protected float[] _scheduleKeys = new float[0];
 
 
   /**
@@ -586,6 +616,7 @@ public class Graph {
       return false;
     if (_isLeadingNode(node))
       return false;
+    _hierarchyModified();
     return leadingNodes().add(node);
   }
 
@@ -602,9 +633,195 @@ public class Graph {
         break;
       }
     }
+    if (result)
+      _hierarchyModified();
     return result;
   }
 
+  /**
+   * Internal use. Invalidates the {@link #transformStore()} and the
+   * {@link #spatialIndex()} (if any) since the node hierarchy has changed.
+   */
+  protected void _hierarchyModified() {
+    if (_store != null)
+      _store.invalidate();
+    if (_index != null)
+      _index.invalidate();
+  }
+
+  /**
+   * Disables the {@link #transformStore()}. Node world transforms are then computed by
+   * walking up their {@link Node#reference()} chain.
+   *
+   * @see #enableTransformStore()
+   * @see #isTransformStoreEnabled()
+   */
+  public void disableTransformStore() {
+    enableTransformStore(false);
+  }
+
+  /**
+   * Enables the {@link #transformStore()}, i.e., packed node transforms which are all
+   * updated once per frame at {@link #preDraw()}. Useful for large node hierarchies.
+   * Disabled by default.
+   *
+   * @see #disableTransformStore()
+   * @see #isTransformStoreEnabled()
+   */
+  public void enableTransformStore() {
+    enableTransformStore(true);
+  }
+
+  /**
+   * Enables or disables the {@link #transformStore()} according to {@code flag}.
+   *
+   * @see #enableTransformStore()
+   * @see #disableTransformStore()
+   */
+  public void enableTransformStore(boolean flag) {
+    if (flag == isTransformStoreEnabled())
+      return;
+    if (flag) {
+      _store = new TransformStore(this);
+      _store.update();
+    } else
+      _store = null;
+  }
+
+  /**
+   * Returns {@code true} if the {@link #transformStore()} is enabled and {@code false}
+   * otherwise.
+   *
+   * @see #enableTransformStore(boolean)
+   */
+  public boolean isTransformStoreEnabled() {
+    return _store != null;
+  }
+
+  /**
+   * Returns the graph {@link TransformStore} or {@code null} if it isn't enabled.
+   *
+   * @see #enableTransformStore()
+   */
+  public TransformStore transformStore() {
+    return _store;
+  }
+
+  /**
+   * Disables the parallel {@link #updateWorldMatrices()} pass at {@link #preDraw()}.
+   *
+   * @see #enableParallelUpdate()
+   * @see #isParallelUpdateEnabled()
+   */
+  public void disableParallelUpdate() {
+    enableParallelUpdate(false);
+  }
+
+  /**
+   * Enables the parallel {@link #updateWorldMatrices()} pass at {@link #preDraw()}.
+   * Disabled by default.
+   *
+   * @see #disableParallelUpdate()
+   * @see #isParallelUpdateEnabled()
+   */
+  public void enableParallelUpdate() {
+    enableParallelUpdate(true);
+  }
+
+  /**
+   * Enables or disables the parallel {@link #updateWorldMatrices()} pass at
+   * {@link #preDraw()} according to {@code flag}.
+   *
+   * @see #enableParallelUpdate()
+   * @see #disableParallelUpdate()
+   */
+  public void enableParallelUpdate(boolean flag) {
+    _parallelUpdate = flag;
+  }
+
+  /**
+   * Returns the node hierarchy depth up to which independent subtrees are split into
+   * parallel tasks by {@link #updateWorldMatrices()}. Default is 4.
+   *
+   * @see #setParallelUpdateDepth(int)
+   */
+  public int parallelUpdateDepth() {
+    return _parallelUpdateDepth;
+  }
+
+  /**
+   * Sets the {@link #parallelUpdateDepth()}.
+   */
+  public void setParallelUpdateDepth(int depth) {
+    _parallelUpdateDepth = Math.max(0, depth);
+  }
+
+  /**
+   * Returns {@code true} if the parallel {@link #updateWorldMatrices()} pass is enabled
+   * and {@code false} otherwise.
+   *
+   * @see #enableParallelUpdate(boolean)
+   */
+  public boolean isParallelUpdateEnabled() {
+    return _parallelUpdate;
+  }
+
+  /**
+   * Computes the world matrix (see {@link Node#worldMatrix()}) of all the nodes reachable
+   * by the {@link #traverse()} algorithm, splitting independent subtrees of the
+   * {@link #leadingNodes()} across the common fork-join pool. Subtrees deeper than
+   * {@link #parallelUpdateDepth()} are updated sequentially by the task reaching them.
+   * <p>
+   * After the pass, node world queries such as {@link Node#position()} or
+   * {@link Node#worldMatrix()} (e.g., from {@link Node#visit()} or picking) just read
+   * the node cached transforms. Called by {@link #preDraw()} when
+   * {@link #isParallelUpdateEnabled()}.
+   */
+  public void updateWorldMatrices() {
+    ForkJoinPool.commonPool().invoke(new UpdateTask(leadingNodes(), 0, _parallelUpdateDepth));
+  }
+
+  /**
+   * Fork-join task used by {@link #updateWorldMatrices()}. Node world caches are only
+   * written by the task owning the node, once its reference has been updated.
+   */
+  protected static class UpdateTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    protected List<Node> _nodes;
+    protected int _depth;
+    protected int _maxDepth;
+    // world matrices are cached by querying them into this scratch matrix
+    protected Matrix _matrix = new Matrix();
+
+    protected UpdateTask(List<Node> nodes, int depth, int maxDepth) {
+      _nodes = nodes;
+      _depth = depth;
+      _maxDepth = maxDepth;
+    }
+
+    @Override
+    protected void compute() {
+      if (_depth >= _maxDepth || _nodes.size() < 2) {
+        for (Node node : _nodes)
+          _update(node, _depth);
+        return;
+      }
+      UpdateTask[] tasks = new UpdateTask[_nodes.size()];
+      for (int i = 0; i < tasks.length; i++)
+        tasks[i] = new UpdateTask(_nodes.subList(i, i + 1), _depth, _maxDepth);
+      invokeAll(tasks);
+    }
+
+    protected void _update(Node node, int depth) {
+      node.worldMatrix(_matrix);
+      if (depth + 1 < _maxDepth && node.children().size() > 1)
+        new UpdateTask(node.children(), depth + 1, _maxDepth).compute();
+      else
+        for (Node child : node.children())
+          _update(child, depth + 1);
+    }
+  }
+
   /**
    * Traverse the node hierarchy, successively applying the local transformation defined
    * by each traversed node, and calling {@link Node#visit()} on it.
@@ -618,6 +835,9 @@ public class Graph {
    * @see #pruneBranch(Node)
    */
   public void traverse() {
+    if (isBoundsCullingEnabled())
+      for (Node node : leadingNodes())
+        node._updateBounds();
     for (Node node : leadingNodes())
       _visit(node);
   }
@@ -626,6 +846,8 @@ public class Graph {
    * Used by the traversal algorithm.
    */
   protected void _visit(Node node) {
+    if (_cullBranch(node))
+      return;
     pushModelView();
     applyTransformation(node);
     node.visit();
@@ -635,6 +857,130 @@ public class Graph {
     popModelView();
   }
 
+  /**
+   * Used by the traversal algorithm. Returns {@code true} if the {@code node} branch
+   * should be skipped since its bounds (see {@link Node#branchRadius()}) are
+   * {@link Visibility#INVISIBLE} and {@code false} otherwise. Branches whose reference
+   * bounds are {@link Visibility#VISIBLE} aren't tested at all.
+   */
+  protected boolean _cullBranch(Node node) {
+    if (!isBoundsCullingEnabled())
+      return false;
+    if (node.reference() != null && node.reference()._visibility == Visibility.VISIBLE)
+      node._visibility = Visibility.VISIBLE;
+    else if (node.branchRadius() < 0)
+      node._visibility = Visibility.SEMIVISIBLE;
+    else
+      node._visibility = ballVisibility(node.branchCenter(), node.branchRadius());
+    return node._visibility == Visibility.INVISIBLE;
+  }
+
+  /**
+   * Disables the {@link #traverse()} culling of the node branches lying outside of the
+   * eye boundary.
+   *
+   * @see #enableBoundsCulling()
+   * @see #isBoundsCullingEnabled()
+   */
+  public void disableBoundsCulling() {
+    enableBoundsCulling(false);
+  }
+
+  /**
+   * Enables the {@link #traverse()} culling of the node branches lying outside of the
+   * eye boundary. Disabled by default.
+   *
+   * @see #disableBoundsCulling()
+   * @see #isBoundsCullingEnabled()
+   */
+  public void enableBoundsCulling() {
+    enableBoundsCulling(true);
+  }
+
+  /**
+   * Enables or disables the {@link #traverse()} culling of the node branches lying
+   * outside of the eye boundary according to {@code flag}.
+   * <p>
+   * The merged bounds of each branch (see {@link Node#setBoundingBall(Vector, float)}) are
+   * kept up to date as nodes get modified, and tested against the
+   * {@link #boundaryEquations()}, which are automatically enabled here. Note that nodes
+   * without bounds don't contribute to the bounds of their branch.
+   *
+   * @see #enableBoundsCulling()
+   * @see #disableBoundsCulling()
+   */
+  public void enableBoundsCulling(boolean flag) {
+    _boundsCulling = flag;
+    if (flag)
+      enableBoundaryEquations();
+  }
+
+  /**
+   * Returns {@code true} if the {@link #traverse()} culling of the node branches lying
+   * outside of the eye boundary is enabled and {@code false} otherwise.
+   *
+   * @see #enableBoundsCulling(boolean)
+   */
+  public boolean isBoundsCullingEnabled() {
+    return _boundsCulling;
+  }
+
+  /**
+   * Disables the {@link #trackingGrid()}.
+   *
+   * @see #enableTrackingGrid()
+   */
+  public void disableTrackingGrid() {
+    enableTrackingGrid(false);
+  }
+
+  /**
+   * Enables the {@link #trackingGrid()}. Disabled by default.
+   *
+   * @see #disableTrackingGrid()
+   * @see #isTrackingGridEnabled()
+   */
+  public void enableTrackingGrid() {
+    enableTrackingGrid(true);
+  }
+
+  /**
+   * Enables or disables the {@link #trackingGrid()} according to {@code flag}.
+   * <p>
+   * When enabled, the grid is set as the {@link #inputHandler()} grabber index, so that
+   * agents only {@link frames.input.Agent#poll(frames.input.Event)} the nodes whose
+   * picking area lies near the pointer. Useful when the agents hold thousands of nodes.
+   *
+   * @see frames.input.InputHandler#setGrabberIndex(frames.input.GrabberIndex)
+   */
+  public void enableTrackingGrid(boolean flag) {
+    if (flag)
+      inputHandler().setGrabberIndex(trackingGrid());
+    else if (isTrackingGridEnabled())
+      inputHandler().setGrabberIndex(null);
+  }
+
+  /**
+   * Returns {@code true} if the {@link #trackingGrid()} is the {@link #inputHandler()}
+   * grabber index and {@code false} otherwise.
+   *
+   * @see #enableTrackingGrid(boolean)
+   */
+  public boolean isTrackingGridEnabled() {
+    return _trackingGrid != null && inputHandler().grabberIndex() == _trackingGrid;
+  }
+
+  /**
+   * Returns the graph {@link TrackingGrid}. The grid is instantiated on the first call.
+   *
+   * @see #enableTrackingGrid()
+   */
+  public TrackingGrid trackingGrid() {
+    if (_trackingGrid == null)
+      _trackingGrid = new TrackingGrid(this);
+    return _trackingGrid;
+  }
+
   /**
    * Same as {@code for(Node node : leadingNodes()) pruneBranch(node)}.
    *
@@ -949,6 +1295,69 @@ public class Graph {
     return timingHandler().isAnimatorRegistered(animator);
   }
 
+  /**
+   * Convenience wrapper function that simply calls {@code timingHandler().enableFixedTimestep()}.
+   *
+   * @see frames.timing.TimingHandler#enableFixedTimestep()
+   */
+  public void enableFixedTimestep() {
+    timingHandler().enableFixedTimestep();
+  }
+
+  /**
+   * Convenience wrapper function that simply calls {@code timingHandler().disableFixedTimestep()}.
+   *
+   * @see frames.timing.TimingHandler#disableFixedTimestep()
+   */
+  public void disableFixedTimestep() {
+    timingHandler().disableFixedTimestep();
+  }
+
+  /**
+   * Convenience wrapper function that simply calls {@code timingHandler().enableFixedTimestep(flag)}.
+   *
+   * @see frames.timing.TimingHandler#enableFixedTimestep(boolean)
+   */
+  public void enableFixedTimestep(boolean flag) {
+    timingHandler().enableFixedTimestep(flag);
+  }
+
+  /**
+   * Convenience wrapper function that simply returns {@code timingHandler().isFixedTimestepEnabled()}.
+   *
+   * @see frames.timing.TimingHandler#isFixedTimestepEnabled()
+   */
+  public boolean isFixedTimestepEnabled() {
+    return timingHandler().isFixedTimestepEnabled();
+  }
+
+  /**
+   * Convenience wrapper function that simply returns {@code timingHandler().timestep()}.
+   *
+   * @see frames.timing.TimingHandler#timestep()
+   */
+  public float timestep() {
+    return timingHandler().timestep();
+  }
+
+  /**
+   * Convenience wrapper function that simply calls {@code timingHandler().setTimestep(timestep)}.
+   *
+   * @see frames.timing.TimingHandler#setTimestep(float)
+   */
+  public void setTimestep(float timestep) {
+    timingHandler().setTimestep(timestep);
+  }
+
+  /**
+   * Convenience wrapper function that simply returns {@code timingHandler().alpha()}.
+   *
+   * @see frames.timing.TimingHandler#alpha()
+   */
+  public float alpha() {
+    return timingHandler().alpha();
+  }
+
   // Matrix and transformations stuff
 
   /**
@@ -1145,19 +1554,30 @@ public class Graph {
   /**
    * Called before your main drawing and performs the following:
    * <ol>
+   * <li>Calls {@link frames.timing.TimingHandler#flush()}, i.e., applies the node updates
+   * of the parallel timers (if any)</li>
    * <li>Calls {@link MatrixHandler#_bind()}</li>
    * <li>Calls {@link #updateBoundaryEquations()} if {@link #areBoundaryEquationsEnabled()}</li>
+   * <li>Calls {@link TransformStore#update()} if {@link #isTransformStoreEnabled()}</li>
+   * <li>Calls {@link #updateWorldMatrices()} if {@link #isParallelUpdateEnabled()}</li>
    * </ol>
    *
    * @see #postDraw()
    */
   public void preDraw() {
+    // 0. Parallel timers' tasks
+    timingHandler().flush();
     // 1. Eye, raster graph
     matrixHandler()._bind();
     if (areBoundaryEquationsEnabled() && (eye().lastUpdate() > _lastEqUpdate || _lastEqUpdate == 0)) {
       updateBoundaryEquations();
       _lastEqUpdate = TimingHandler.frameCount;
     }
+    // 2. Packed node transforms
+    if (isTransformStoreEnabled())
+      _store.update();
+    if (isParallelUpdateEnabled())
+      updateWorldMatrices();
   }
 
   /**
@@ -1627,9 +2047,9 @@ public class Graph {
     if (!areBoundaryEquationsEnabled())
       System.out.println("The viewpoint boundary equations (needed by distanceToBoundary) may be outdated. Please "
           + "enable automatic updates of the equations in your PApplet.setup " + "with Scene.enableBoundaryEquations()");
-    Vector myVector = new Vector(_coefficients[index][0], _coefficients[index][1], _coefficients[index][2]);
     if (is3D())
-      return Vector.dot(position, myVector) - _coefficients[index][3];
+      return _coefficients[index][0] * position.x() + _coefficients[index][1] * position.y()
+          + _coefficients[index][2] * position.z() - _coefficients[index][3];
     else
       return (_coefficients[index][0] * position.x() + _coefficients[index][1] * position.y() + _coefficients[index][2])
           / (float) Math
@@ -1853,63 +2273,43 @@ public class Graph {
    * @see #unprojectedCoordinatesOf(Vector, Frame)
    */
   public Vector projectedCoordinatesOf(Vector point, Frame frame) {
-    float xyz[] = new float[3];
-
-    if (frame != null) {
-      Vector tmp = frame.inverseCoordinatesOf(point);
-      _project(tmp._vector[0], tmp._vector[1], tmp._vector[2], xyz);
-    } else
-      _project(point._vector[0], point._vector[1], point._vector[2], xyz);
+    return projectedCoordinatesOf(point, frame, null);
+  }
 
-    return new Vector(xyz[0], xyz[1], xyz[2]);
+  /**
+   * Same as {@link #projectedCoordinatesOf(Vector, Frame)}, but the result is stored into
+   * {@code target} (which may be {@code point}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector projectedCoordinatesOf(Vector point, Frame frame, Vector target) {
+    if (frame != null)
+      target = frame.inverseCoordinatesOf(point, target);
+    else if (target == null)
+      target = point.get();
+    else
+      target.set(point);
+    if (!_project(target._vector[0], target._vector[1], target._vector[2], target._vector))
+      target.set(0, 0, 0);
+    return target;
   }
 
   // cached version
   protected boolean _project(float objx, float objy, float objz, float[] windowCoordinate) {
-    Matrix projectionViewMatrix = matrixHandler().cacheProjectionView();
-
-    float in[] = new float[4];
-    float out[] = new float[4];
-
-    in[0] = objx;
-    in[1] = objy;
-    in[2] = objz;
-    in[3] = 1.0f;
-
-    out[0] = projectionViewMatrix._matrix[0] * in[0] + projectionViewMatrix._matrix[4] * in[1] + projectionViewMatrix._matrix[8] * in[2]
-        + projectionViewMatrix._matrix[12] * in[3];
-    out[1] = projectionViewMatrix._matrix[1] * in[0] + projectionViewMatrix._matrix[5] * in[1] + projectionViewMatrix._matrix[9] * in[2]
-        + projectionViewMatrix._matrix[13] * in[3];
-    out[2] = projectionViewMatrix._matrix[2] * in[0] + projectionViewMatrix._matrix[6] * in[1] + projectionViewMatrix._matrix[10] * in[2]
-        + projectionViewMatrix._matrix[14] * in[3];
-    out[3] = projectionViewMatrix._matrix[3] * in[0] + projectionViewMatrix._matrix[7] * in[1] + projectionViewMatrix._matrix[11] * in[2]
-        + projectionViewMatrix._matrix[15] * in[3];
-
-    if (out[3] == 0.0)
-      return false;
+    float[] projectionView = matrixHandler().cacheProjectionView()._matrix;
 
-    int[] viewport = new int[4];
-    viewport[0] = 0;
-    viewport[1] = height();
-    viewport[2] = width();
-    viewport[3] = -height();
-
-    out[0] /= out[3];
-    out[1] /= out[3];
-    out[2] /= out[3];
-
-    // Map x, y and z to range 0-1
-    out[0] = out[0] * 0.5f + 0.5f;
-    out[1] = out[1] * 0.5f + 0.5f;
-    out[2] = out[2] * 0.5f + 0.5f;
+    float w = projectionView[3] * objx + projectionView[7] * objy + projectionView[11] * objz + projectionView[15];
+    if (w == 0.0)
+      return false;
 
-    // Map x,y to viewport
-    out[0] = out[0] * viewport[2] + viewport[0];
-    out[1] = out[1] * viewport[3] + viewport[1];
+    float x = (projectionView[0] * objx + projectionView[4] * objy + projectionView[8] * objz + projectionView[12]) / w;
+    float y = (projectionView[1] * objx + projectionView[5] * objy + projectionView[9] * objz + projectionView[13]) / w;
+    float z = (projectionView[2] * objx + projectionView[6] * objy + projectionView[10] * objz + projectionView[14]) / w;
 
-    windowCoordinate[0] = out[0];
-    windowCoordinate[1] = out[1];
-    windowCoordinate[2] = out[2];
+    // Map x, y and z to range 0-1 and then x,y to the (0, height, width, -height) viewport
+    windowCoordinate[0] = (x * 0.5f + 0.5f) * width();
+    windowCoordinate[1] = (y * 0.5f + 0.5f) * -height() + height();
+    windowCoordinate[2] = z * 0.5f + 0.5f;
 
     return true;
   }
@@ -1953,15 +2353,22 @@ public class Graph {
    * @see #setHeight(int)
    */
   public Vector unprojectedCoordinatesOf(Vector pixel, Frame frame) {
-    float xyz[] = new float[3];
-    // _unproject(src.vec[0], src.vec[1], src.vec[2], this.getViewMatrix(true),
-    // this.getProjectionMatrix(true),
-    // getViewport(), xyz);
-    _unproject(pixel._vector[0], pixel._vector[1], pixel._vector[2], xyz);
-    if (frame != null)
-      return frame.coordinatesOf(new Vector(xyz[0], xyz[1], xyz[2]));
-    else
-      return new Vector(xyz[0], xyz[1], xyz[2]);
+    return unprojectedCoordinatesOf(pixel, frame, null);
+  }
+
+  /**
+   * Same as {@link #unprojectedCoordinatesOf(Vector, Frame)}, but the result is stored into
+   * {@code target} (which may be {@code pixel}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector unprojectedCoordinatesOf(Vector pixel, Frame frame, Vector target) {
+    if (target == null)
+      target = new Vector();
+    float x = pixel._vector[0], y = pixel._vector[1], z = pixel._vector[2];
+    target.set(0, 0, 0);
+    _unproject(x, y, z, target._vector);
+    return frame != null ? frame.coordinatesOf(target, target) : target;
   }
 
   /**
@@ -1981,42 +2388,285 @@ public class Graph {
       projectionViewInverseMatrix.invert();
     }
 
-    int[] viewport = new int[4];
-    viewport[0] = 0;
-    viewport[1] = height();
-    viewport[2] = width();
-    viewport[3] = -height();
+    float[] projectionViewInverse = projectionViewInverseMatrix._matrix;
 
-    float in[] = new float[4];
-    float out[] = new float[4];
+    // Map x and y from the (0, height, width, -height) viewport and then to range -1 to 1
+    float x = (winx / width()) * 2 - 1;
+    float y = ((winy - height()) / -height()) * 2 - 1;
+    float z = winz * 2 - 1;
 
-    in[0] = winx;
-    in[1] = winy;
-    in[2] = winz;
-    in[3] = 1.0f;
+    float w = projectionViewInverse[3] * x + projectionViewInverse[7] * y + projectionViewInverse[11] * z + projectionViewInverse[15];
+    if (w == 0)
+      return false;
 
-    /* Map x and y from window coordinates */
-    in[0] = (in[0] - viewport[0]) / viewport[2];
-    in[1] = (in[1] - viewport[1]) / viewport[3];
+    objCoordinate[0] = (projectionViewInverse[0] * x + projectionViewInverse[4] * y + projectionViewInverse[8] * z + projectionViewInverse[12]) / w;
+    objCoordinate[1] = (projectionViewInverse[1] * x + projectionViewInverse[5] * y + projectionViewInverse[9] * z + projectionViewInverse[13]) / w;
+    objCoordinate[2] = (projectionViewInverse[2] * x + projectionViewInverse[6] * y + projectionViewInverse[10] * z + projectionViewInverse[14]) / w;
 
-    /* Map to range -1 to 1 */
-    in[0] = in[0] * 2 - 1;
-    in[1] = in[1] * 2 - 1;
-    in[2] = in[2] * 2 - 1;
+    return true;
+  }
 
-    projectionViewInverseMatrix.multiply(in, out);
-    if (out[3] == 0)
-      return false;
+  /**
+   * Same as {@code return projectedCoordinatesOf(points, frame, target, false)}.
+   *
+   * @see #projectedCoordinatesOf(float[], Frame, float[], boolean)
+   */
+  public float[] projectedCoordinatesOf(float[] points, Frame frame, float[] target) {
+    return projectedCoordinatesOf(points, frame, target, false);
+  }
 
-    out[0] /= out[3];
-    out[1] /= out[3];
-    out[2] /= out[3];
+  /**
+   * Bulk version of {@link #projectedCoordinatesOf(Vector, Frame)}. Projects the
+   * {@code points.length / 3} points packed (as consecutive x, y, z coordinates) in
+   * {@code points} and stores their screen coordinates into {@code target} (which may be
+   * {@code points}) using the same layout. Points that can't be projected are set to
+   * (0,0,0).
+   * <p>
+   * A single matrix (the cached projection times view matrix, times the {@code frame}
+   * world matrix if {@code frame} is non-null) is used for all the points, and no
+   * temporary objects are allocated. If {@code parallel} is {@code true} the points are
+   * split in chunks of {@link #bulkChunkSize()} projected across the common fork-join
+   * pool.
+   *
+   * @param target the target array (if null, a new array will be created)
+   */
+  public float[] projectedCoordinatesOf(float[] points, Frame frame, float[] target, boolean parallel) {
+    if (target == null)
+      target = new float[points.length];
+    _bulk(_projectionMatrix(frame), true, points, null, target, null, points.length / 3, parallel);
+    return target;
+  }
 
-    objCoordinate[0] = out[0];
-    objCoordinate[1] = out[1];
-    objCoordinate[2] = out[2];
+  /**
+   * Same as {@code return projectedCoordinatesOf(points, frame, target, false)}.
+   *
+   * @see #projectedCoordinatesOf(FloatBuffer, Frame, FloatBuffer, boolean)
+   */
+  public FloatBuffer projectedCoordinatesOf(FloatBuffer points, Frame frame, FloatBuffer target) {
+    return projectedCoordinatesOf(points, frame, target, false);
+  }
 
-    return true;
+  /**
+   * Same as {@link #projectedCoordinatesOf(float[], Frame, float[], boolean)}, but using
+   * the {@code points.remaining()} floats of {@code points}, which are stored into
+   * {@code target} (from its current position). Buffer positions are left untouched.
+   *
+   * @param target the target buffer (if null, a new buffer will be created)
+   */
+  public FloatBuffer projectedCoordinatesOf(FloatBuffer points, Frame frame, FloatBuffer target, boolean parallel) {
+    if (target == null)
+      target = FloatBuffer.allocate(points.remaining());
+    _bulk(_projectionMatrix(frame), true, null, points, null, target, points.remaining() / 3, parallel);
+    return target;
+  }
+
+  /**
+   * Same as {@code return unprojectedCoordinatesOf(pixels, frame, target, false)}.
+   *
+   * @see #unprojectedCoordinatesOf(float[], Frame, float[], boolean)
+   */
+  public float[] unprojectedCoordinatesOf(float[] pixels, Frame frame, float[] target) {
+    return unprojectedCoordinatesOf(pixels, frame, target, false);
+  }
+
+  /**
+   * Bulk version of {@link #unprojectedCoordinatesOf(Vector, Frame)}. Unprojects the
+   * {@code pixels.length / 3} pixels packed (as consecutive x, y, depth values) in
+   * {@code pixels} and stores their coordinates (expressed in the {@code frame} coordinate
+   * system, or in the world coordinate system if {@code frame} is null) into
+   * {@code target} (which may be {@code pixels}) using the same layout.
+   * <p>
+   * A single matrix is used for all the pixels and no temporary objects are allocated
+   * (but see {@link #cacheProjectionViewInverse(boolean)}). If {@code parallel} is
+   * {@code true} the pixels are split in chunks of {@link #bulkChunkSize()} unprojected
+   * across the common fork-join pool.
+   *
+   * @param target the target array (if null, a new array will be created)
+   */
+  public float[] unprojectedCoordinatesOf(float[] pixels, Frame frame, float[] target, boolean parallel) {
+    if (target == null)
+      target = new float[pixels.length];
+    _bulk(_unprojectionMatrix(frame), false, pixels, null, target, null, pixels.length / 3, parallel);
+    return target;
+  }
+
+  /**
+   * Same as {@code return unprojectedCoordinatesOf(pixels, frame, target, false)}.
+   *
+   * @see #unprojectedCoordinatesOf(FloatBuffer, Frame, FloatBuffer, boolean)
+   */
+  public FloatBuffer unprojectedCoordinatesOf(FloatBuffer pixels, Frame frame, FloatBuffer target) {
+    return unprojectedCoordinatesOf(pixels, frame, target, false);
+  }
+
+  /**
+   * Same as {@link #unprojectedCoordinatesOf(float[], Frame, float[], boolean)}, but using
+   * the {@code pixels.remaining()} floats of {@code pixels}, which are stored into
+   * {@code target} (from its current position). Buffer positions are left untouched.
+   *
+   * @param target the target buffer (if null, a new buffer will be created)
+   */
+  public FloatBuffer unprojectedCoordinatesOf(FloatBuffer pixels, Frame frame, FloatBuffer target, boolean parallel) {
+    if (target == null)
+      target = FloatBuffer.allocate(pixels.remaining());
+    _bulk(_unprojectionMatrix(frame), false, null, pixels, null, target, pixels.remaining() / 3, parallel);
+    return target;
+  }
+
+  /**
+   * Returns the matrix used by the bulk projection methods: the cached projection times
+   * view matrix, times the {@code frame} world matrix (if non-null).
+   */
+  protected float[] _projectionMatrix(Frame frame) {
+    if (_bulkMatrix == null) {
+      _bulkMatrix = new Matrix();
+      _bulkFrameMatrix = new Matrix();
+    }
+    if (frame == null)
+      _bulkMatrix.set(matrixHandler().cacheProjectionView());
+    else
+      Matrix.multiply(matrixHandler().cacheProjectionView(), frame.worldMatrix(_bulkFrameMatrix), _bulkMatrix);
+    return _bulkMatrix._matrix;
+  }
+
+  /**
+   * Returns the matrix used by the bulk unprojection methods: the inverse of the
+   * {@code frame} world matrix (if non-null), times the inverse of the projection times
+   * view matrix.
+   */
+  protected float[] _unprojectionMatrix(Frame frame) {
+    if (_bulkMatrix == null) {
+      _bulkMatrix = new Matrix();
+      _bulkFrameMatrix = new Matrix();
+    }
+    if (matrixHandler().isProjectionViewInverseCached())
+      _bulkMatrix.set(matrixHandler().cacheProjectionViewInverse());
+    else {
+      Matrix.multiply(matrixHandler().cacheProjection(), matrixHandler().cacheView(), _bulkMatrix);
+      _bulkMatrix.invert();
+    }
+    if (frame != null) {
+      frame.worldMatrix(_bulkFrameMatrix);
+      _bulkFrameMatrix.invert();
+      Matrix.multiply(_bulkFrameMatrix, _bulkMatrix, _bulkMatrix);
+    }
+    return _bulkMatrix._matrix;
+  }
+
+  /**
+   * Returns the number of points per parallel task of the bulk (un)projection methods,
+   * such as {@link #projectedCoordinatesOf(float[], Frame, float[], boolean)}. Default is
+   * 4096.
+   *
+   * @see #setBulkChunkSize(int)
+   */
+  public int bulkChunkSize() {
+    return _bulkChunkSize;
+  }
+
+  /**
+   * Sets the {@link #bulkChunkSize()}.
+   */
+  public void setBulkChunkSize(int size) {
+    _bulkChunkSize = Math.max(1, size);
+  }
+
+  /**
+   * Used by the bulk (un)projection methods. Maps the {@code count} points found either in
+   * {@code source} or {@code sourceBuffer} into {@code target} or {@code targetBuffer}.
+   */
+  protected void _bulk(float[] matrix, boolean project, float[] source, FloatBuffer sourceBuffer, float[] target,
+                       FloatBuffer targetBuffer, int count, boolean parallel) {
+    if (parallel && count > _bulkChunkSize)
+      ForkJoinPool.commonPool().invoke(new BulkTask(matrix, project, source, sourceBuffer, target, targetBuffer, 0, count));
+    else
+      _bulk(matrix, project, source, sourceBuffer, target, targetBuffer, 0, count);
+  }
+
+  /**
+   * Maps the points in [from, to). See {@link #_project(float, float, float, float[])}
+   * and {@link #_unproject(float, float, float, float[])}.
+   */
+  protected void _bulk(float[] matrix, boolean project, float[] source, FloatBuffer sourceBuffer, float[] target,
+                       FloatBuffer targetBuffer, int from, int to) {
+    int sourceOffset = sourceBuffer == null ? 0 : sourceBuffer.position();
+    int targetOffset = targetBuffer == null ? 0 : targetBuffer.position();
+    float width = width(), height = height();
+    for (int i = 3 * from; i < 3 * to; i += 3) {
+      float x, y, z;
+      if (source != null) {
+        x = source[i];
+        y = source[i + 1];
+        z = source[i + 2];
+      } else {
+        x = sourceBuffer.get(sourceOffset + i);
+        y = sourceBuffer.get(sourceOffset + i + 1);
+        z = sourceBuffer.get(sourceOffset + i + 2);
+      }
+      if (!project) {
+        // map x and y from the (0, height, width, -height) viewport and then to range -1 to 1
+        x = (x / width) * 2 - 1;
+        y = ((y - height) / -height) * 2 - 1;
+        z = z * 2 - 1;
+      }
+      float w = matrix[3] * x + matrix[7] * y + matrix[11] * z + matrix[15];
+      float rx = 0, ry = 0, rz = 0;
+      if (w != 0) {
+        rx = (matrix[0] * x + matrix[4] * y + matrix[8] * z + matrix[12]) / w;
+        ry = (matrix[1] * x + matrix[5] * y + matrix[9] * z + matrix[13]) / w;
+        rz = (matrix[2] * x + matrix[6] * y + matrix[10] * z + matrix[14]) / w;
+        if (project) {
+          // map x, y and z to range 0-1 and then x,y to the (0, height, width, -height) viewport
+          rx = (rx * 0.5f + 0.5f) * width;
+          ry = (ry * 0.5f + 0.5f) * -height + height;
+          rz = rz * 0.5f + 0.5f;
+        }
+      }
+      if (target != null) {
+        target[i] = rx;
+        target[i + 1] = ry;
+        target[i + 2] = rz;
+      } else {
+        targetBuffer.put(targetOffset + i, rx);
+        targetBuffer.put(targetOffset + i + 1, ry);
+        targetBuffer.put(targetOffset + i + 2, rz);
+      }
+    }
+  }
+
+  /**
+   * Fork-join task used by the bulk (un)projection methods. Splits the points range in
+   * halves until it fits {@link #bulkChunkSize()}.
+   */
+  protected class BulkTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    protected float[] _matrix, _source, _target;
+    protected FloatBuffer _sourceBuffer, _targetBuffer;
+    protected boolean _project;
+    protected int _from, _to;
+
+    protected BulkTask(float[] matrix, boolean project, float[] source, FloatBuffer sourceBuffer, float[] target,
+                       FloatBuffer targetBuffer, int from, int to) {
+      _matrix = matrix;
+      _project = project;
+      _source = source;
+      _sourceBuffer = sourceBuffer;
+      _target = target;
+      _targetBuffer = targetBuffer;
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (_to - _from <= _bulkChunkSize) {
+        _bulk(_matrix, _project, _source, _sourceBuffer, _target, _targetBuffer, _from, _to);
+        return;
+      }
+      int middle = (_from + _to) >>> 1;
+      invokeAll(new BulkTask(_matrix, _project, _source, _sourceBuffer, _target, _targetBuffer, _from, middle),
+          new BulkTask(_matrix, _project, _source, _sourceBuffer, _target, _targetBuffer, middle, _to));
+    }
   }
 
   /**
@@ -2444,6 +3094,49 @@ public class Graph {
     eye().setPosition(Vector.subtract(newCenter, Vector.multiply(vd, distance)));
   }
 
+  /**
+   * Returns the graph {@link SpatialIndex}, used by {@link Node.Precision#RAY} picking.
+   * The index is built on the first call.
+   *
+   * @see #pick(float, float)
+   */
+  public SpatialIndex spatialIndex() {
+    if (_index == null)
+      _index = new SpatialIndex(this);
+    return _index;
+  }
+
+  /**
+   * Returns the nearest {@link Node.Precision#RAY} node (other than the {@link #eye()})
+   * hit by the ray passing through the eye and pixel {@code (x, y)}, or {@code null} if
+   * none is hit. See {@link Node#rayHit(Vector, Vector)}. Nodes having other precisions
+   * neither get picked nor occlude the {@link Node.Precision#RAY} ones.
+   * <p>
+   * The ray is computed with {@link #convertClickToLine(Point, Vector, Vector)} and cast
+   * against the {@link #spatialIndex()}, which is refitted at most once per frame. The
+   * result is cached, so that all the {@link Node.Precision#RAY} nodes tracking the same
+   * pixel within a frame just read it back. No back buffer rendering nor readback takes
+   * place.
+   *
+   * @see Node#setPrecision(Node.Precision)
+   */
+  public Node pick(float x, float y) {
+    if (_pickFrame == TimingHandler.frameCount && _pickX == x && _pickY == y)
+      return _pickNode;
+    if (_pickOrigin == null) {
+      _pickOrigin = new Vector();
+      _pickDirection = new Vector();
+    }
+    if (_pickFrame != TimingHandler.frameCount || !spatialIndex().isValid())
+      spatialIndex().refit();
+    convertClickToLine(new Point(x, y), _pickOrigin, _pickDirection);
+    _pickNode = spatialIndex().rayCast(_pickOrigin, _pickDirection, Node.Precision.RAY);
+    _pickFrame = TimingHandler.frameCount;
+    _pickX = x;
+    _pickY = y;
+    return _pickNode;
+  }
+
   /**
    * Gives the coefficients of a 3D half-line passing through the eye and pixel
    * (x,y). Origin in the upper left corner. Use {@link #height()} - y to locate the
@@ -2630,19 +3323,30 @@ public class Graph {
   }
 
   /**
-   * Registers the given chain to solve IK.
+   * Registers the given chain to solve IK. Returns {@code null} (and nothing is registered)
+   * if the {@code node} branch overlaps the one of an already registered solver.
+   * <p>
+   * The registered solver is configured to early-out: its iteration budget is adaptive
+   * (proportional to the target displacement) and it stops as soon as its error stagnates
+   * (see {@code Solver.adaptive} and {@code Solver.stagnation}). Set
+   * {@code solver.adaptive = false} and {@code solver.stagnation = 0} on the returned solver
+   * to always spend the full {@code maxIter} budget.
    */
   public TreeSolver registerTreeSolver(Node node) {
     for (TreeSolver solver : _solvers) {
-      //If Head is Contained in any structure do nothing
-      if (!branch(solver.head(), node).isEmpty())
+      //If Head is Contained in any structure (or contains any other head) do nothing
+      if (!branch(solver.head(), node).isEmpty() || !branch(node, solver.head()).isEmpty())
         return null;
     }
     TreeSolver solver = new TreeSolver(node);
+    solver.adaptive = true;
+    solver.stagnation = 0.001f;
     _solvers.add(solver);
     //Add task
     registerTask(solver.task());
-    solver.task().run(40);
+    solver.parallel = isParallelSolvingEnabled();
+    if (!_isSolverTaskEnabled())
+      solver.task().run(40);
     return solver;
   }
 
@@ -2674,6 +3378,229 @@ public class Graph {
     return null;
   }
 
+  /**
+   * Disables the parallel solving of the {@link #treeSolvers()}.
+   *
+   * @see #enableParallelSolving()
+   */
+  public void disableParallelSolving() {
+    enableParallelSolving(false);
+  }
+
+  /**
+   * Enables the parallel solving of the {@link #treeSolvers()}. Disabled by default.
+   *
+   * @see #disableParallelSolving()
+   * @see #isParallelSolvingEnabled()
+   */
+  public void enableParallelSolving() {
+    enableParallelSolving(true);
+  }
+
+  /**
+   * Enables or disables the parallel solving of the {@link #treeSolvers()} according to
+   * {@code flag}.
+   * <p>
+   * When enabled, the per solver tasks are stopped and a single graph task calls
+   * {@link #solveTreeSolvers()} instead (with the same 40ms period), and the
+   * {@link TreeSolver#parallel} flag of each solver is set, so that its sibling sub-chains
+   * are also processed concurrently.
+   */
+  public void enableParallelSolving(boolean flag) {
+    if (flag == _parallelSolving)
+      return;
+    boolean enabled = _isSolverTaskEnabled();
+    _parallelSolving = flag;
+    for (TreeSolver solver : _solvers)
+      solver.parallel = flag;
+    _updateSolverTask(enabled);
+  }
+
+  /**
+   * Returns {@code true} if the parallel solving of the {@link #treeSolvers()} is enabled
+   * and {@code false} otherwise.
+   *
+   * @see #enableParallelSolving(boolean)
+   */
+  public boolean isParallelSolvingEnabled() {
+    return _parallelSolving;
+  }
+
+  /**
+   * Returns the per frame time budget (in milliseconds) of the {@link #treeSolvers()}, or
+   * 0 if there's none (default).
+   *
+   * @see #setIKBudget(float)
+   */
+  public float ikBudget() {
+    return _ikBudget;
+  }
+
+  /**
+   * Sets the per frame time budget (in milliseconds) of the {@link #treeSolvers()}, e.g.,
+   * 2. Pass 0 (or a negative value) to remove the budget.
+   * <p>
+   * When set, the per solver tasks are stopped and a single graph task calls
+   * {@link #solveTreeSolvers(float)} instead (with the same 40ms period), so that a burst of
+   * target changes no longer causes frame spikes. The budget takes precedence over
+   * {@link #enableParallelSolving()}, although the {@link TreeSolver#parallel} flag still
+   * applies.
+   */
+  public void setIKBudget(float milliseconds) {
+    boolean enabled = _isSolverTaskEnabled();
+    _ikBudget = Math.max(0, milliseconds);
+    _updateSolverTask(enabled);
+  }
+
+  /**
+   * Returns {@code true} if the {@link #treeSolvers()} are driven by the graph solver task
+   * instead of their own tasks.
+   */
+  protected boolean _isSolverTaskEnabled() {
+    return _parallelSolving || _ikBudget > 0;
+  }
+
+  /**
+   * Switches between the per solver tasks and the graph solver task, according to
+   * {@link #_isSolverTaskEnabled()}. The {@code enabled} param is the previous state.
+   */
+  protected void _updateSolverTask(boolean enabled) {
+    if (enabled == _isSolverTaskEnabled())
+      return;
+    for (TreeSolver solver : _solvers) {
+      if (_isSolverTaskEnabled())
+        solver.task().stop();
+      else
+        solver.task().run(40);
+    }
+    if (_isSolverTaskEnabled()) {
+      if (_solverTask == null) {
+        _solverTask = new TimingTask() {
+          @Override
+          public void execute() {
+            if (_ikBudget > 0)
+              solveTreeSolvers(_ikBudget);
+            else
+              solveTreeSolvers();
+          }
+        };
+        registerTask(_solverTask);
+      }
+      _solverTask.run(40);
+    } else
+      _solverTask.stop();
+  }
+
+  /**
+   * Iterates the {@link #treeSolvers()} until they're done or the given time budget (in
+   * milliseconds) is exhausted. Solvers get their iterations in rounds, sorted by their
+   * {@link Solver#priority} times their {@link Solver#residual()} error, in such a way
+   * that each solver performs (at least one and) up to {@link Solver#priority} iterations
+   * per round. Solvers which don't finish keep their state and resume on the next call.
+   *
+   * @see #setIKBudget(float)
+   */
+  public void solveTreeSolvers(float milliseconds) {
+    long deadline = System.nanoTime() + (long) (milliseconds * 1e6f);
+    int size = _solvers.size();
+    if (_schedule.length < size) {
+      _schedule = new TreeSolver[size];
+      _scheduleKeys = new float[size];
+    }
+    // sort the solvers by decreasing priority * residual (insertion sort, since just a few
+    // hundreds solvers are expected)
+    for (int i = 0; i < size; i++) {
+      TreeSolver solver = _solvers.get(i);
+      float residual = solver.residual();
+      float key = solver.priority * (residual < 0 ? Float.MAX_VALUE : residual);
+      int j = i;
+      for (; j > 0 && _scheduleKeys[j - 1] < key; j--) {
+        _schedule[j] = _schedule[j - 1];
+        _scheduleKeys[j] = _scheduleKeys[j - 1];
+      }
+      _schedule[j] = solver;
+      _scheduleKeys[j] = key;
+    }
+    // iterate pending solvers in rounds, removing finished ones
+    while (size > 0 && System.nanoTime() < deadline) {
+      int pending = 0;
+      for (int i = 0; i < size; i++) {
+        TreeSolver solver = _schedule[i];
+        boolean finished = false;
+        for (int k = 0; k < Math.max(1, Math.round(solver.priority)) && !finished; k++)
+          finished = solver.iterate();
+        if (!finished)
+          _schedule[pending++] = solver;
+        if (System.nanoTime() >= deadline)
+          break;
+      }
+      size = pending;
+    }
+    Arrays.fill(_schedule, null);
+  }
+
+  /**
+   * Calls {@link Solver#solve()} on all the {@link #treeSolvers()}, splitting them across
+   * the common fork-join pool. Registered solvers drive disjoint branches (see
+   * {@link #registerTreeSolver(Node)}), so each solver writes only its own nodes. The world
+   * cache of the nodes above the solver heads and of the solver targets (together with
+   * their reference chains) is updated beforehand, so that solvers only read it. Solvers
+   * having a target attached to a node driven by another solver depend on it: they're
+   * solved afterwards, sequentially, so that the result doesn't depend on the scheduling.
+   *
+   * @see #enableParallelSolving()
+   */
+  public void solveTreeSolvers() {
+    if (_solvers.isEmpty())
+      return;
+    IdentityHashMap<Frame, TreeSolver> owners = new IdentityHashMap<Frame, TreeSolver>();
+    for (TreeSolver solver : _solvers)
+      for (Node node : branch(solver.head()))
+        owners.put(node, solver);
+    Matrix matrix = new Matrix();
+    ArrayList<TreeSolver> independent = new ArrayList<TreeSolver>();
+    ArrayList<TreeSolver> dependent = new ArrayList<TreeSolver>();
+    for (TreeSolver solver : _solvers) {
+      if (solver.head().reference() != null)
+        solver.head().reference().worldMatrix(matrix);
+      boolean depends = false;
+      for (Frame target : solver.targets()) {
+        target.worldMatrix(matrix);
+        for (Frame frame = target; frame != null && !depends; frame = frame.reference()) {
+          TreeSolver owner = owners.get(frame);
+          depends = owner != null && owner != solver;
+        }
+      }
+      (depends ? dependent : independent).add(solver);
+    }
+    if (!independent.isEmpty())
+      ForkJoinPool.commonPool().invoke(new SolveTask(independent));
+    for (TreeSolver solver : dependent)
+      solver.solve();
+  }
+
+  /**
+   * Fork-join task used by {@link #solveTreeSolvers()}.
+   */
+  protected static class SolveTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    protected List<TreeSolver> _solvers;
+
+    protected SolveTask(List<TreeSolver> solvers) {
+      _solvers = solvers;
+    }
+
+    @Override
+    protected void compute() {
+      if (_solvers.size() == 1) {
+        _solvers.get(0).solve();
+        return;
+      }
+      int half = _solvers.size() / 2;
+      invokeAll(new SolveTask(_solvers.subList(0, half)), new SolveTask(_solvers.subList(half, _solvers.size())));
+    }
+  }
+
   public boolean addIKTarget(Node endEffector, Frame target) {
     for (TreeSolver solver : _solvers) {
       if (solver.addTarget(endEffector, target)) return true;
@@ -178,6 +178,13 @@ public class Interpolator {
   protected boolean _currentFrameValid;
   protected boolean _splineCacheIsValid;
   protected Vector _vector1, _vector2;
+  // interpolate() scratch values
+  protected Vector _position = new Vector();
+  protected Vector _keyPosition = new Vector();
+  protected Quaternion _orientation = new Quaternion();
+  protected Quaternion _keyOrientation1 = new Quaternion();
+  protected Quaternion _keyOrientation2 = new Quaternion();
+  protected Quaternion _tangentCache = new Quaternion();
 
   // Graph
   protected Graph _graph;
@@ -919,20 +926,24 @@ public class Interpolator {
     else
       alpha = (time - _list.get(_current1.nextIndex()).time()) / dt;
 
-    Vector pos = Vector.add(_list.get(_current1.nextIndex()).position(), Vector.multiply(
-        Vector.add(_list.get(_current1.nextIndex()).tangentVector(),
-            Vector.multiply(Vector.add(_vector1, Vector.multiply(_vector2, alpha)), alpha)), alpha));
+    KeyFrame keyFrame1 = _list.get(_current1.nextIndex());
+    KeyFrame keyFrame2 = _list.get(_current2.nextIndex());
 
-    float mag = Vector.lerp(_list.get(_current1.nextIndex()).magnitude(),
-        _list.get(_current2.nextIndex()).magnitude(), alpha);
+    // position + alpha * (tangentVector + alpha * (_vector1 + alpha * _vector2))
+    Vector.multiply(_vector2, alpha, _position);
+    _position.add(_vector1);
+    _position.multiply(alpha);
+    _position.add(keyFrame1.tangentVector());
+    _position.multiply(alpha);
+    _position.add(keyFrame1.frame().position(_keyPosition));
 
-    Quaternion q = Quaternion.squad(_list.get(_current1.nextIndex()).orientation(),
-        _list.get(_current1.nextIndex()).tangentQuaternion(),
-        _list.get(_current2.nextIndex()).tangentQuaternion(),
-        _list.get(_current2.nextIndex()).orientation(), alpha);
+    float mag = Vector.lerp(keyFrame1.magnitude(), keyFrame2.magnitude(), alpha);
 
-    frame().setPosition(pos);
-    frame().setRotation(q);
+    Quaternion.squad(keyFrame1.frame().orientation(_keyOrientation1), keyFrame1.tangentQuaternion(),
+        keyFrame2.tangentQuaternion(), keyFrame2.frame().orientation(_keyOrientation2), alpha, _tangentCache, _orientation);
+
+    frame().setPosition(_position);
+    frame().setRotation(_orientation);
     frame().setMagnitude(mag);
   }
 }
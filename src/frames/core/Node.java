@@ -152,11 +152,22 @@ public class Node extends Frame implements Grabber {
   // id
   protected int _id;
 
+  // slot in the graph transform store
+  protected int _slot = -1;
+
+  // bounds: local bounding ball and merged world bounding ball of the node branch
+  protected Vector _boundingCenter;
+  protected float _boundingRadius = -1;
+  protected Vector _branchCenter;
+  protected float _branchRadius = -1;
+  protected boolean _boundsDirty = true;
+  protected Graph.Visibility _visibility;
+
   /**
    * Enumerates the Picking precision modes.
    */
   public enum Precision {
-    FIXED, ADAPTIVE, EXACT
+    FIXED, ADAPTIVE, EXACT, RAY
   }
 
   protected Precision _Precision;
@@ -270,6 +281,9 @@ public class Node extends Frame implements Grabber {
 
     this._upVector = other._upVector.get();
     this._culled = other._culled;
+    if (other._boundingCenter != null)
+      this._boundingCenter = other._boundingCenter.get();
+    this._boundingRadius = other._boundingRadius;
 
     this._children = new ArrayList<Node>();
     if (this.graph() == other.graph()) {
@@ -436,6 +450,8 @@ public class Node extends Frame implements Grabber {
       return false;
     if (_hasChild(node))
       return false;
+    _hierarchyModified();
+    _invalidateBounds();
     return children().add(node);
   }
 
@@ -452,9 +468,22 @@ public class Node extends Frame implements Grabber {
         break;
       }
     }
+    if (result) {
+      _hierarchyModified();
+      _invalidateBounds();
+    }
     return result;
   }
 
+  /**
+   * Internal use. Notifies the {@link #graph()} (if any) that the node hierarchy has
+   * changed.
+   */
+  protected void _hierarchyModified() {
+    if (graph() != null)
+      graph()._hierarchyModified();
+  }
+
   protected boolean _hasChild(Node node) {
     for (Node frame : children())
       if (frame == node)
@@ -520,6 +549,166 @@ public class Node extends Frame implements Grabber {
     return _culled;
   }
 
+  /**
+   * Sets the node local bounds as the ball of the given {@code radius} centered at
+   * {@code center} (defined in the node coordinate system). Bounds are optional and used
+   * by {@link Graph#traverse()} to cull whole branches lying outside of the eye boundary,
+   * see {@link Graph#enableBoundsCulling()}.
+   *
+   * @see #setBoundingBox(Vector, Vector)
+   * @see #resetBounds()
+   * @see #hasBounds()
+   */
+  public void setBoundingBall(Vector center, float radius) {
+    if (radius < 0) {
+      System.out.println("Warning: nothing done: bounding ball radius should be non-negative");
+      return;
+    }
+    _boundingCenter = center.get();
+    _boundingRadius = radius;
+    _invalidateBounds();
+  }
+
+  /**
+   * Sets the node local bounds as the ball enclosing the axis aligned box defined (in
+   * the node coordinate system) by {@code corner1} and {@code corner2}.
+   *
+   * @see #setBoundingBall(Vector, float)
+   */
+  public void setBoundingBox(Vector corner1, Vector corner2) {
+    setBoundingBall(Vector.multiply(Vector.add(corner1, corner2), 0.5f), 0.5f * Vector.distance(corner1, corner2));
+  }
+
+  /**
+   * Removes the node local bounds. Nodes without bounds (e.g., those only used to group
+   * other nodes) don't contribute to the bounds of their branch.
+   *
+   * @see #setBoundingBall(Vector, float)
+   */
+  public void resetBounds() {
+    _boundingCenter = null;
+    _boundingRadius = -1;
+    _invalidateBounds();
+  }
+
+  /**
+   * Returns {@code true} if the node has local bounds and {@code false} otherwise.
+   *
+   * @see #setBoundingBall(Vector, float)
+   */
+  public boolean hasBounds() {
+    return _boundingRadius >= 0;
+  }
+
+  /**
+   * Returns the world center of the ball enclosing the bounds of the node and all its
+   * descendants, or {@code null} if none of them has bounds. Updated by
+   * {@link Graph#traverse()} when {@link Graph#isBoundsCullingEnabled()}.
+   *
+   * @see #branchRadius()
+   */
+  public Vector branchCenter() {
+    return _branchRadius < 0 ? null : _branchCenter;
+  }
+
+  /**
+   * Returns the world radius of the ball enclosing the bounds of the node and all its
+   * descendants, or -1 if none of them has bounds.
+   *
+   * @see #branchCenter()
+   */
+  public float branchRadius() {
+    return _branchRadius;
+  }
+
+  /**
+   * Returns the distance from {@code origin} to the nearest intersection of the
+   * half-line starting at {@code origin} along the (normalized) {@code direction} with the
+   * node world bounding ball, or -1 if there's none (or the node has no bounds).
+   * <p>
+   * Used by {@link Precision#RAY} picking. Override it to intersect a finer node
+   * representation (e.g., a triangle mesh) which should lie within the node bounds.
+   *
+   * @see Graph#pick(float, float)
+   */
+  public float rayHit(Vector origin, Vector direction) {
+    if (!hasBounds())
+      return -1;
+    Vector center = inverseCoordinatesOf(_boundingCenter);
+    float radius = _boundingRadius * magnitude();
+    float ox = origin.x() - center.x(), oy = origin.y() - center.y(), oz = origin.z() - center.z();
+    float b = ox * direction.x() + oy * direction.y() + oz * direction.z();
+    float c = ox * ox + oy * oy + oz * oz - radius * radius;
+    float discriminant = b * b - c;
+    if (discriminant < 0)
+      return -1;
+    float root = (float) Math.sqrt(discriminant);
+    float t = -b - root;
+    if (t < 0)
+      t = -b + root;
+    return t < 0 ? -1 : t;
+  }
+
+  /**
+   * Internal use. Marks the branch bounds of this node and its ancestors as outdated.
+   * Stops as soon as an outdated ancestor is found, since then all its own ancestors are
+   * outdated too.
+   */
+  protected void _invalidateBounds() {
+    _boundsDirty = true;
+    Node node = reference();
+    while (node != null && !node._boundsDirty) {
+      node._boundsDirty = true;
+      node = node.reference();
+    }
+  }
+
+  /**
+   * Internal use. Updates the world branch bounds of the outdated nodes in this branch.
+   */
+  protected void _updateBounds() {
+    if (!_boundsDirty)
+      return;
+    _branchRadius = -1;
+    if (hasBounds()) {
+      _branchCenter = inverseCoordinatesOf(_boundingCenter, _branchCenter == null ? new Vector() : _branchCenter);
+      _branchRadius = _boundingRadius * magnitude();
+    }
+    for (Node child : children()) {
+      child._updateBounds();
+      if (child._branchRadius >= 0)
+        _mergeBounds(child._branchCenter, child._branchRadius);
+    }
+    _boundsDirty = false;
+  }
+
+  /**
+   * Internal use. Enlarges the branch ball to enclose the given one.
+   */
+  protected void _mergeBounds(Vector center, float radius) {
+    if (_branchRadius < 0) {
+      if (_branchCenter == null)
+        _branchCenter = new Vector();
+      _branchCenter.set(center);
+      _branchRadius = radius;
+      return;
+    }
+    float distance = Vector.distance(_branchCenter, center);
+    if (distance + radius <= _branchRadius)
+      return;
+    if (distance + _branchRadius <= radius) {
+      _branchCenter.set(center);
+      _branchRadius = radius;
+      return;
+    }
+    float r = (distance + _branchRadius + radius) / 2;
+    float t = (r - _branchRadius) / distance;
+    _branchCenter.set(_branchCenter.x() + (center.x() - _branchCenter.x()) * t,
+        _branchCenter.y() + (center.y() - _branchCenter.y()) * t,
+        _branchCenter.z() + (center.z() - _branchCenter.z()) * t);
+    _branchRadius = r;
+  }
+
   /**
    * Returns the graph this node belongs to.
    *
@@ -614,6 +803,8 @@ public class Node extends Frame implements Grabber {
    * @see #setPrecision(Precision)
    */
   public boolean track(float x, float y) {
+    if (precision() == Precision.RAY)
+      return _graph.pick(x, y) == this;
     Vector proj = _graph.projectedCoordinatesOf(position());
     float halfThreshold = precisionThreshold() / 2;
     return ((Math.abs(x - proj._vector[0]) < halfThreshold) && (Math.abs(y - proj._vector[1]) < halfThreshold));
@@ -765,10 +956,55 @@ public class Node extends Frame implements Grabber {
    */
   @Override
   protected void _modified() {
-    _lastUpdate = TimingHandler.frameCount;
-    if (children() != null)
-      for (Node child : children())
-        child._modified();
+    super._modified();
+    _invalidateBounds();
+    if (graph() != null && graph().transformStore() != null)
+      graph().transformStore()._modified(this);
+    List<Node> children = children();
+    if (children != null)
+      for (int i = 0; i < children.size(); i++)
+        children.get(i)._modified();
+  }
+
+  /**
+   * Internal use. Since {@link #_modified()} is propagated to all the node
+   * {@link #children()}, a clean node whose {@link #reference()} is clean too may use
+   * its world cache right away, without walking up the whole {@link #reference()} chain.
+   * <p>
+   * When the {@link Graph#transformStore()} is enabled and the node slot is up to date,
+   * the world cache is read back from the store.
+   */
+  @Override
+  protected void _cache() {
+    if (!_dirty && (reference() == null || (!reference()._dirty && reference()._cacheStamp == _referenceStamp)))
+      return;
+    TransformStore store = graph() == null ? null : graph().transformStore();
+    int slot = store == null ? -1 : store.slot(this);
+    if (slot < 0 || store._dirty[slot]) {
+      super._cache();
+      return;
+    }
+    if (reference() != null) {
+      reference()._cache();
+      _referenceStamp = reference()._cacheStamp;
+    } else
+      _referenceStamp = 0;
+    if (_position == null) {
+      _position = new Vector();
+      _orientation = new Quaternion();
+      _worldMatrix = new Matrix();
+    }
+    int t = 3 * slot, r = 4 * slot;
+    _position.set(store._position[t], store._position[t + 1], store._position[t + 2]);
+    _orientation.setX(store._orientation[r]);
+    _orientation.setY(store._orientation[r + 1]);
+    _orientation.setZ(store._orientation[r + 2]);
+    _orientation.setW(store._orientation[r + 3]);
+    _magnitude = store._magnitude[slot];
+    store.worldMatrix(slot, _worldMatrix);
+    _cacheStamp++;
+    _worldMatrixDirty = false;
+    _dirty = false;
   }
 
   /**
@@ -2557,6 +2793,12 @@ public class Node extends Frame implements Grabber {
    * a back buffer.
    * <p>
    * Default implementation of this policy will behave like {@link Precision#FIXED}.
+   * <p>
+   * When {@link #precision()} is {@link Precision#RAY}, picking is done on the CPU by
+   * casting the pointer ray (see {@link Graph#convertClickToLine(Point, Vector, Vector)})
+   * against the node bounds (see {@link #setBoundingBall(Vector, float)}) and the node is
+   * picked if it is the nearest one hit, see {@link Graph#pick(float, float)}. Override
+   * {@link #rayHit(Vector, Vector)} to refine the test (e.g., against a triangle mesh).
    *
    * @see #precision()
    * @see #setPrecisionThreshold(float)
@@ -2564,6 +2806,8 @@ public class Node extends Frame implements Grabber {
   public void setPrecision(Precision precision) {
     if (precision == Precision.EXACT)
       System.out.println("Warning: EXACT picking precision will behave like FIXED. EXACT precision is meant to be implemented for derived nodes and scenes that support a backBuffer.");
+    if (precision == Precision.RAY && !hasBounds())
+      System.out.println("Warning: RAY picking precision requires node bounds. Set them with setBoundingBall() or setBoundingBox().");
     _Precision = precision;
   }
 
@@ -0,0 +1,562 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.core;
+
+import frames.primitives.Vector;
+import frames.timing.TimingHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounding volume hierarchy (BVH) of {@link Graph} nodes, answering frustum, ball, box
+ * and ray queries in sub-linear time.
+ * <p>
+ * Each registered node is bounded by the axis aligned box enclosing its world bounding
+ * ball (see {@link Node#setBoundingBall(Vector, float)}), or by its world
+ * {@link Node#position()} if it has no bounds. The hierarchy is built top-down by
+ * splitting the node boxes along their longest axis. Call {@link #refit()} once per
+ * frame: only the boxes of the nodes modified since the previous refit (according to
+ * {@link Node#lastUpdate()}) and those of their hierarchy ancestors are recomputed. The
+ * index is rebuilt instead when it has been {@link #invalidate()}d.
+ * <p>
+ * Typical usage:
+ * <p>
+ * {@code SpatialIndex index = new SpatialIndex(graph);}<br>
+ * {@code // each frame:}<br>
+ * {@code index.refit();}<br>
+ * {@code List<Node> neighbours = index.ballQuery(boid.position(), radius);}<br>
+ *
+ * @see Graph#nodes()
+ */
+public class SpatialIndex {
+  protected Graph _graph;
+  // max number of nodes held by a hierarchy leaf
+  protected int _leafSize = 4;
+  // registered nodes, their boxes (min xyz, max xyz) and the hierarchy leaf holding them
+  protected Node[] _nodes;
+  protected float[] _nodeBox;
+  protected int[] _nodeLeaf;
+  protected long _lastRefit;
+  protected boolean _valid;
+  // hierarchy: boxes, children (-1 on leaves), parents and leaf node ranges
+  protected float[] _box;
+  protected int[] _left, _right, _parent, _first, _count;
+  protected boolean[] _refit;
+  protected int _size;
+  // query scratch
+  protected int[] _stack;
+  protected Vector _vector;
+
+  /**
+   * Builds the index with all the nodes reachable by the {@code graph}
+   * {@link Graph#traverse()} algorithm.
+   *
+   * @see #build()
+   */
+  public SpatialIndex(Graph graph) {
+    _graph = graph;
+    _vector = new Vector();
+    build();
+  }
+
+  /**
+   * Returns the graph this index belongs to.
+   */
+  public Graph graph() {
+    return _graph;
+  }
+
+  /**
+   * Returns the maximum number of nodes held by a hierarchy leaf. Default is 4.
+   *
+   * @see #setLeafSize(int)
+   */
+  public int leafSize() {
+    return _leafSize;
+  }
+
+  /**
+   * Sets the {@link #leafSize()}. Larger leaves give shallower hierarchies which are
+   * cheaper to refit but test more nodes per query. The index is rebuilt on the next
+   * {@link #refit()}.
+   */
+  public void setLeafSize(int size) {
+    _leafSize = Math.max(1, size);
+    invalidate();
+  }
+
+  /**
+   * Returns the number of indexed nodes.
+   */
+  public int size() {
+    return _nodes.length;
+  }
+
+  /**
+   * (Re)builds the index with all the nodes currently reachable by the graph
+   * {@link Graph#traverse()} algorithm.
+   */
+  public void build() {
+    List<Node> nodes = _graph.nodes();
+    int n = nodes.size();
+    _nodes = nodes.toArray(new Node[n]);
+    _nodeBox = new float[6 * n];
+    _nodeLeaf = new int[n];
+    for (int i = 0; i < n; i++)
+      _bound(i);
+    int capacity = Math.max(1, 2 * n);
+    _box = new float[6 * capacity];
+    _left = new int[capacity];
+    _right = new int[capacity];
+    _parent = new int[capacity];
+    _first = new int[capacity];
+    _count = new int[capacity];
+    _refit = new boolean[capacity];
+    _size = 0;
+    _build(-1, 0, n);
+    _stack = new int[Math.max(16, _size)];
+    _lastRefit = TimingHandler.frameCount;
+    _valid = true;
+  }
+
+  /**
+   * Returns {@code true} if the index holds the nodes currently reachable by the graph
+   * and {@code false} otherwise.
+   *
+   * @see #invalidate()
+   */
+  public boolean isValid() {
+    return _valid;
+  }
+
+  /**
+   * Marks the index as stale. Automatically called on the {@link Graph#spatialIndex()}
+   * whenever the graph node hierarchy changes. The index is rebuilt on the next
+   * {@link #refit()}.
+   */
+  public void invalidate() {
+    _valid = false;
+  }
+
+  /**
+   * Recomputes the boxes of the nodes modified since the last refit, as well as those of
+   * their hierarchy ancestors. The hierarchy topology is kept, so after large motions a
+   * {@link #build()} may yield faster queries. Rebuilds the index if it isn't
+   * {@link #isValid()}.
+   */
+  public void refit() {
+    if (!_valid) {
+      build();
+      return;
+    }
+    boolean modified = false;
+    for (int i = 0; i < _nodes.length; i++)
+      if (_nodes[i].lastUpdate() >= _lastRefit) {
+        _bound(i);
+        _refit[_nodeLeaf[i]] = true;
+        modified = true;
+      }
+    _lastRefit = TimingHandler.frameCount;
+    if (!modified)
+      return;
+    // children are always stored after their parents
+    for (int i = _size - 1; i >= 0; i--)
+      if (_refit[i]) {
+        _fit(i);
+        _refit[i] = false;
+        if (_parent[i] >= 0)
+          _refit[_parent[i]] = true;
+      }
+  }
+
+  /**
+   * Same as {@code return ballQuery(center, radius, null)}.
+   */
+  public List<Node> ballQuery(Vector center, float radius) {
+    return ballQuery(center, radius, null);
+  }
+
+  /**
+   * Adds to {@code target} the nodes whose bounds intersect the ball of the given
+   * {@code radius} centered at {@code center}. If {@code target} is null a new list is
+   * returned.
+   */
+  public List<Node> ballQuery(Vector center, float radius, List<Node> target) {
+    if (target == null)
+      target = new ArrayList<Node>();
+    float x = center.x(), y = center.y(), z = center.z(), r2 = radius * radius;
+    int top = _push(0, 0);
+    while (top > 0) {
+      int i = _stack[--top];
+      if (_distanceSquared(_box, 6 * i, x, y, z) > r2)
+        continue;
+      if (_left[i] < 0) {
+        for (int k = _first[i]; k < _first[i] + _count[i]; k++)
+          if (_distanceSquared(_nodeBox, 6 * k, x, y, z) <= r2)
+            target.add(_nodes[k]);
+      } else {
+        top = _push(top, _left[i]);
+        top = _push(top, _right[i]);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Same as {@code return boxQuery(corner1, corner2, null)}.
+   */
+  public List<Node> boxQuery(Vector corner1, Vector corner2) {
+    return boxQuery(corner1, corner2, null);
+  }
+
+  /**
+   * Adds to {@code target} the nodes whose bounds intersect the axis aligned box defined
+   * by {@code corner1} and {@code corner2}. If {@code target} is null a new list is
+   * returned.
+   */
+  public List<Node> boxQuery(Vector corner1, Vector corner2, List<Node> target) {
+    if (target == null)
+      target = new ArrayList<Node>();
+    float[] box = {
+        Math.min(corner1.x(), corner2.x()), Math.min(corner1.y(), corner2.y()), Math.min(corner1.z(), corner2.z()),
+        Math.max(corner1.x(), corner2.x()), Math.max(corner1.y(), corner2.y()), Math.max(corner1.z(), corner2.z())};
+    int top = _push(0, 0);
+    while (top > 0) {
+      int i = _stack[--top];
+      if (!_overlap(_box, 6 * i, box))
+        continue;
+      if (_left[i] < 0) {
+        for (int k = _first[i]; k < _first[i] + _count[i]; k++)
+          if (_overlap(_nodeBox, 6 * k, box))
+            target.add(_nodes[k]);
+      } else {
+        top = _push(top, _left[i]);
+        top = _push(top, _right[i]);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Same as {@code return frustumQuery(null)}.
+   */
+  public List<Node> frustumQuery() {
+    return frustumQuery(null);
+  }
+
+  /**
+   * Adds to {@code target} the nodes whose bounds are (at least partially) within the eye
+   * boundary. If {@code target} is null a new list is returned.
+   * <p>
+   * <b>Attention:</b> The eye boundary plane equations should be updated before calling
+   * this method (see {@link Graph#enableBoundaryEquations()}).
+   */
+  public List<Node> frustumQuery(List<Node> target) {
+    if (target == null)
+      target = new ArrayList<Node>();
+    int top = _push(0, 0);
+    while (top > 0) {
+      int i = _stack[--top];
+      Graph.Visibility visibility = _visibility(_box, 6 * i);
+      if (visibility == Graph.Visibility.INVISIBLE)
+        continue;
+      if (visibility == Graph.Visibility.VISIBLE)
+        _collect(i, target);
+      else if (_left[i] < 0) {
+        for (int k = _first[i]; k < _first[i] + _count[i]; k++)
+          if (_visibility(_nodeBox, 6 * k) != Graph.Visibility.INVISIBLE)
+            target.add(_nodes[k]);
+      } else {
+        top = _push(top, _left[i]);
+        top = _push(top, _right[i]);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Same as {@code return rayQuery(origin, direction, null)}.
+   */
+  public List<Node> rayQuery(Vector origin, Vector direction) {
+    return rayQuery(origin, direction, null);
+  }
+
+  /**
+   * Adds to {@code target} the nodes whose bounds are hit by the half-line starting at
+   * {@code origin} along {@code direction} (see {@link Graph#convertClickToLine}). If
+   * {@code target} is null a new list is returned.
+   */
+  public List<Node> rayQuery(Vector origin, Vector direction, List<Node> target) {
+    if (target == null)
+      target = new ArrayList<Node>();
+    int top = _push(0, 0);
+    while (top > 0) {
+      int i = _stack[--top];
+      if (_hit(_box, 6 * i, origin, direction) < 0)
+        continue;
+      if (_left[i] < 0) {
+        for (int k = _first[i]; k < _first[i] + _count[i]; k++)
+          if (_hit(_nodeBox, 6 * k, origin, direction) >= 0)
+            target.add(_nodes[k]);
+      } else {
+        top = _push(top, _left[i]);
+        top = _push(top, _right[i]);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Returns the node nearest to {@code origin} hit by the half-line starting at
+   * {@code origin} along the (normalized) {@code direction}, or {@code null} if none is
+   * hit. Hits are computed with {@link Node#rayHit(Vector, Vector)}. Hierarchy boxes are
+   * visited front to back and those lying beyond the nearest hit found so far are pruned.
+   *
+   * @see #rayCast(Vector, Vector, Node.Precision)
+   */
+  public Node rayCast(Vector origin, Vector direction) {
+    return rayCast(origin, direction, null);
+  }
+
+  /**
+   * Same as {@link #rayCast(Vector, Vector)}, but only the nodes having the given picking
+   * {@code precision} (see {@link Node#precision()}) are hit. All nodes are hit if
+   * {@code precision} is {@code null}.
+   *
+   * @see Graph#pick(float, float)
+   */
+  public Node rayCast(Vector origin, Vector direction, Node.Precision precision) {
+    Node nearest = null;
+    float distance = Float.POSITIVE_INFINITY;
+    int top = _push(0, 0);
+    while (top > 0) {
+      int i = _stack[--top];
+      float t = _hit(_box, 6 * i, origin, direction);
+      if (t < 0 || t >= distance)
+        continue;
+      if (_left[i] < 0) {
+        for (int k = _first[i]; k < _first[i] + _count[i]; k++) {
+          if (_nodes[k] == _graph.eye() || (precision != null && _nodes[k].precision() != precision) || _hit(_nodeBox, 6 * k, origin, direction) < 0)
+            continue;
+          t = _nodes[k].rayHit(origin, direction);
+          if (t >= 0 && t < distance) {
+            distance = t;
+            nearest = _nodes[k];
+          }
+        }
+      } else {
+        // push the farthest child first, so that the nearest one is visited first
+        float left = _hit(_box, 6 * _left[i], origin, direction);
+        float right = _hit(_box, 6 * _right[i], origin, direction);
+        boolean leftFirst = right < 0 || (left >= 0 && left <= right);
+        top = _push(top, leftFirst ? _right[i] : _left[i]);
+        top = _push(top, leftFirst ? _left[i] : _right[i]);
+      }
+    }
+    return nearest;
+  }
+
+  // internal
+
+  /**
+   * Computes the world box of the {@code index}-th registered node.
+   */
+  protected void _bound(int index) {
+    Node node = _nodes[index];
+    float radius = 0;
+    if (node.hasBounds()) {
+      node.inverseCoordinatesOf(node._boundingCenter, _vector);
+      radius = node._boundingRadius * node.magnitude();
+    } else
+      node.position(_vector);
+    int b = 6 * index;
+    _nodeBox[b] = _vector.x() - radius;
+    _nodeBox[b + 1] = _vector.y() - radius;
+    _nodeBox[b + 2] = _vector.z() - radius;
+    _nodeBox[b + 3] = _vector.x() + radius;
+    _nodeBox[b + 4] = _vector.y() + radius;
+    _nodeBox[b + 5] = _vector.z() + radius;
+  }
+
+  /**
+   * Builds the hierarchy node holding the registered nodes in [first, last) and returns
+   * its index.
+   */
+  protected int _build(int parent, int first, int last) {
+    int i = _size++;
+    _parent[i] = parent;
+    _first[i] = first;
+    _count[i] = last - first;
+    _left[i] = _right[i] = -1;
+    _fit(i);
+    if (last - first <= _leafSize) {
+      for (int k = first; k < last; k++)
+        _nodeLeaf[k] = i;
+      return i;
+    }
+    // split along the longest axis at the median node box center
+    int b = 6 * i;
+    int axis = 0;
+    for (int a = 1; a < 3; a++)
+      if (_box[b + 3 + a] - _box[b + a] > _box[b + 3 + axis] - _box[b + axis])
+        axis = a;
+    int middle = (first + last) / 2;
+    _select(first, last - 1, middle, axis);
+    _left[i] = _build(i, first, middle);
+    _right[i] = _build(i, middle, last);
+    return i;
+  }
+
+  /**
+   * Partially sorts the registered nodes in [first, last] along {@code axis}, so that the
+   * {@code k}-th one is the median (quickselect).
+   */
+  protected void _select(int first, int last, int k, int axis) {
+    while (last > first) {
+      float pivot = _center(k, axis);
+      int i = first, j = last;
+      while (i <= j) {
+        while (_center(i, axis) < pivot)
+          i++;
+        while (_center(j, axis) > pivot)
+          j--;
+        if (i <= j)
+          _swap(i++, j--);
+      }
+      if (k <= j)
+        last = j;
+      else if (k >= i)
+        first = i;
+      else
+        return;
+    }
+  }
+
+  protected float _center(int index, int axis) {
+    return _nodeBox[6 * index + axis] + _nodeBox[6 * index + 3 + axis];
+  }
+
+  protected void _swap(int i, int j) {
+    Node node = _nodes[i];
+    _nodes[i] = _nodes[j];
+    _nodes[j] = node;
+    for (int a = 0; a < 6; a++) {
+      float value = _nodeBox[6 * i + a];
+      _nodeBox[6 * i + a] = _nodeBox[6 * j + a];
+      _nodeBox[6 * j + a] = value;
+    }
+  }
+
+  /**
+   * Fits the box of hierarchy node {@code i} to its children (or registered nodes).
+   */
+  protected void _fit(int i) {
+    int b = 6 * i;
+    _box[b] = _box[b + 1] = _box[b + 2] = Float.POSITIVE_INFINITY;
+    _box[b + 3] = _box[b + 4] = _box[b + 5] = Float.NEGATIVE_INFINITY;
+    if (_left[i] < 0)
+      for (int k = _first[i]; k < _first[i] + _count[i]; k++)
+        _merge(b, _nodeBox, 6 * k);
+    else {
+      _merge(b, _box, 6 * _left[i]);
+      _merge(b, _box, 6 * _right[i]);
+    }
+  }
+
+  protected void _merge(int b, float[] boxes, int o) {
+    for (int a = 0; a < 3; a++) {
+      _box[b + a] = Math.min(_box[b + a], boxes[o + a]);
+      _box[b + 3 + a] = Math.max(_box[b + 3 + a], boxes[o + 3 + a]);
+    }
+  }
+
+  protected void _collect(int i, List<Node> target) {
+    for (int k = _first[i]; k < _first[i] + _count[i]; k++)
+      target.add(_nodes[k]);
+  }
+
+  protected int _push(int top, int i) {
+    if (_size == 0)
+      return top;
+    if (top == _stack.length) {
+      int[] stack = new int[2 * _stack.length];
+      System.arraycopy(_stack, 0, stack, 0, top);
+      _stack = stack;
+    }
+    _stack[top] = i;
+    return top + 1;
+  }
+
+  protected static float _distanceSquared(float[] boxes, int o, float x, float y, float z) {
+    float dx = Math.max(Math.max(boxes[o] - x, 0), x - boxes[o + 3]);
+    float dy = Math.max(Math.max(boxes[o + 1] - y, 0), y - boxes[o + 4]);
+    float dz = Math.max(Math.max(boxes[o + 2] - z, 0), z - boxes[o + 5]);
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  protected static boolean _overlap(float[] boxes, int o, float[] box) {
+    return boxes[o] <= box[3] && boxes[o + 3] >= box[0]
+        && boxes[o + 1] <= box[4] && boxes[o + 4] >= box[1]
+        && boxes[o + 2] <= box[5] && boxes[o + 5] >= box[2];
+  }
+
+  /**
+   * Returns the distance along the ray to the box entry point (0 if {@code origin} lies
+   * inside the box), or -1 if the ray misses the box.
+   */
+  protected static float _hit(float[] boxes, int o, Vector origin, Vector direction) {
+    float near = 0, far = Float.POSITIVE_INFINITY;
+    for (int a = 0; a < 3; a++) {
+      float p = a == 0 ? origin.x() : a == 1 ? origin.y() : origin.z();
+      float d = a == 0 ? direction.x() : a == 1 ? direction.y() : direction.z();
+      if (d == 0) {
+        if (p < boxes[o + a] || p > boxes[o + 3 + a])
+          return -1;
+        continue;
+      }
+      float t1 = (boxes[o + a] - p) / d;
+      float t2 = (boxes[o + 3 + a] - p) / d;
+      if (t1 > t2) {
+        float t = t1;
+        t1 = t2;
+        t2 = t;
+      }
+      near = Math.max(near, t1);
+      far = Math.min(far, t2);
+      if (near > far)
+        return -1;
+    }
+    return near;
+  }
+
+  /**
+   * Box version of {@link Graph#boxVisibility(Vector, Vector)} which only tests the box
+   * corners nearest to and farthest from each boundary plane.
+   */
+  protected Graph.Visibility _visibility(float[] boxes, int o) {
+    float[][] equations = _graph.boundaryEquations();
+    boolean allIn = true;
+    for (int i = 0; i < (_graph.is3D() ? 6 : 4); ++i) {
+      float a = equations[i][0], b = equations[i][1], c = _graph.is3D() ? equations[i][2] : 0;
+      // corner with the lowest (nearest) signed distance to the plane
+      _vector.set(a > 0 ? boxes[o] : boxes[o + 3], b > 0 ? boxes[o + 1] : boxes[o + 4], c > 0 ? boxes[o + 2] : boxes[o + 5]);
+      if (_graph.distanceToBoundary(i, _vector) > 0)
+        return Graph.Visibility.INVISIBLE;
+      if (allIn) {
+        _vector.set(a > 0 ? boxes[o + 3] : boxes[o], b > 0 ? boxes[o + 4] : boxes[o + 1], c > 0 ? boxes[o + 5] : boxes[o + 2]);
+        if (_graph.distanceToBoundary(i, _vector) > 0)
+          allIn = false;
+      }
+    }
+    return allIn ? Graph.Visibility.VISIBLE : Graph.Visibility.SEMIVISIBLE;
+  }
+}
@@ -0,0 +1,231 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.core;
+
+import frames.input.Agent;
+import frames.input.Event;
+import frames.input.Grabber;
+import frames.input.GrabberIndex;
+import frames.input.event.MotionEvent2;
+import frames.input.event.MotionEvent3;
+import frames.input.event.MotionEvent6;
+import frames.input.event.TapEvent;
+import frames.primitives.Vector;
+import frames.timing.TimingHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A screen-space bucket grid of the {@link Node.Precision#FIXED} and
+ * {@link Node.Precision#ADAPTIVE} nodes of each agent {@link Agent#grabbers()}, used as
+ * the {@link frames.input.InputHandler#grabberIndex()} so that {@link Agent#poll(Event)}
+ * only queries the nodes whose picking area (see {@link Node#precisionThreshold()}) lies
+ * near the pointer, instead of projecting all of them.
+ * <p>
+ * The grid of an agent is (re)built at most once per frame, on its first poll. Grabbers
+ * which can't be bucketed (i.e., non-node grabbers and nodes having other picking
+ * precisions) are always queried. Candidates are returned in the agent grabbers order,
+ * so that the tracked grabber is the same one a full poll would find.
+ * <p>
+ * Node classes overriding the {@code track} methods should fall back to the
+ * {@link Node} ones for the {@link Node.Precision#FIXED} and
+ * {@link Node.Precision#ADAPTIVE} precisions (as {@link frames.processing.Shape} does),
+ * otherwise they may be missed by the grid.
+ *
+ * @see Graph#enableTrackingGrid()
+ */
+public class TrackingGrid implements GrabberIndex {
+  protected Graph _graph;
+  protected int _cellSize = 32;
+  protected Map<Agent, Cells> _agents;
+  protected List<Grabber> _candidates;
+  protected Vector _vector;
+  protected float _x, _y;
+
+  /**
+   * Per agent grid. Cell entries and the always queried entries are indices into
+   * {@code _grabbers}, in ascending order.
+   */
+  protected static class Cells {
+    protected long _frame = -1;
+    protected Grabber[] _grabbers = new Grabber[0];
+    protected int _size;
+    protected int[] _always = new int[0];
+    protected int _alwaysCount;
+    protected int[][] _cells = new int[0][];
+    protected int[] _cellCounts = new int[0];
+    protected int _columns, _rows;
+  }
+
+  public TrackingGrid(Graph graph) {
+    _graph = graph;
+    _agents = new HashMap<Agent, Cells>();
+    _candidates = new ArrayList<Grabber>();
+    _vector = new Vector();
+  }
+
+  /**
+   * Returns the graph this grid belongs to.
+   */
+  public Graph graph() {
+    return _graph;
+  }
+
+  /**
+   * Returns the grid cell side length in pixels.
+   *
+   * @see #setCellSize(int)
+   */
+  public int cellSize() {
+    return _cellSize;
+  }
+
+  /**
+   * Sets the grid cell side length in pixels. Default is 32, which roughly matches the
+   * default node {@link Node#precisionThreshold()}.
+   */
+  public void setCellSize(int size) {
+    _cellSize = Math.max(1, size);
+    _agents.clear();
+  }
+
+  @Override
+  public List<Grabber> candidates(Agent agent, Event event) {
+    if (!_pointer(event))
+      return null;
+    Cells cells = _agents.get(agent);
+    if (cells == null) {
+      cells = new Cells();
+      _agents.put(agent, cells);
+    }
+    if (cells._frame != TimingHandler.frameCount)
+      _build(agent, cells);
+    int column = Math.min(cells._columns - 1, Math.max(0, (int) Math.floor(_x / _cellSize)));
+    int row = Math.min(cells._rows - 1, Math.max(0, (int) Math.floor(_y / _cellSize)));
+    int cell = row * cells._columns + column;
+    // merge the always queried and the cell entries, keeping the grabbers order
+    _candidates.clear();
+    int[] entries = cells._cells[cell];
+    int i = 0, j = 0, count = cells._cellCounts[cell];
+    while (i < cells._alwaysCount || j < count) {
+      if (j == count || (i < cells._alwaysCount && cells._always[i] < entries[j]))
+        _candidates.add(cells._grabbers[cells._always[i++]]);
+      else
+        _candidates.add(cells._grabbers[entries[j++]]);
+    }
+    return _candidates;
+  }
+
+  @Override
+  public void invalidate(Agent agent) {
+    Cells cells = _agents.get(agent);
+    if (cells != null)
+      cells._frame = -1;
+  }
+
+  /**
+   * Sets the pointer position from the given {@code event}. Returns {@code false} if the
+   * event isn't a pointer one, in which case all the grabbers should be queried.
+   */
+  protected boolean _pointer(Event event) {
+    if (event instanceof MotionEvent6)
+      event = ((MotionEvent6) event).event3();
+    if (event instanceof MotionEvent3)
+      event = ((MotionEvent3) event).event2();
+    if (event instanceof MotionEvent2) {
+      if (((MotionEvent2) event).isAbsolute())
+        return false;
+      _x = ((MotionEvent2) event).x();
+      _y = ((MotionEvent2) event).y();
+      return true;
+    }
+    if (event instanceof TapEvent) {
+      _x = ((TapEvent) event).x();
+      _y = ((TapEvent) event).y();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Buckets the {@code agent} grabbers according to their current screen projection.
+   */
+  protected void _build(Agent agent, Cells cells) {
+    List<Grabber> grabbers = agent.grabbers();
+    int n = grabbers.size();
+    if (cells._grabbers.length < n) {
+      cells._grabbers = new Grabber[n];
+      cells._always = new int[n];
+    }
+    cells._size = n;
+    cells._alwaysCount = 0;
+    cells._columns = Math.max(1, (_graph.width() + _cellSize - 1) / _cellSize);
+    cells._rows = Math.max(1, (_graph.height() + _cellSize - 1) / _cellSize);
+    int size = cells._columns * cells._rows;
+    if (cells._cells.length != size) {
+      cells._cells = new int[size][4];
+      cells._cellCounts = new int[size];
+    } else
+      java.util.Arrays.fill(cells._cellCounts, 0);
+    for (int i = 0; i < n; i++) {
+      Grabber grabber = grabbers.get(i);
+      cells._grabbers[i] = grabber;
+      if (!(grabber instanceof Node) || !_isIndexable((Node) grabber)) {
+        cells._always[cells._alwaysCount++] = i;
+        continue;
+      }
+      Node node = (Node) grabber;
+      _graph.projectedCoordinatesOf(node.position(_vector), null, _vector);
+      float half = node.precisionThreshold() / 2;
+      float x = _vector.x(), y = _vector.y();
+      if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(half)) {
+        cells._always[cells._alwaysCount++] = i;
+        continue;
+      }
+      int column1 = _clamp((int) Math.floor((x - half) / _cellSize), cells._columns);
+      int column2 = _clamp((int) Math.floor((x + half) / _cellSize), cells._columns);
+      int row1 = _clamp((int) Math.floor((y - half) / _cellSize), cells._rows);
+      int row2 = _clamp((int) Math.floor((y + half) / _cellSize), cells._rows);
+      for (int row = row1; row <= row2; row++)
+        for (int column = column1; column <= column2; column++)
+          _add(cells, row * cells._columns + column, i);
+    }
+    cells._frame = TimingHandler.frameCount;
+  }
+
+  protected int _clamp(int index, int size) {
+    return Math.min(size - 1, Math.max(0, index));
+  }
+
+  protected void _add(Cells cells, int cell, int entry) {
+    int[] entries = cells._cells[cell];
+    int count = cells._cellCounts[cell];
+    if (count == entries.length) {
+      entries = new int[2 * count];
+      System.arraycopy(cells._cells[cell], 0, entries, 0, count);
+      cells._cells[cell] = entries;
+    }
+    entries[count] = entry;
+    cells._cellCounts[cell] = count + 1;
+  }
+
+  /**
+   * Returns {@code true} if the {@code node} picking area is the squared one defined by
+   * its {@link Node#precisionThreshold()}, i.e., if its precision is
+   * {@link Node.Precision#FIXED} or {@link Node.Precision#ADAPTIVE}.
+   */
+  protected boolean _isIndexable(Node node) {
+    return node.precision() == Node.Precision.FIXED || node.precision() == Node.Precision.ADAPTIVE;
+  }
+}
@@ -0,0 +1,297 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.core;
+
+import frames.primitives.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Packed (structure-of-arrays) storage of the {@link Graph} node hierarchy transforms.
+ * <p>
+ * Each node reachable by the {@link Graph#traverse()} algorithm gets a slot in a set of
+ * contiguous float arrays holding its local translation, rotation and scaling, together
+ * with the index of its {@link Node#reference()} slot. Slots are laid out in topological
+ * (pre-order) order, so that {@link #update()} computes all the node world transforms
+ * (position, orientation, magnitude and world matrix) in a single linear pass over the
+ * arrays, instead of chasing the node pointers.
+ * <p>
+ * Nodes keep their API: node state changes are written through to their slots and node
+ * world queries (e.g., {@link Node#position()} or {@link Node#worldMatrix()}) read them
+ * back from the store when their slot is up to date. Structural changes (e.g.,
+ * {@link Node#setReference(Node)} or {@link Graph#pruneBranch(Node)}) just invalidate the
+ * store, which is then rebuilt on the next {@link #update()}.
+ * <p>
+ * The store is disabled by default. See {@link Graph#enableTransformStore()}.
+ *
+ * @see Graph#transformStore()
+ * @see Graph#preDraw()
+ */
+public class TransformStore {
+  protected Graph _graph;
+  protected Node[] _nodes;
+  protected int[] _parent;
+  protected float[] _translation, _rotation, _scaling;
+  protected float[] _position, _orientation, _magnitude, _matrix;
+  protected boolean[] _dirty;
+  protected int _size;
+  protected boolean _valid;
+
+  /**
+   * Instantiates an (empty) transform store for the given {@code graph}. The store gets
+   * populated on the first call to {@link #update()}.
+   */
+  public TransformStore(Graph graph) {
+    _graph = graph;
+    _allocate(0);
+  }
+
+  /**
+   * Returns the graph this store belongs to.
+   */
+  public Graph graph() {
+    return _graph;
+  }
+
+  /**
+   * Returns the number of slots, i.e., the number of nodes reachable by the
+   * {@link Graph#traverse()} algorithm when the store was last built.
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Returns the node held at the given {@code slot}.
+   */
+  public Node node(int slot) {
+    return _nodes[slot];
+  }
+
+  /**
+   * Returns the slot of the given {@code node} or -1 if the node doesn't belong to the
+   * store (or the store is currently invalid).
+   */
+  public int slot(Node node) {
+    if (!_valid || node._slot < 0 || node._slot >= _size || _nodes[node._slot] != node)
+      return -1;
+    return node._slot;
+  }
+
+  /**
+   * Returns {@code true} if the store layout matches the graph node hierarchy and
+   * {@code false} otherwise.
+   *
+   * @see #invalidate()
+   */
+  public boolean isValid() {
+    return _valid;
+  }
+
+  /**
+   * Marks the store layout as stale. Automatically called by the graph whenever the node
+   * hierarchy changes. The store is rebuilt on the next {@link #update()}.
+   */
+  public void invalidate() {
+    _valid = false;
+  }
+
+  /**
+   * Returns the packed node world matrices, 16 consecutive (column-major) values per slot.
+   * Only meaningful after {@link #update()}.
+   *
+   * @see #worldMatrix(int, Matrix)
+   */
+  public float[] worldMatrices() {
+    return _matrix;
+  }
+
+  /**
+   * Sets {@code target} to the world matrix of the node held at {@code slot}. If
+   * {@code target} is null a new matrix is returned.
+   */
+  public Matrix worldMatrix(int slot, Matrix target) {
+    int m = 16 * slot;
+    if (target == null)
+      target = new Matrix();
+    target.set(_matrix[m], _matrix[m + 1], _matrix[m + 2], _matrix[m + 3], _matrix[m + 4], _matrix[m + 5],
+        _matrix[m + 6], _matrix[m + 7], _matrix[m + 8], _matrix[m + 9], _matrix[m + 10], _matrix[m + 11],
+        _matrix[m + 12], _matrix[m + 13], _matrix[m + 14], _matrix[m + 15]);
+    return target;
+  }
+
+  /**
+   * Rebuilds the store (if {@link #invalidate()}d) and then recomputes the world transforms
+   * of all modified slots (and their descendants) in a single linear pass. Automatically
+   * called by {@link Graph#preDraw()} when the store is enabled.
+   */
+  public void update() {
+    if (!_valid)
+      _build();
+    for (int i = 0; i < _size; i++) {
+      int p = _parent[i];
+      if (!_dirty[i] && (p < 0 || !_dirty[p]))
+        continue;
+      _dirty[i] = true;
+      int t = 3 * i, r = 4 * i;
+      if (p < 0) {
+        _position[t] = _translation[t];
+        _position[t + 1] = _translation[t + 1];
+        _position[t + 2] = _translation[t + 2];
+        _orientation[r] = _rotation[r];
+        _orientation[r + 1] = _rotation[r + 1];
+        _orientation[r + 2] = _rotation[r + 2];
+        _orientation[r + 3] = _rotation[r + 3];
+        _magnitude[i] = _scaling[i];
+      } else {
+        int pt = 3 * p, pr = 4 * p;
+        float x = _orientation[pr], y = _orientation[pr + 1], z = _orientation[pr + 2], w = _orientation[pr + 3];
+        // position = parent.position + parent.orientation.rotate(parent.magnitude * translation)
+        float vx = _magnitude[p] * _translation[t];
+        float vy = _magnitude[p] * _translation[t + 1];
+        float vz = _magnitude[p] * _translation[t + 2];
+        float q00 = 2.0f * x * x, q11 = 2.0f * y * y, q22 = 2.0f * z * z;
+        float q01 = 2.0f * x * y, q02 = 2.0f * x * z, q03 = 2.0f * x * w;
+        float q12 = 2.0f * y * z, q13 = 2.0f * y * w, q23 = 2.0f * z * w;
+        _position[t] = _position[pt] + (1.0f - q11 - q22) * vx + (q01 - q23) * vy + (q02 + q13) * vz;
+        _position[t + 1] = _position[pt + 1] + (q01 + q23) * vx + (1.0f - q22 - q00) * vy + (q12 - q03) * vz;
+        _position[t + 2] = _position[pt + 2] + (q02 - q13) * vx + (q12 + q03) * vy + (1.0f - q11 - q00) * vz;
+        // orientation = parent.orientation * rotation
+        float bx = _rotation[r], by = _rotation[r + 1], bz = _rotation[r + 2], bw = _rotation[r + 3];
+        float ow = w * bw - x * bx - y * by - z * bz;
+        float ox = w * bx + bw * x + y * bz - z * by;
+        float oy = w * by + bw * y - x * bz + z * bx;
+        float oz = w * bz + bw * z + x * by - y * bx;
+        float norm = (float) Math.sqrt(ox * ox + oy * oy + oz * oz + ow * ow);
+        if (norm > 0) {
+          ox /= norm;
+          oy /= norm;
+          oz /= norm;
+          ow /= norm;
+        }
+        _orientation[r] = ox;
+        _orientation[r + 1] = oy;
+        _orientation[r + 2] = oz;
+        _orientation[r + 3] = ow;
+        _magnitude[i] = _magnitude[p] * _scaling[i];
+      }
+      _updateMatrix(i);
+    }
+    Arrays.fill(_dirty, 0, _size, false);
+  }
+
+  /**
+   * Computes the world matrix of the given {@code slot} from its world position,
+   * orientation and magnitude. Same as {@link Node#worldMatrix()}.
+   */
+  protected void _updateMatrix(int slot) {
+    int t = 3 * slot, r = 4 * slot, m = 16 * slot;
+    float x = _orientation[r], y = _orientation[r + 1], z = _orientation[r + 2], w = _orientation[r + 3];
+    float q00 = 2.0f * x * x, q11 = 2.0f * y * y, q22 = 2.0f * z * z;
+    float q01 = 2.0f * x * y, q02 = 2.0f * x * z, q03 = 2.0f * x * w;
+    float q12 = 2.0f * y * z, q13 = 2.0f * y * w, q23 = 2.0f * z * w;
+    float s = _magnitude[slot];
+    _matrix[m] = (1.0f - q11 - q22) * s;
+    _matrix[m + 1] = (q01 + q23) * s;
+    _matrix[m + 2] = (q02 - q13) * s;
+    _matrix[m + 3] = 0;
+    _matrix[m + 4] = (q01 - q23) * s;
+    _matrix[m + 5] = (1.0f - q22 - q00) * s;
+    _matrix[m + 6] = (q12 + q03) * s;
+    _matrix[m + 7] = 0;
+    _matrix[m + 8] = (q02 + q13) * s;
+    _matrix[m + 9] = (q12 - q03) * s;
+    _matrix[m + 10] = (1.0f - q11 - q00) * s;
+    _matrix[m + 11] = 0;
+    _matrix[m + 12] = _position[t];
+    _matrix[m + 13] = _position[t + 1];
+    _matrix[m + 14] = _position[t + 2];
+    _matrix[m + 15] = 1;
+  }
+
+  /**
+   * Internal use. Called by {@link Node#_modified()}: writes the node local transform into
+   * its slot and marks it for update.
+   */
+  protected void _modified(Node node) {
+    int slot = slot(node);
+    if (slot < 0)
+      return;
+    _write(node, slot);
+    _dirty[slot] = true;
+  }
+
+  /**
+   * Copies the node local translation, rotation and scaling into the given {@code slot}.
+   */
+  protected void _write(Node node, int slot) {
+    int t = 3 * slot, r = 4 * slot;
+    _translation[t] = node.translation().x();
+    _translation[t + 1] = node.translation().y();
+    _translation[t + 2] = node.translation().z();
+    _rotation[r] = node.rotation().x();
+    _rotation[r + 1] = node.rotation().y();
+    _rotation[r + 2] = node.rotation().z();
+    _rotation[r + 3] = node.rotation().w();
+    _scaling[slot] = node.scaling();
+  }
+
+  /**
+   * Lays out the slots of all the nodes reachable by the {@link Graph#traverse()}
+   * algorithm in pre-order, so that each node slot comes after its reference slot.
+   */
+  protected void _build() {
+    for (int i = 0; i < _size; i++) {
+      _nodes[i]._slot = -1;
+      _nodes[i] = null;
+    }
+    _size = 0;
+    int count = 0;
+    for (Node node : _graph.leadingNodes())
+      count += _count(node);
+    if (count > _nodes.length)
+      _allocate(count);
+    for (Node node : _graph.leadingNodes())
+      _add(node, -1);
+    Arrays.fill(_dirty, 0, _size, true);
+    _valid = true;
+  }
+
+  protected int _count(Node node) {
+    int count = 1;
+    for (Node child : node.children())
+      count += _count(child);
+    return count;
+  }
+
+  protected void _add(Node node, int parent) {
+    int slot = _size++;
+    _nodes[slot] = node;
+    _parent[slot] = parent;
+    node._slot = slot;
+    _write(node, slot);
+    for (Node child : node.children())
+      _add(child, slot);
+  }
+
+  protected void _allocate(int capacity) {
+    _nodes = new Node[capacity];
+    _parent = new int[capacity];
+    _translation = new float[3 * capacity];
+    _rotation = new float[4 * capacity];
+    _scaling = new float[capacity];
+    _position = new float[3 * capacity];
+    _orientation = new float[4 * capacity];
+    _magnitude = new float[capacity];
+    _matrix = new float[16 * capacity];
+    _dirty = new boolean[capacity];
+  }
+}
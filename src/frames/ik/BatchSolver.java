@@ -0,0 +1,287 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.ik;
+
+import frames.core.Node;
+import frames.primitives.Frame;
+import frames.primitives.Quaternion;
+import frames.primitives.Vector;
+import frames.primitives.constraint.Constraint;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Headless batch IK solving of motion clips (e.g., to retarget a motion capture library
+ * offline), i.e., without any renderer nor frame loop: instead of performing a few
+ * iterations per drawn frame, each clip frame is solved to convergence right away.
+ * <p>
+ * The frames of a clip are solved sequentially, warm-starting each one from the previous
+ * solved frame (the first one starts from the rig rest pose), so that the solved motion
+ * is continuous. Parallelism comes from solving several clips at once: the clips are
+ * solved by a pool of {@link #workers} threads. Since nodes aren't thread-safe, each
+ * worker instantiates its own {@link Rig} (see {@link RigFactory#create()}), e.g., by
+ * attaching a copy of the skeleton to a renderer-less {@code new Graph(width, height)},
+ * and reuses it for all the clips it solves. Results don't depend on how clips are
+ * scheduled. Solved poses are streamed to a {@link Listener} in clip and frame order,
+ * while at most two clips per worker are kept in memory.
+ */
+public class BatchSolver {
+  /**
+   * Skeleton to be solved by a single worker, together with the targets of its end
+   * effectors.
+   */
+  public interface Rig {
+    /**
+     * Returns the root of the skeleton (i.e., the {@link TreeSolver} head).
+     */
+    Node root();
+
+    /**
+     * Returns the skeleton end effectors.
+     */
+    List<Node> endEffectors();
+
+    /**
+     * Returns the end effector targets, in the {@link #endEffectors()} order.
+     */
+    List<? extends Frame> targets();
+
+    /**
+     * Moves the {@link #targets()} (and may move the {@link #root()}) to their pose at the
+     * given {@code frame} of the given {@code clip}.
+     */
+    void pose(int clip, int frame);
+  }
+
+  /**
+   * Instantiates the rig of each worker. Each call should return a rig made of its own
+   * nodes and targets.
+   */
+  public interface RigFactory {
+    Rig create();
+  }
+
+  /**
+   * Receives the solved poses, in clip and frame order.
+   */
+  public interface Listener {
+    /**
+     * Called (from the {@link #solve(Listener)} caller thread) once the given {@code frame}
+     * of the given {@code clip} has been solved. The {@code pose} holds the root
+     * translation (3 floats) followed by the rotation of each skeleton joint (4 floats per
+     * joint, in depth-first order, see {@link #joints(Node)}). The {@code error} is the
+     * solver residual.
+     */
+    void solved(int clip, int frame, float[] pose, float error);
+  }
+
+  public int maxIter = 200;
+  public float error = 0.01f;
+  public int workers = Runtime.getRuntime().availableProcessors();
+
+  protected RigFactory _factory;
+  protected int[] _frames;
+
+  /*Per worker thread rig and its rest pose*/
+  protected ThreadLocal<Worker> _worker;
+
+  protected static class Worker {
+    protected Rig _rig;
+    protected List<Node> _joints;
+    protected Vector _translation;
+    protected Quaternion[] _rest;
+  }
+
+  /*Solved poses of a clip*/
+  protected static class Result {
+    protected float[][] _poses;
+    protected float[] _errors;
+  }
+
+  /**
+   * Same as {@code this(factory, new int[]{frames})}, i.e., a single clip.
+   *
+   * @see #BatchSolver(RigFactory, int[])
+   */
+  public BatchSolver(RigFactory factory, int frames) {
+    this(factory, new int[]{frames});
+  }
+
+  /**
+   * Defines a batch solver for {@code frames.length} clips, the i-th one having
+   * {@code frames[i]} frames.
+   */
+  public BatchSolver(RigFactory factory, int[] frames) {
+    _factory = factory;
+    _frames = frames.clone();
+  }
+
+  /**
+   * Returns the number of clips.
+   */
+  public int clips() {
+    return _frames.length;
+  }
+
+  /**
+   * Returns the number of frames of the given {@code clip}.
+   */
+  public int frames(int clip) {
+    return _frames[clip];
+  }
+
+  /**
+   * Returns the joints of the tree rooted at {@code root} in depth-first order, i.e., the
+   * order of the rotations in the {@link Listener} poses.
+   */
+  public static List<Node> joints(Node root) {
+    ArrayList<Node> joints = new ArrayList<Node>();
+    ArrayList<Node> stack = new ArrayList<Node>();
+    stack.add(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      joints.add(node);
+      for (int i = node.children().size() - 1; i >= 0; i--)
+        stack.add(node.children().get(i));
+    }
+    return joints;
+  }
+
+  /**
+   * Solves all the clips, streaming the results to the {@code listener}. Blocks until all
+   * of them have been solved.
+   */
+  public void solve(Listener listener) {
+    _worker = new ThreadLocal<Worker>();
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "frames-batch-ik");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      ArrayDeque<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+      int next = 0;
+      while (next < _frames.length && pending.size() < 2 * Math.max(1, workers))
+        pending.add(pool.submit(_task(next++)));
+      for (int clip = 0; clip < _frames.length; clip++) {
+        Result result = pending.poll().get();
+        if (next < _frames.length)
+          pending.add(pool.submit(_task(next++)));
+        for (int frame = 0; frame < result._poses.length; frame++)
+          listener.solved(clip, frame, result._poses[frame], result._errors[frame]);
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Batch IK solving interrupted", exception);
+    } catch (ExecutionException exception) {
+      throw new RuntimeException("Batch IK solving failed", exception.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  protected Callable<Result> _task(final int clip) {
+    return new Callable<Result>() {
+      @Override
+      public Result call() {
+        return _solve(clip);
+      }
+    };
+  }
+
+  /**
+   * Returns the calling thread worker, instantiating its rig on first use.
+   */
+  protected Worker _worker() {
+    Worker worker = _worker.get();
+    if (worker == null) {
+      worker = new Worker();
+      worker._rig = _factory.create();
+      worker._joints = joints(worker._rig.root());
+      worker._translation = worker._rig.root().translation().get();
+      worker._rest = new Quaternion[worker._joints.size()];
+      for (int i = 0; i < worker._rest.length; i++)
+        worker._rest[i] = worker._joints.get(i).rotation().get();
+      _worker.set(worker);
+    }
+    return worker;
+  }
+
+  /**
+   * Returns the solver used for each clip. Default is a {@link TreeSolver} having the
+   * rig targets.
+   */
+  protected Solver _solver(Rig rig) {
+    TreeSolver solver = new TreeSolver(rig.root());
+    for (int i = 0; i < rig.endEffectors().size(); i++)
+      solver.addTarget(rig.endEffectors().get(i), rig.targets().get(i));
+    return solver;
+  }
+
+  /**
+   * Solves all the frames of the given {@code clip} on the calling thread worker rig.
+   */
+  protected Result _solve(int clip) {
+    Worker worker = _worker();
+    //Restore the rest pose, bypassing the joint constraints
+    worker._rig.root().setTranslation(worker._translation.get());
+    for (int i = 0; i < worker._rest.length; i++) {
+      Node joint = worker._joints.get(i);
+      Constraint constraint = joint.constraint();
+      joint.setConstraint(null);
+      joint.setRotation(worker._rest[i].get());
+      joint.setConstraint(constraint);
+    }
+    //A new solver grants the first frame a full iteration budget
+    Solver solver = _solver(worker._rig);
+    solver.maxIter = maxIter;
+    solver.error = error;
+    int frames = _frames[clip];
+    Result result = new Result();
+    result._poses = new float[frames][];
+    result._errors = new float[frames];
+    for (int frame = 0; frame < frames; frame++) {
+      worker._rig.pose(clip, frame);
+      while (!solver.iterate()) ;
+      result._poses[frame] = _pose(worker);
+      result._errors[frame] = solver.residual();
+    }
+    return result;
+  }
+
+  protected float[] _pose(Worker worker) {
+    float[] pose = new float[3 + 4 * worker._joints.size()];
+    Vector translation = worker._rig.root().translation();
+    pose[0] = translation.x();
+    pose[1] = translation.y();
+    pose[2] = translation.z();
+    for (int i = 0; i < worker._joints.size(); i++) {
+      Quaternion rotation = worker._joints.get(i).rotation();
+      pose[3 + 4 * i] = rotation.x();
+      pose[4 + 4 * i] = rotation.y();
+      pose[5 + 4 * i] = rotation.z();
+      pose[6 + 4 * i] = rotation.w();
+    }
+    return pose;
+  }
+}
@@ -22,6 +22,14 @@ public class CCDSolver extends Solver {
   protected Frame _target;
   protected Frame _previousTarget;
 
+  /*Scratch values reused across iterations*/
+  protected Vector _targetPosition = new Vector();
+  protected Vector _endPosition = new Vector();
+  protected Quaternion _initial = new Quaternion();
+  protected Quaternion _delta = new Quaternion();
+  protected Vector _previousPosition = new Vector();
+  protected Quaternion _previousOrientation = new Quaternion();
+
   public ArrayList<? extends Frame> chain() {
     return _chain;
   }
@@ -63,25 +71,25 @@ public class CCDSolver extends Solver {
     //As no target is specified there is no need to perform an iteration
     if (_target == null || _chain.size() < 2) return true;
     Frame end = _chain.get(_chain.size() - 1);
-    Vector target = this._target.position().get();
+    Vector target = this._target.position(_targetPosition);
     //Execute Until the distance between the end effector and the target is below a threshold
-    if (Vector.distance(end.position(), target) <= error) {
+    if (Vector.distance(end.position(_endPosition), target) <= error) {
       return true;
     }
+    totalIterations++;
     float change = 0.0f;
-    Vector endLocalPosition = _chain.get(_chain.size() - 2).coordinatesOf(end.position());
-    Vector targetLocalPosition = _chain.get(_chain.size() - 2).coordinatesOf(target);
+    Vector endLocalPosition = _chain.get(_chain.size() - 2).coordinatesOf(_endPosition, _endPosition);
+    Vector targetLocalPosition = _chain.get(_chain.size() - 2).coordinatesOf(target, target);
     for (int i = _chain.size() - 2; i >= 0; i--) {
-      Quaternion delta = null;
-      Quaternion initial = _chain.get(i).rotation().get();
-      delta = new Quaternion(endLocalPosition, targetLocalPosition);
+      _initial.set(_chain.get(i).rotation());
+      _delta.fromTo(endLocalPosition, targetLocalPosition);
       //update target local position
-      targetLocalPosition = _chain.get(i).localInverseCoordinatesOf(targetLocalPosition);
-      _chain.get(i).rotate(delta);
+      _chain.get(i).localInverseCoordinatesOf(targetLocalPosition, targetLocalPosition);
+      _chain.get(i).rotate(_delta);
       //update end effector local position
-      endLocalPosition = _chain.get(i).localInverseCoordinatesOf(endLocalPosition);
-      initial.compose(_chain.get(i).rotation().get());
-      change += Math.abs(initial.angle());
+      _chain.get(i).localInverseCoordinatesOf(endLocalPosition, endLocalPosition);
+      _initial.compose(_chain.get(i).rotation());
+      change += Math.abs(_initial.angle());
     }
     //Check total rotation change
     if (change <= minDistance) return true;
@@ -101,12 +109,43 @@ public class CCDSolver extends Solver {
     } else if (_previousTarget == null) {
       return true;
     }
-    return !(_previousTarget.position().matches(_target.position()) && _previousTarget.orientation().matches(_target.orientation()));
+    return !(_previousTarget.position(_previousPosition).matches(_target.position(_targetPosition))
+        && _previousTarget.orientation(_previousOrientation).matches(_target.orientation(_initial)));
+  }
+
+  /*Get maximum length of the chain*/
+  protected float _length() {
+    float length = 0;
+    for (int i = 1; i < _chain.size(); i++) {
+      length += _chain.get(i).translation().magnitude() / _chain.get(i).magnitude();
+    }
+    return length;
+  }
+
+  @Override
+  protected float _error() {
+    return _target == null || _chain.size() < 2 ? 0 : Vector.distance(endEffector().position(_endPosition), _target.position(_targetPosition));
+  }
+
+  @Override
+  protected float _displacement() {
+    if (_target == null || _previousTarget == null)
+      return -1;
+    float length = _length();
+    return length > 0 ? Vector.distance(_previousTarget.position(_previousPosition), _target.position(_targetPosition)) / length : -1;
   }
 
   @Override
   protected void _reset() {
-    _previousTarget = _target == null ? null : new Frame(_target.position().get(), _target.orientation().get());
+    //Reuse the previous target frame to keep resets allocation free
+    if (_target == null)
+      _previousTarget = null;
+    else {
+      if (_previousTarget == null)
+        _previousTarget = new Frame();
+      _previousTarget.setPosition(_target.position(_targetPosition));
+      _previousTarget.setOrientation(_target.orientation(_initial));
+    }
     iterations = 0;
   }
 }
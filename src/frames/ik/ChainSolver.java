@@ -12,8 +12,8 @@
 package frames.ik;
 
 import frames.primitives.Frame;
-import frames.primitives.Quaternion;
 import frames.primitives.Vector;
+import frames.primitives.constraint.Constraint;
 
 import java.util.ArrayList;
 
@@ -28,6 +28,10 @@ public class ChainSolver extends FABRIKSolver {
   protected Frame _target;
   protected Frame _prevTarget;
 
+  /*Scratch values reused across iterations*/
+  protected Vector _targetPosition = new Vector();
+  protected Vector _endPosition = new Vector();
+
   public ArrayList<? extends Frame> chain() {
     return _chain;
   }
@@ -50,6 +54,25 @@ public class ChainSolver extends FABRIKSolver {
     return copy;
   }
 
+  /*
+   * Same as _copy(chain) but updates the given (previously copied) target chain in place
+   * */
+  protected void _copy(ArrayList<? extends Frame> chain, ArrayList<Frame> target) {
+    Frame reference = chain.get(0).reference();
+    if (reference != null && target.get(0).reference() != null) {
+      target.get(0).reference().setPosition(reference.position(_diff));
+      target.get(0).reference().setOrientation(reference.orientation(_quaternion));
+    }
+    for (int i = 0; i < chain.size(); i++) {
+      Frame joint = target.get(i);
+      Constraint constraint = joint.constraint();
+      joint.setConstraint(null);
+      joint.setPosition(chain.get(i).position(_diff));
+      joint.setOrientation(chain.get(i).orientation(_quaternion));
+      joint.setConstraint(constraint);
+    }
+  }
+
   public Frame target() {
     return _target;
   }
@@ -74,23 +97,7 @@ public class ChainSolver extends FABRIKSolver {
     super();
     this._chain = chain;
     _bestSolution = _copy(chain);
-    _positions = new ArrayList<Vector>();
-    _distances = new ArrayList<Float>();
-    _orientations = new ArrayList<Quaternion>();
-    Vector prevPosition = chain.get(0).reference() != null
-        ? chain.get(0).reference().position().get() : new Vector(0, 0, 0);
-    Quaternion prevOrientation = chain.get(0).reference() != null
-        ? chain.get(0).reference().orientation().get() : new Quaternion();
-    for (Frame joint : chain) {
-      Vector position = joint.position().get();
-      Quaternion orientation = prevOrientation.get();
-      orientation.compose(joint.rotation().get());
-      _positions.add(position);
-      _distances.add(Vector.subtract(position, prevPosition).magnitude());
-      _orientations.add(orientation);
-      prevPosition = position;
-      prevOrientation = orientation.get();
-    }
+    _init(chain);
     this._target = target;
     this._prevTarget =
         target == null ? null : new Frame(target.position().get(), target.orientation().get());
@@ -108,13 +115,13 @@ public class ChainSolver extends FABRIKSolver {
   protected void _stretch(ArrayList<? extends Frame> chain, Vector target) {
     for (int i = 0; i < chain.size() - 1; i++) {
       //Get the distance between Joint i and the Target
-      Vector pos_i = _positions.get(i);
+      Vector pos_i = _position(i, _p);
       float r_i = Vector.distance(pos_i, target);
       float dist_i = chain.get(i + 1).translation().magnitude() / chain.get(i + 1).magnitude();
       float lambda_i = dist_i / r_i;
-      Vector new_pos = Vector.multiply(pos_i, 1.f - lambda_i);
-      new_pos.add(Vector.multiply(target, lambda_i));
-      _positions.set(i + 1, new_pos);
+      Vector new_pos = Vector.multiply(pos_i, 1.f - lambda_i, _q);
+      new_pos.add(Vector.multiply(target, lambda_i, _scaled));
+      _setPosition(i + 1, new_pos);
     }
   }
 
@@ -128,33 +135,34 @@ public class ChainSolver extends FABRIKSolver {
     if (_target == null) return true;
     Frame root = _chain.get(0);
     Frame end = _chain.get(_chain.size() - 1);
-    Vector target = this._target.position().get();
+    Vector target = this._target.position(_targetPosition);
 
     //Execute Until the distance between the end effector and the target is below a threshold
-    if (Vector.distance(end.position(), target) <= error) {
+    if (Vector.distance(end.position(_endPosition), target) <= error) {
       return true;
     }
+    totalIterations++;
 
     //Get the distance between the Root and the End Effector
     float length = _length();
     //Get the distance between the Root and the Target
-    float dist = Vector.distance(root.position(), target);
+    float dist = Vector.distance(root.position(_endPosition), target);
     //When Target is unreachable        //Debug methods
                     /*if(dist > length){
                     stretchChain(chain, target);
                     return true;
                 }else{*/
     //Initial root position
-    Vector initial = _positions.get(0).get();
+    float x = _positions[0], y = _positions[1], z = _positions[2];
     //Stage 1: Forward Reaching
-    _positions.set(_chain.size() - 1, target.get());
+    _setPosition(_chain.size() - 1, target);
     _forwardReaching();
     //Stage 2: Backward Reaching
-    _positions.set(0, initial);
+    _setPosition(0, x, y, z);
     float change = _backwardReaching();
     //Save best solution
-    if (Vector.distance(target, end.position()) < Vector.distance(target, _bestSolution.get(_chain.size() - 1).position())) {
-      _bestSolution = _copy(_chain);
+    if (Vector.distance(target, end.position(_endPosition)) < Vector.distance(target, _bestSolution.get(_chain.size() - 1).position(_o))) {
+      _copy(_chain, _bestSolution);
     }
     //Check total position change
     if (change <= minDistance) return true;
@@ -184,35 +192,40 @@ public class ChainSolver extends FABRIKSolver {
     } else if (_prevTarget == null) {
       return true;
     }
-    return !(_prevTarget.position().matches(_target.position()) && _prevTarget.orientation().matches(_target.orientation()));
+    return !(_prevTarget.position(_p).matches(_target.position(_q)) && _prevTarget.orientation(_reference).matches(_target.orientation(_rest)));
+  }
+
+  @Override
+  protected float _error() {
+    return _target == null ? 0 : Vector.distance(endEffector().position(_endPosition), _target.position(_targetPosition));
+  }
+
+  @Override
+  protected float _displacement() {
+    if (_target == null || _prevTarget == null)
+      return -1;
+    float length = _length();
+    return length > 0 ? Vector.distance(_prevTarget.position(_p), _target.position(_q)) / length : -1;
   }
 
   @Override
   protected void _reset() {
-    _prevTarget = _target == null ? null : new Frame(_target.position().get(), _target.orientation().get());
+    //Reuse the previous target frame to keep resets allocation free
+    if (_target == null)
+      _prevTarget = null;
+    else {
+      if (_prevTarget == null)
+        _prevTarget = new Frame();
+      _prevTarget.setPosition(_target.position(_p));
+      _prevTarget.setOrientation(_target.orientation(_quaternion));
+    }
     iterations = 0;
     //We know that State has change but not where, then it is better to reset Global Positions and Orientations
     _init();
   }
 
   protected void _init() {
-    //Initialize List with info about Positions and Orientations
-    _positions = new ArrayList<Vector>();
-    _distances = new ArrayList<Float>();
-    _orientations = new ArrayList<Quaternion>();
-    Vector prevPosition = _chain.get(0).reference() != null
-        ? _chain.get(0).reference().position().get() : new Vector(0, 0, 0);
-    Quaternion prevOrientation = _chain.get(0).reference() != null
-        ? _chain.get(0).reference().orientation().get() : new Quaternion();
-    for (Frame joint : _chain) {
-      Vector position = joint.position().get();
-      Quaternion orientation = prevOrientation.get();
-      orientation.compose(joint.rotation().get());
-      _positions.add(position);
-      _distances.add(Vector.subtract(position, prevPosition).magnitude());
-      _orientations.add(orientation);
-      prevPosition = position;
-      prevOrientation = orientation.get();
-    }
+    //Initialize packed arrays with info about Positions and Orientations
+    _init(_chain);
   }
 }
\ No newline at end of file
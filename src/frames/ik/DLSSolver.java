@@ -0,0 +1,41 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.ik;
+
+import frames.primitives.Frame;
+
+import java.util.ArrayList;
+
+/**
+ * Damped least squares (Levenberg-Marquardt) Jacobian solver: joint deltas are
+ * {@code J^T * (J * J^T + damping^2 * I)^-1 * error}, which remains stable near singular
+ * configurations. Well suited to rigs having many end effectors and mixed position and
+ * orientation goals (see {@link #addTarget(Frame, Frame, boolean)}).
+ */
+public class DLSSolver extends JacobianSolver {
+  // larger values are more stable, smaller ones converge faster
+  public float damping = 1.f;
+
+  public DLSSolver(ArrayList<? extends Frame> chain) {
+    super(chain);
+  }
+
+  public DLSSolver(ArrayList<? extends Frame> chain, Frame target) {
+    super(chain, target);
+  }
+
+  @Override
+  protected void _solve(int rows, int columns) {
+    if (!_dampedLeastSquares(rows, columns, damping * damping))
+      _transpose(rows, columns);
+  }
+}
@@ -24,13 +24,100 @@ public abstract class FABRIKSolver extends Solver {
   //TODO: It will be useful that any Joint in the chain could have a Target ?
   //TODO: Enable Translation of Head (Skip Backward Step)
 
-  /*Store Joint's desired position*/
-  protected ArrayList<Vector> _positions = new ArrayList<Vector>();
-  protected ArrayList<Quaternion> _orientations = new ArrayList<Quaternion>();
-  protected ArrayList<Float> _distances = new ArrayList<Float>();
+  /*
+   * Store Joint's desired position (3 floats per joint), orientation (4 floats per joint)
+   * and bone length (distance to the previous joint), packed in primitive arrays that are
+   * only reallocated when the chain grows
+   */
+  protected float[] _positions = new float[0];
+  protected float[] _orientations = new float[0];
+  protected float[] _distances = new float[0];
+  protected int _size;
+
+  /*Scratch values reused across iterations*/
+  protected Vector _diff = new Vector();
+  protected Vector _scaled = new Vector();
+  protected Vector _o = new Vector();
+  protected Vector _p = new Vector();
+  protected Vector _q = new Vector();
+  protected Vector _constrained = new Vector();
+  protected Quaternion _quaternion = new Quaternion();
+  protected Quaternion _orientation = new Quaternion();
+  protected Quaternion _reference = new Quaternion();
+  protected Quaternion _rest = new Quaternion();
+
+  /*
+   * Sets target to the desired position of the i-th joint. If target is null a new vector
+   * is returned
+   * */
+  protected Vector _position(int i, Vector target) {
+    if (target == null)
+      target = new Vector();
+    target.set(_positions[3 * i], _positions[3 * i + 1], _positions[3 * i + 2]);
+    return target;
+  }
+
+  protected void _setPosition(int i, Vector position) {
+    _setPosition(i, position.x(), position.y(), position.z());
+  }
+
+  protected void _setPosition(int i, float x, float y, float z) {
+    _positions[3 * i] = x;
+    _positions[3 * i + 1] = y;
+    _positions[3 * i + 2] = z;
+  }
+
+  /*
+   * Sets target to the desired orientation of the i-th joint. If target is null a new
+   * quaternion is returned
+   * */
+  protected Quaternion _orientation(int i, Quaternion target) {
+    if (target == null)
+      target = new Quaternion();
+    int r = 4 * i;
+    target.setX(_orientations[r]);
+    target.setY(_orientations[r + 1]);
+    target.setZ(_orientations[r + 2]);
+    target.setW(_orientations[r + 3]);
+    return target;
+  }
 
-  protected ArrayList<Vector> _positions() {
-    return _positions;
+  protected void _setOrientation(int i, Quaternion orientation) {
+    int r = 4 * i;
+    _orientations[r] = orientation.x();
+    _orientations[r + 1] = orientation.y();
+    _orientations[r + 2] = orientation.z();
+    _orientations[r + 3] = orientation.w();
+  }
+
+  /*
+   * Copies the joint world positions and orientations of the chain into the packed arrays
+   * and precomputes the bone lengths
+   * */
+  protected void _init(ArrayList<? extends Frame> chain) {
+    _size = chain.size();
+    if (_distances.length < _size) {
+      _positions = new float[3 * _size];
+      _orientations = new float[4 * _size];
+      _distances = new float[_size];
+    }
+    Frame reference = chain.get(0).reference();
+    if (reference != null) {
+      reference.position(_p);
+      reference.orientation(_orientation);
+    } else {
+      _p.set(0, 0, 0);
+      _orientation.reset();
+    }
+    for (int i = 0; i < _size; i++) {
+      Frame joint = chain.get(i);
+      joint.position(_diff);
+      _orientation.compose(joint.rotation());
+      _setPosition(i, _diff);
+      _setOrientation(i, _orientation);
+      _distances[i] = Vector.distance(_diff, _p);
+      _p.set(_diff);
+    }
   }
 
   /*
@@ -38,49 +125,57 @@ public abstract class FABRIKSolver extends Solver {
    * the reference frame of the Frame at i + 1
    * */
   protected void _forwardReaching(ArrayList<? extends Frame> chain) {
+    float[] positions = _positions;
     for (int i = chain.size() - 2; i >= 0; i--) {
-      Vector pos_i = _positions.get(i);
-      Vector pos_i1 = _positions.get(i + 1);
-      float r_i = Vector.distance(pos_i, pos_i1);
-      float dist_i = _distances.get(i + 1);
+      int a = 3 * i, b = a + 3;
+      float dist_i = _distances[i + 1];
       if (dist_i == 0) {
-        _positions.set(i, pos_i1.get());
+        positions[a] = positions[b];
+        positions[a + 1] = positions[b + 1];
+        positions[a + 2] = positions[b + 2];
         continue;
       }
+      float dx = positions[b] - positions[a];
+      float dy = positions[b + 1] - positions[a + 1];
+      float dz = positions[b + 2] - positions[a + 2];
+      float r_i = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
       /*Check constraints (for Ball & Socket) it is not applied in First iteration
        * Look at paper FABRIK: A fast, iterative _solver for the Inverse Kinematics problem For more information*/
       Vector pos_i1_constrained = _constrainForwardReaching(chain, i);
-      Vector diff = Vector.subtract(pos_i1, pos_i1_constrained);
-      pos_i.add(diff);
       float lambda_i = dist_i / r_i;
-      Vector new_pos = Vector.multiply(pos_i1, 1.f - lambda_i);
-      new_pos.add(Vector.multiply(pos_i, lambda_i));
-      _positions.set(i, new_pos);
+      positions[a] = (positions[a] + positions[b] - pos_i1_constrained.x()) * lambda_i + positions[b] * (1.f - lambda_i);
+      positions[a + 1] = (positions[a + 1] + positions[b + 1] - pos_i1_constrained.y()) * lambda_i + positions[b + 1] * (1.f - lambda_i);
+      positions[a + 2] = (positions[a + 2] + positions[b + 2] - pos_i1_constrained.z()) * lambda_i + positions[b + 2] * (1.f - lambda_i);
     }
   }
 
   protected float _backwardReaching(ArrayList<? extends Frame> chain) {
     float change = 0;
-    Quaternion orientation;
-    orientation = chain.get(0).reference() != null ? chain.get(0).reference().orientation() : new Quaternion();
+    Quaternion orientation = _orientation;
+    if (chain.get(0).reference() != null)
+      chain.get(0).reference().orientation(orientation);
+    else
+      orientation.reset();
     //orientation.compose(chain.get(0).rotation());
     for (int i = 0; i < chain.size() - 1; i++) {
-      if (_distances.get(i + 1) == 0) {
-        _positions.set(i + 1, _positions.get(i));
+      if (_distances[i + 1] == 0) {
+        _setPosition(i + 1, _position(i, _p));
         continue;
       }
       //Find delta rotation
-      Vector newTranslation = Quaternion.compose(orientation, chain.get(i).rotation()).inverse().rotate(Vector.subtract(_positions.get(i + 1), _positions.get(i)));
-      Quaternion deltaRotation = new Quaternion(chain.get(i + 1).translation(), newTranslation);
+      _position(i, _p);
+      Vector newTranslation = Vector.subtract(_position(i + 1, _q), _p, _diff);
+      Quaternion.compose(orientation, chain.get(i).rotation(), _quaternion).inverseRotate(newTranslation, newTranslation);
+      _quaternion.fromTo(chain.get(i + 1).translation(), newTranslation);
       //Apply delta rotation
-      chain.get(i).rotate(deltaRotation);
+      chain.get(i).rotate(_quaternion);
       orientation.compose(chain.get(i).rotation());
-      _orientations.set(i, orientation.get());
+      _setOrientation(i, orientation);
       //Vector constrained_pos = chain.get(i+1).position().get();
-      Vector constrained_pos = orientation.rotate(chain.get(i + 1).translation().get());
-      constrained_pos.add(_positions.get(i));
-      change += Vector.distance(_positions.get(i + 1), constrained_pos);
-      _positions.set(i + 1, constrained_pos);
+      Vector constrained_pos = orientation.rotate(chain.get(i + 1).translation(), _diff);
+      constrained_pos.add(_p);
+      change += Vector.distance(_q, constrained_pos);
+      _setPosition(i + 1, constrained_pos);
     }
     return change;
   }
@@ -91,44 +186,36 @@ public abstract class FABRIKSolver extends Solver {
    * Frame J is the frame used to verify if the orientation of Parent is appropriate,
    * Vector o is a Vector where Parent is located, whereas p is express the position of J
    * Vector q is the position of Child of J.
+   * The returned vector is a scratch one, overwritten by the next call.
    * */
 
   public Vector _constrainForwardReaching(ArrayList<? extends Frame> chain, int i) {
     Frame j = chain.get(i + 1);
     Frame parent = chain.get(i + 1).reference();
-    Vector o = _positions.get(i);
-    Vector p = _positions.get(i + 1);
-    Vector q = i + 2 >= chain.size() ? null : _positions.get(i + 2);
-    if (parent.constraint() instanceof BallAndSocket) {
-      if (q == null) return p.get();
-      //Find the orientation of restRotation
-      BallAndSocket constraint = (BallAndSocket) parent.constraint();
-      Quaternion reference = Quaternion.compose(_orientations.get(i), parent.rotation().inverse());
-      Quaternion restOrientation = Quaternion.compose(reference, constraint.restRotation());
-
-      //Align axis
-      Vector translation = _orientations.get(i).rotate(j.translation().get());
-      Vector newTranslation = Vector.subtract(q, p);
-      restOrientation = Quaternion.compose(new Quaternion(translation, newTranslation), restOrientation);
-
-      //Find constraint
-      Vector target = constraint.apply(Vector.subtract(p, o), restOrientation);
-      return Vector.add(o, target);
-    } else if (parent.constraint() instanceof PlanarPolygon) {
-      if (q == null) return p.get();
+    Vector p = _position(i + 1, _constrained);
+    if (i + 2 >= chain.size())
+      return p;
+    if (parent.constraint() instanceof BallAndSocket || parent.constraint() instanceof PlanarPolygon) {
+      Vector o = _position(i, _o);
+      Vector q = _position(i + 2, _q);
       //Find the orientation of restRotation
-      PlanarPolygon constraint = (PlanarPolygon) parent.constraint();
-      Quaternion reference = Quaternion.compose(_orientations.get(i), parent.rotation().inverse());
-      Quaternion restOrientation = Quaternion.compose(reference, constraint.restRotation());
+      Quaternion restRotation = parent.constraint() instanceof BallAndSocket
+          ? ((BallAndSocket) parent.constraint()).restRotation() : ((PlanarPolygon) parent.constraint()).restRotation();
+      Quaternion orientation = _orientation(i, _reference);
+      Quaternion reference = Quaternion.compose(orientation, parent.rotation().inverse(_quaternion), _rest);
+      Quaternion restOrientation = Quaternion.compose(reference, restRotation, _quaternion);
 
       //Align axis
-      Vector translation = _orientations.get(i).rotate(j.translation().get());
-      Vector newTranslation = Vector.subtract(q, p);
-      restOrientation = Quaternion.compose(new Quaternion(translation, newTranslation), restOrientation);
+      Vector translation = orientation.rotate(j.translation(), _diff);
+      Vector newTranslation = Vector.subtract(q, p, _scaled);
+      _reference.fromTo(translation, newTranslation);
+      restOrientation = Quaternion.compose(_reference, restOrientation, _rest);
 
       //Find constraint
-      Vector target = constraint.apply(Vector.subtract(p, o), restOrientation);
-      return Vector.add(o, target);
+      Vector target = parent.constraint() instanceof BallAndSocket
+          ? ((BallAndSocket) parent.constraint()).apply(Vector.subtract(p, o, _diff), restOrientation)
+          : ((PlanarPolygon) parent.constraint()).apply(Vector.subtract(p, o, _diff), restOrientation);
+      return Vector.add(o, target, _constrained);
     } else if (parent.constraint() instanceof Hinge) {
             /*if (parent.is2D()) {
                     //Get new translation in Local Coordinate System
@@ -145,7 +232,7 @@ public abstract class FABRIKSolver extends Solver {
   protected float _distance(ArrayList<? extends Frame> chain) {
     float distance = 0.f;
     for (int i = 0; i < chain.size(); i++) {
-      distance += Vector.distance(chain.get(i).position(), _positions.get(i));
+      distance += Vector.distance(chain.get(i).position(_diff), _position(i, _p));
     }
     return distance;
   }
@@ -153,4 +240,4 @@ public abstract class FABRIKSolver extends Solver {
   public FABRIKSolver() {
     super();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,449 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.ik;
+
+import frames.core.Node;
+import frames.primitives.Frame;
+import frames.primitives.Quaternion;
+import frames.primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A FABRIK solver for a whole tree (e.g., a full body rig) which, unlike {@link TreeSolver},
+ * accepts targets on any joint (not only on the leaves), each one having its own weight
+ * and, optionally, an orientation goal.
+ * <p>
+ * The tree is flattened in depth-first order at construction, so that each joint parent
+ * precedes it, and an iteration is just two passes over the packed joint arrays: the
+ * forward reaching stage visits the joints from the last one to the head, placing each one
+ * at the weighted average of its own target and of the positions its sub-trees pull it
+ * to; the backward reaching stage visits them from the head to the last one, rotating each
+ * joint by the weighted average of the rotations aligning it with its children new
+ * positions (or to its orientation goal). Sub-trees without targets are skipped. Joint constraints are enforced (through
+ * {@link Frame#rotate(Quaternion)}) on the backward reaching stage only.
+ * <p>
+ * The solver error adds up the weighted target distances and, for the joints having an
+ * orientation goal, the weighted angles (in radians) to their target orientations.
+ * <p>
+ * Iterations reuse the solver scratch values and don't allocate, except within the joint
+ * constraints (see {@link frames.primitives.constraint.Constraint#constrainRotation(Quaternion, Frame)}).
+ * <p>
+ * Note that the tree structure is read at construction, so the solver should be
+ * instantiated again if it changes.
+ */
+public class FullBodySolver extends FABRIKSolver {
+  /*Joints in depth-first order, with their parent indices (-1 for the head)*/
+  protected ArrayList<Node> _joints = new ArrayList<Node>();
+  protected int[] _parents;
+  /*Children of the i-th joint are _children[_offsets[i]] ... _children[_offsets[i + 1] - 1]*/
+  protected int[] _children;
+  protected int[] _offsets;
+
+  /*Per joint target, target weight, orientation goal flag and previous target pose (7 floats)*/
+  protected Frame[] _targets;
+  protected float[] _weights;
+  protected boolean[] _orientationGoals;
+  protected float[] _previous;
+  /*Total target weight of the sub-tree rooted at each joint (0 for sub-trees without targets)*/
+  protected float[] _subtreeWeights;
+  protected boolean _modified = true;
+  /*Head pose at the last reset, used to detect whole tree displacements*/
+  protected Vector _headPosition = new Vector();
+  protected Quaternion _headOrientation = new Quaternion();
+
+  /*Forward reaching stage accumulators (3 floats and the total weight per joint)*/
+  protected float[] _sums;
+  protected float[] _sumWeights;
+
+  /*Scratch values reused across iterations*/
+  protected Quaternion _delta = new Quaternion();
+
+  public FullBodySolver(Node head) {
+    super();
+    _flatten(head);
+    int n = _joints.size();
+    _targets = new Frame[n];
+    _weights = new float[n];
+    _orientationGoals = new boolean[n];
+    _previous = new float[7 * n];
+    _subtreeWeights = new float[n];
+    _sums = new float[3 * n];
+    _sumWeights = new float[n];
+    _init();
+  }
+
+  /*
+   * Lists the tree joints in depth-first order and builds the compact children arrays
+   * */
+  protected void _flatten(Node head) {
+    ArrayList<Integer> parents = new ArrayList<Integer>();
+    ArrayList<Node> stack = new ArrayList<Node>();
+    ArrayList<Integer> stackParents = new ArrayList<Integer>();
+    stack.add(head);
+    stackParents.add(-1);
+    while (!stack.isEmpty()) {
+      Node node = stack.remove(stack.size() - 1);
+      int index = _joints.size();
+      _joints.add(node);
+      parents.add(stackParents.remove(stackParents.size() - 1));
+      //push children in reverse order, so that they're visited in their own order
+      for (int i = node.children().size() - 1; i >= 0; i--) {
+        stack.add(node.children().get(i));
+        stackParents.add(index);
+      }
+    }
+    int n = _joints.size();
+    _parents = new int[n];
+    _offsets = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      _parents[i] = parents.get(i);
+      if (_parents[i] >= 0)
+        _offsets[_parents[i] + 1]++;
+    }
+    for (int i = 0; i < n; i++)
+      _offsets[i + 1] += _offsets[i];
+    _children = new int[Math.max(0, n - 1)];
+    int[] counts = new int[n];
+    for (int i = 1; i < n; i++) {
+      int p = _parents[i];
+      _children[_offsets[p] + counts[p]++] = i;
+    }
+  }
+
+  public Node head() {
+    return _joints.get(0);
+  }
+
+  /*Returns the solver joints in depth-first order*/
+  public ArrayList<Node> joints() {
+    return _joints;
+  }
+
+  /*
+   * Same as addTarget(joint, target, 1, false)
+   * */
+  public boolean addTarget(Node joint, Frame target) {
+    return addTarget(joint, target, 1, false);
+  }
+
+  /*
+   * Sets the target of the given joint (which may be any tree joint). The weight sets the
+   * target influence relative to the other targets pulling the same joints. When
+   * orientation is true the joint is also rotated to match the target orientation.
+   * Returns false if the joint doesn't belong to the solver tree
+   * */
+  public boolean addTarget(Node joint, Frame target, float weight, boolean orientation) {
+    int index = _joints.indexOf(joint);
+    if (index < 0 || target == null)
+      return false;
+    _targets[index] = target;
+    _weights[index] = Math.max(0, weight);
+    _orientationGoals[index] = orientation;
+    _updateWeights();
+    return true;
+  }
+
+  public boolean removeTarget(Node joint) {
+    int index = _joints.indexOf(joint);
+    if (index < 0 || _targets[index] == null)
+      return false;
+    _targets[index] = null;
+    _weights[index] = 0;
+    _orientationGoals[index] = false;
+    _updateWeights();
+    return true;
+  }
+
+  public Frame target(Node joint) {
+    int index = _joints.indexOf(joint);
+    return index < 0 ? null : _targets[index];
+  }
+
+  /*Accumulates the target weights of each sub-tree (children are visited before parents)*/
+  protected void _updateWeights() {
+    for (int i = _joints.size() - 1; i >= 0; i--) {
+      float weight = _targets[i] != null ? _weights[i] : 0;
+      for (int k = _offsets[i]; k < _offsets[i + 1]; k++)
+        weight += _subtreeWeights[_children[k]];
+      _subtreeWeights[i] = weight;
+    }
+    _modified = true;
+  }
+
+  /*
+   * Copies the joint world positions and orientations into the packed arrays and
+   * precomputes the bone lengths
+   * */
+  protected void _init() {
+    int n = _joints.size();
+    if (_distances.length < n) {
+      _positions = new float[3 * n];
+      _orientations = new float[4 * n];
+      _distances = new float[n];
+    }
+    _size = n;
+    for (int i = 0; i < n; i++) {
+      Node joint = _joints.get(i);
+      _setPosition(i, joint.position(_p));
+      _setOrientation(i, joint.orientation(_quaternion));
+      _distances[i] = i == 0 ? 0 : Vector.distance(_p, _position(_parents[i], _q));
+    }
+  }
+
+  @Override
+  protected boolean _iterate() {
+    if (_subtreeWeights.length == 0 || _subtreeWeights[0] == 0) return true;
+    //Execute Until the distance (and the angle, for orientation goals) between the targeted joints and their targets is below a threshold
+    boolean reached = true;
+    for (int i = 0; i < _joints.size() && reached; i++) {
+      if (_targets[i] == null || _weights[i] == 0) continue;
+      if (Vector.distance(_joints.get(i).position(_p), _targets[i].position(_q)) > error)
+        reached = false;
+      else if (_orientationGoals[i] && _angle(i) > error)
+        reached = false;
+    }
+    if (reached)
+      return true;
+    totalIterations++;
+    _forwardReaching();
+    return _backwardReaching() <= minDistance;
+  }
+
+  /*
+   * Stage 1: Forward Reaching. Each joint is placed at the weighted average of its target and
+   * of the positions its children pull it to (once they've been placed themselves)
+   * */
+  protected void _forwardReaching() {
+    float[] positions = _positions;
+    Arrays.fill(_sums, 0);
+    Arrays.fill(_sumWeights, 0);
+    for (int i = _joints.size() - 1; i > 0; i--) {
+      float weight = _subtreeWeights[i];
+      if (weight == 0) continue;
+      int a = 3 * i;
+      float x = _sums[a], y = _sums[a + 1], z = _sums[a + 2], total = _sumWeights[i];
+      Frame target = _targets[i];
+      if (target != null && _weights[i] > 0) {
+        target.position(_p);
+        x += _weights[i] * _p.x();
+        y += _weights[i] * _p.y();
+        z += _weights[i] * _p.z();
+        total += _weights[i];
+      }
+      if (total > 0) {
+        x /= total;
+        y /= total;
+        z /= total;
+        _setPosition(i, x, y, z);
+      } else {
+        x = positions[a];
+        y = positions[a + 1];
+        z = positions[a + 2];
+      }
+      //Pull the parent towards the new joint position
+      int p = _parents[i], b = 3 * p;
+      if (_orientationGoals[i] && target != null) {
+        //parent position which lets the joint reach its target orientation
+        Node joint = _joints.get(i);
+        Vector translation = joint.rotation().inverseRotate(joint.translation(), _diff);
+        target.orientation(_quaternion).rotate(translation, translation);
+        _sums[b] += weight * (x - translation.x());
+        _sums[b + 1] += weight * (y - translation.y());
+        _sums[b + 2] += weight * (z - translation.z());
+      } else {
+        float dx = positions[b] - x, dy = positions[b + 1] - y, dz = positions[b + 2] - z;
+        float r_i = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+        float lambda_i = r_i == 0 ? 0 : _distances[i] / r_i;
+        _sums[b] += weight * (x + dx * lambda_i);
+        _sums[b + 1] += weight * (y + dy * lambda_i);
+        _sums[b + 2] += weight * (z + dz * lambda_i);
+      }
+      _sumWeights[p] += weight;
+    }
+  }
+
+  /*
+   * Stage 2: Backward Reaching. From the (fixed) head, each joint is rotated to best fit its
+   * children new positions (or to its orientation goal), and the actual positions of its
+   * children are then computed from its constrained rotation. Returns the total change
+   * */
+  protected float _backwardReaching() {
+    float change = 0;
+    _setPosition(0, _joints.get(0).position(_p));
+    for (int i = 0; i < _joints.size(); i++) {
+      if (_subtreeWeights[i] == 0) continue;
+      Node joint = _joints.get(i);
+      //Orientation of the joint reference
+      if (i > 0)
+        _orientation(_parents[i], _reference);
+      else if (joint.reference() != null)
+        joint.reference().orientation(_reference);
+      else
+        _reference.reset();
+      Quaternion.compose(_reference, joint.rotation(), _orientation);
+      _position(i, _p);
+      Quaternion delta = null;
+      if (_orientationGoals[i] && _targets[i] != null) {
+        //current orientation ^ -1 * goal
+        delta = Quaternion.compose(_orientation.inverse(_rest), _targets[i].orientation(_quaternion), _delta);
+      } else if (_offsets[i + 1] > _offsets[i]) {
+        //Weighted average (in the joint space) of the rotations aligning each child
+        float x = 0, y = 0, z = 0, w = 0;
+        for (int k = _offsets[i]; k < _offsets[i + 1]; k++) {
+          int c = _children[k];
+          float weight = _subtreeWeights[c];
+          if (weight == 0 || _distances[c] == 0) continue;
+          Vector newTranslation = Vector.subtract(_position(c, _q), _p, _diff);
+          _orientation.inverseRotate(newTranslation, newTranslation);
+          if (newTranslation.squaredNorm() == 0) continue;
+          _quaternion.fromTo(_joints.get(c).translation(), newTranslation);
+          //keep the rotations at the same hemisphere
+          float sign = x * _quaternion.x() + y * _quaternion.y() + z * _quaternion.z() + w * _quaternion.w() < 0 ? -weight : weight;
+          x += sign * _quaternion.x();
+          y += sign * _quaternion.y();
+          z += sign * _quaternion.z();
+          w += sign * _quaternion.w();
+        }
+        float norm = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+        if (norm > 0) {
+          _delta.setX(x / norm);
+          _delta.setY(y / norm);
+          _delta.setZ(z / norm);
+          _delta.setW(w / norm);
+          delta = _delta;
+        }
+      }
+      if (delta != null) {
+        //Apply delta rotation
+        joint.rotate(delta);
+        Quaternion.compose(_reference, joint.rotation(), _orientation);
+      }
+      _setOrientation(i, _orientation);
+      //Place the children according to the (constrained) joint orientation
+      for (int k = _offsets[i]; k < _offsets[i + 1]; k++) {
+        int c = _children[k];
+        if (_subtreeWeights[c] == 0) continue;
+        Vector position = _orientation.rotate(_joints.get(c).translation(), _diff);
+        position.add(_p);
+        change += Vector.distance(_position(c, _q), position);
+        _setPosition(c, position);
+      }
+    }
+    return change;
+  }
+
+  @Override
+  protected void _update() {
+    //As BackwardStep modify the joints, no update is required
+  }
+
+  /*
+   * Returns true if the head (or its reference) has been moved since the last reset
+   * */
+  protected boolean _headChanged() {
+    Node head = _joints.get(0);
+    if (!head.position(_p).matches(_headPosition))
+      return true;
+    return head.reference() != null && !head.reference().orientation(_quaternion).matches(_headOrientation);
+  }
+
+  @Override
+  protected boolean _changed() {
+    if (_modified || _headChanged())
+      return true;
+    for (int i = 0; i < _targets.length; i++) {
+      if (_targets[i] == null) continue;
+      _previousPose(i);
+      if (!_p.matches(_targets[i].position(_q)) || !_orientation.matches(_targets[i].orientation(_rest)))
+        return true;
+    }
+    return false;
+  }
+
+  /*Sets _p and _orientation to the pose of the i-th target at the last reset*/
+  protected void _previousPose(int i) {
+    int r = 7 * i;
+    _p.set(_previous[r], _previous[r + 1], _previous[r + 2]);
+    _orientation.setX(_previous[r + 3]);
+    _orientation.setY(_previous[r + 4]);
+    _orientation.setZ(_previous[r + 5]);
+    _orientation.setW(_previous[r + 6]);
+  }
+
+  @Override
+  protected float _error() {
+    float error = 0;
+    for (int i = 0; i < _targets.length; i++) {
+      if (_targets[i] == null) continue;
+      error += _weights[i] * Vector.distance(_joints.get(i).position(_p), _targets[i].position(_q));
+      if (_orientationGoals[i])
+        error += _weights[i] * _angle(i);
+    }
+    return error;
+  }
+
+  /*Angle (in radians) between the i-th joint orientation and its target one*/
+  protected float _angle(int i) {
+    float dot = Math.abs(Quaternion.dot(_joints.get(i).orientation(_quaternion), _targets[i].orientation(_rest)));
+    return dot >= 1 ? 0 : 2 * (float) Math.acos(dot);
+  }
+
+  /*Total bone length, i.e., the solver reach*/
+  protected float _length() {
+    float length = 0;
+    for (int i = 1; i < _size; i++)
+      length += _distances[i];
+    return length;
+  }
+
+  @Override
+  protected float _displacement() {
+    if (_modified || _headChanged())
+      return -1;
+    float length = _length();
+    if (length == 0)
+      return -1;
+    float displacement = 0;
+    for (int i = 0; i < _targets.length; i++) {
+      if (_targets[i] == null) continue;
+      _previousPose(i);
+      displacement = Math.max(displacement, Vector.distance(_p, _targets[i].position(_q)) / length);
+    }
+    return displacement;
+  }
+
+  @Override
+  protected void _reset() {
+    for (int i = 0; i < _targets.length; i++) {
+      if (_targets[i] == null) continue;
+      int r = 7 * i;
+      _targets[i].position(_p);
+      _targets[i].orientation(_quaternion);
+      _previous[r] = _p.x();
+      _previous[r + 1] = _p.y();
+      _previous[r + 2] = _p.z();
+      _previous[r + 3] = _quaternion.x();
+      _previous[r + 4] = _quaternion.y();
+      _previous[r + 5] = _quaternion.z();
+      _previous[r + 6] = _quaternion.w();
+    }
+    Node head = _joints.get(0);
+    head.position(_headPosition);
+    if (head.reference() != null)
+      head.reference().orientation(_headOrientation);
+    _modified = false;
+    iterations = 0;
+    _init();
+  }
+}
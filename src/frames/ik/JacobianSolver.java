@@ -0,0 +1,522 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.ik;
+
+import frames.primitives.Frame;
+import frames.primitives.Quaternion;
+import frames.primitives.Vector;
+import frames.primitives.constraint.Hinge;
+
+import java.util.ArrayList;
+
+/**
+ * Base class of the Jacobian based solvers. Given a set of joints (e.g., a chain or a
+ * whole skeleton, each joint being either the head or referring to a previous joint) and
+ * a set of end effector targets (position and, optionally, orientation goals), each
+ * iteration linearizes the problem around the current pose, building the Jacobian of the
+ * goals with respect to the joint rotations, solves for the joint rotation deltas
+ * (see {@link #_solve(int, int)}) and applies them.
+ * <p>
+ * Each joint contributes 3 rotational DOFs (about the world axes), or a single one when
+ * its constraint is a {@link Hinge}. Rotation deltas are applied with
+ * {@link Frame#rotate(Quaternion)}, so that joint constraints (e.g.,
+ * {@link frames.primitives.constraint.BallAndSocket} and {@link Hinge} limits) are
+ * enforced.
+ * <p>
+ * All the linear algebra uses small dense primitive arrays which are only reallocated
+ * when the problem layout changes.
+ */
+public abstract class JacobianSolver extends Solver {
+  protected ArrayList<? extends Frame> _chain;
+  protected ArrayList<Frame> _endEffectors = new ArrayList<Frame>();
+  protected ArrayList<Frame> _targets = new ArrayList<Frame>();
+  protected ArrayList<Boolean> _orientationGoals = new ArrayList<Boolean>();
+  // max joint rotation (in radians) per iteration, which keeps the linearization valid
+  public float maxAngle = 0.2f;
+
+  // layout: goal rows and joint dof columns
+  protected int _rows, _columns;
+  protected int[] _rowGoal, _columnJoint;
+  protected boolean[] _affects;
+  protected boolean _valid;
+  // jacobian (row major, rows x columns), error, joint deltas and scratch
+  protected float[] _jacobian = new float[0];
+  protected float[] _error = new float[0];
+  protected float[] _delta = new float[0];
+  protected float[] _axes = new float[0];
+  protected float[] _positions = new float[0];
+  protected float[] _matrix = new float[0];
+  protected float[] _vector = new float[0];
+  protected float[] _previous = new float[0];
+
+  /*Scratch values reused across iterations*/
+  protected Vector _jointPosition = new Vector();
+  protected Vector _endPosition = new Vector();
+  protected Vector _targetPosition = new Vector();
+  protected Vector _axis = new Vector();
+  protected Quaternion _quaternion = new Quaternion();
+  protected Quaternion _orientation = new Quaternion();
+  protected Quaternion _rotation = new Quaternion();
+
+  public JacobianSolver(ArrayList<? extends Frame> chain) {
+    this(chain, null);
+  }
+
+  public JacobianSolver(ArrayList<? extends Frame> chain, Frame target) {
+    super();
+    _chain = chain;
+    if (target != null)
+      addTarget(endEffector(), target);
+  }
+
+  public ArrayList<? extends Frame> chain() {
+    return _chain;
+  }
+
+  public Frame head() {
+    return _chain.get(0);
+  }
+
+  public Frame endEffector() {
+    return _chain.get(_chain.size() - 1);
+  }
+
+  /**
+   * Returns the target of the chain {@link #endEffector()}, if any.
+   */
+  public Frame target() {
+    int index = _endEffectors.indexOf(endEffector());
+    return index < 0 ? null : _targets.get(index);
+  }
+
+  /**
+   * Sets the position target of the chain {@link #endEffector()}. Pass {@code null} to
+   * remove it.
+   */
+  public void setTarget(Frame target) {
+    int index = _endEffectors.indexOf(endEffector());
+    if (index >= 0)
+      _removeTarget(index);
+    if (target != null)
+      addTarget(endEffector(), target);
+  }
+
+  /**
+   * Same as {@code addTarget(endEffector, target, false)}.
+   *
+   * @see #addTarget(Frame, Frame, boolean)
+   */
+  public boolean addTarget(Frame endEffector, Frame target) {
+    return addTarget(endEffector, target, false);
+  }
+
+  /**
+   * Adds a {@code target} to the given {@code endEffector}, which should belong to the
+   * {@link #chain()}. If {@code orientation} is {@code true} the end effector should also
+   * match the target orientation. Returns {@code false} if the end effector doesn't belong
+   * to the chain.
+   */
+  public boolean addTarget(Frame endEffector, Frame target, boolean orientation) {
+    if (!_chain.contains(endEffector) || target == null)
+      return false;
+    int index = _endEffectors.indexOf(endEffector);
+    if (index >= 0)
+      _removeTarget(index);
+    _endEffectors.add(endEffector);
+    _targets.add(target);
+    _orientationGoals.add(orientation);
+    _valid = false;
+    return true;
+  }
+
+  /**
+   * Removes the target of the given {@code endEffector}.
+   */
+  public boolean removeTarget(Frame endEffector) {
+    int index = _endEffectors.indexOf(endEffector);
+    if (index < 0)
+      return false;
+    _removeTarget(index);
+    return true;
+  }
+
+  protected void _removeTarget(int index) {
+    _endEffectors.remove(index);
+    _targets.remove(index);
+    _orientationGoals.remove(index);
+    _valid = false;
+  }
+
+  /**
+   * Lays out the jacobian rows (3 per position goal and 3 more per orientation goal) and
+   * columns (3 per joint, or 1 per {@link Hinge} joint), and finds out which joints affect
+   * which goals (i.e., the joints lying on the path from the head to each end effector).
+   */
+  protected void _layout() {
+    int n = _chain.size(), goals = _endEffectors.size();
+    _rows = 0;
+    for (int g = 0; g < goals; g++)
+      _rows += _orientationGoals.get(g) ? 6 : 3;
+    _columns = 0;
+    for (Frame joint : _chain)
+      _columns += joint.constraint() instanceof Hinge ? 1 : 3;
+    _rowGoal = new int[_rows];
+    _columnJoint = new int[_columns];
+    for (int g = 0, r = 0; g < goals; g++)
+      for (int k = 0; k < (_orientationGoals.get(g) ? 6 : 3); k++)
+        _rowGoal[r++] = g;
+    for (int j = 0, c = 0; j < n; j++)
+      for (int k = 0; k < (_chain.get(j).constraint() instanceof Hinge ? 1 : 3); k++)
+        _columnJoint[c++] = j;
+    _affects = new boolean[goals * n];
+    for (int g = 0; g < goals; g++)
+      for (Frame frame = _endEffectors.get(g); frame != null; frame = frame.reference()) {
+        int j = _chain.indexOf(frame);
+        if (j >= 0)
+          _affects[g * n + j] = true;
+      }
+    if (_jacobian.length < _rows * _columns)
+      _jacobian = new float[_rows * _columns];
+    if (_error.length < _rows)
+      _error = new float[_rows];
+    if (_delta.length < _columns) {
+      _delta = new float[_columns];
+      _axes = new float[3 * _columns];
+    }
+    int size = Math.max(_rows, _columns);
+    if (_matrix.length < size * size) {
+      _matrix = new float[size * size];
+      _vector = new float[size];
+    }
+    if (_positions.length < 3 * n)
+      _positions = new float[3 * n];
+    if (_previous.length < 7 * goals)
+      _previous = new float[7 * goals];
+    _valid = true;
+  }
+
+  /**
+   * Computes the goal error vector and the jacobian at the current pose.
+   */
+  protected void _linearize() {
+    int n = _chain.size(), goals = _endEffectors.size();
+    // 1. error
+    for (int g = 0, r = 0; g < goals; g++) {
+      _endEffectors.get(g).position(_endPosition);
+      _targets.get(g).position(_targetPosition);
+      _error[r++] = _targetPosition.x() - _endPosition.x();
+      _error[r++] = _targetPosition.y() - _endPosition.y();
+      _error[r++] = _targetPosition.z() - _endPosition.z();
+      if (_orientationGoals.get(g)) {
+        // world rotation taking the end effector orientation into the target one
+        _targets.get(g).orientation(_quaternion);
+        _endEffectors.get(g).orientation(_orientation).invert();
+        Quaternion rotation = Quaternion.compose(_quaternion, _orientation, _rotation);
+        if (rotation.w() < 0)
+          rotation.negate();
+        // rotation vector (axis * angle)
+        float norm = (float) Math.sqrt(rotation.x() * rotation.x() + rotation.y() * rotation.y() + rotation.z() * rotation.z());
+        float scale = norm > 0 ? 2 * (float) Math.atan2(norm, rotation.w()) / norm : 0;
+        _error[r++] = rotation.x() * scale;
+        _error[r++] = rotation.y() * scale;
+        _error[r++] = rotation.z() * scale;
+      }
+    }
+    // 2. joint positions and dof world axes
+    for (int j = 0; j < n; j++) {
+      _chain.get(j).position(_jointPosition);
+      _positions[3 * j] = _jointPosition.x();
+      _positions[3 * j + 1] = _jointPosition.y();
+      _positions[3 * j + 2] = _jointPosition.z();
+    }
+    for (int c = 0; c < _columns; ) {
+      Frame joint = _chain.get(_columnJoint[c]);
+      if (joint.constraint() instanceof Hinge) {
+        // hinge axis is defined in the joint frame, with respect to its rest rotation
+        Hinge hinge = (Hinge) joint.constraint();
+        _axis.set(hinge.axis());
+        if (hinge.restRotation() != null)
+          hinge.restRotation().rotate(_axis, _axis);
+        joint.orientation(_orientation).rotate(_axis, _axis);
+        _axis.normalize();
+        _axes[3 * c] = _axis.x();
+        _axes[3 * c + 1] = _axis.y();
+        _axes[3 * c + 2] = _axis.z();
+        c++;
+      } else
+        for (int k = 0; k < 3; k++, c++) {
+          _axes[3 * c] = k == 0 ? 1 : 0;
+          _axes[3 * c + 1] = k == 1 ? 1 : 0;
+          _axes[3 * c + 2] = k == 2 ? 1 : 0;
+        }
+    }
+    // 3. jacobian
+    for (int r = 0; r < _rows; ) {
+      int g = _rowGoal[r];
+      _endEffectors.get(g).position(_endPosition);
+      for (int c = 0; c < _columns; c++) {
+        int j = _columnJoint[c];
+        boolean affects = _affects[g * n + j];
+        float ax = _axes[3 * c], ay = _axes[3 * c + 1], az = _axes[3 * c + 2];
+        float dx = 0, dy = 0, dz = 0;
+        if (affects) {
+          dx = _endPosition.x() - _positions[3 * j];
+          dy = _endPosition.y() - _positions[3 * j + 1];
+          dz = _endPosition.z() - _positions[3 * j + 2];
+        }
+        // position rows: axis x (end - joint)
+        _jacobian[r * _columns + c] = affects ? ay * dz - az * dy : 0;
+        _jacobian[(r + 1) * _columns + c] = affects ? az * dx - ax * dz : 0;
+        _jacobian[(r + 2) * _columns + c] = affects ? ax * dy - ay * dx : 0;
+        // orientation rows: axis
+        if (_orientationGoals.get(g)) {
+          _jacobian[(r + 3) * _columns + c] = affects ? ax : 0;
+          _jacobian[(r + 4) * _columns + c] = affects ? ay : 0;
+          _jacobian[(r + 5) * _columns + c] = affects ? az : 0;
+        }
+      }
+      r += _orientationGoals.get(g) ? 6 : 3;
+    }
+  }
+
+  /**
+   * Computes the joint dof deltas ({@code _delta}, {@code columns} values) from the
+   * jacobian ({@code _jacobian}, {@code rows x columns}, row major) and the goal error
+   * ({@code _error}, {@code rows} values).
+   */
+  protected abstract void _solve(int rows, int columns);
+
+  /**
+   * Applies the joint dof deltas as world rotations about the dof axes, scaled down when
+   * any joint rotation exceeds {@link #maxAngle}. Returns the largest joint rotation angle.
+   */
+  protected float _apply() {
+    float max = 0;
+    for (int c = 0; c < _columns; ) {
+      int j = _columnJoint[c];
+      float wx = 0, wy = 0, wz = 0;
+      for (; c < _columns && _columnJoint[c] == j; c++) {
+        wx += _delta[c] * _axes[3 * c];
+        wy += _delta[c] * _axes[3 * c + 1];
+        wz += _delta[c] * _axes[3 * c + 2];
+      }
+      max = Math.max(max, (float) Math.sqrt(wx * wx + wy * wy + wz * wz));
+    }
+    float scale = max > maxAngle ? maxAngle / max : 1;
+    for (int c = 0; c < _columns; ) {
+      int j = _columnJoint[c];
+      float wx = 0, wy = 0, wz = 0;
+      for (; c < _columns && _columnJoint[c] == j; c++) {
+        wx += _delta[c] * _axes[3 * c];
+        wy += _delta[c] * _axes[3 * c + 1];
+        wz += _delta[c] * _axes[3 * c + 2];
+      }
+      float angle = scale * (float) Math.sqrt(wx * wx + wy * wy + wz * wz);
+      if (angle == 0)
+        continue;
+      Frame joint = _chain.get(j);
+      // express the world axis in the joint frame, since rotate() composes locally
+      _axis.set(wx, wy, wz);
+      joint.orientation(_orientation).inverseRotate(_axis, _axis);
+      _quaternion.fromAxisAngle(_axis, angle);
+      joint.rotate(_quaternion);
+    }
+    return scale * max;
+  }
+
+  /*
+   * Performs a Jacobian ITERATION
+   * */
+  @Override
+  protected boolean _iterate() {
+    if (_endEffectors.isEmpty()) return true;
+    if (!_valid) _layout();
+    _linearize();
+    //Execute Until the error is below a threshold
+    float norm = 0;
+    for (int r = 0; r < _rows; r++)
+      norm += _error[r] * _error[r];
+    if ((float) Math.sqrt(norm) <= error) return true;
+    totalIterations++;
+    _solve(_rows, _columns);
+    //Stop when joints don't rotate anymore (see also Solver.stagnation)
+    return _apply() == 0;
+  }
+
+  @Override
+  protected void _update() {
+    /*Not required, since chain is updated inside iterate step*/
+  }
+
+  @Override
+  protected boolean _changed() {
+    if (!_valid) return true;
+    for (int g = 0; g < _targets.size(); g++) {
+      Frame target = _targets.get(g);
+      target.position(_targetPosition);
+      target.orientation(_quaternion);
+      int p = 7 * g;
+      if (_previous[p] != _targetPosition.x() || _previous[p + 1] != _targetPosition.y() || _previous[p + 2] != _targetPosition.z()
+          || _previous[p + 3] != _quaternion.x() || _previous[p + 4] != _quaternion.y() || _previous[p + 5] != _quaternion.z() || _previous[p + 6] != _quaternion.w())
+        return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected void _reset() {
+    if (!_valid) _layout();
+    for (int g = 0; g < _targets.size(); g++) {
+      Frame target = _targets.get(g);
+      target.position(_targetPosition);
+      target.orientation(_quaternion);
+      int p = 7 * g;
+      _previous[p] = _targetPosition.x();
+      _previous[p + 1] = _targetPosition.y();
+      _previous[p + 2] = _targetPosition.z();
+      _previous[p + 3] = _quaternion.x();
+      _previous[p + 4] = _quaternion.y();
+      _previous[p + 5] = _quaternion.z();
+      _previous[p + 6] = _quaternion.w();
+    }
+    iterations = 0;
+  }
+
+  @Override
+  protected float _error() {
+    float error = 0;
+    for (int g = 0; g < _targets.size(); g++)
+      error += Vector.distance(_endEffectors.get(g).position(_endPosition), _targets.get(g).position(_targetPosition));
+    return error;
+  }
+
+  // Small dense linear algebra
+
+  /**
+   * Sets {@code _delta} to the damped least squares solution, i.e.,
+   * {@code J^T * (J * J^T + damping * I)^-1 * error}, which is computed as
+   * {@code (J^T * J + damping * I)^-1 * J^T * error} when there are fewer columns than
+   * rows. Returns {@code false} if the system couldn't be solved.
+   */
+  protected boolean _dampedLeastSquares(int rows, int columns, float damping) {
+    if (rows <= columns) {
+      _jacobianJacobianTranspose(rows, columns, damping);
+      System.arraycopy(_error, 0, _vector, 0, rows);
+      if (!_cholesky(_matrix, _vector, rows))
+        return false;
+      _jacobianTranspose(rows, columns, _vector);
+      return true;
+    }
+    for (int i = 0; i < columns; i++)
+      for (int k = 0; k <= i; k++) {
+        float sum = 0;
+        for (int r = 0; r < rows; r++)
+          sum += _jacobian[r * columns + i] * _jacobian[r * columns + k];
+        _matrix[i * columns + k] = sum;
+        _matrix[k * columns + i] = sum;
+      }
+    for (int i = 0; i < columns; i++)
+      _matrix[i * columns + i] += damping;
+    _jacobianTranspose(rows, columns, _error);
+    System.arraycopy(_delta, 0, _vector, 0, columns);
+    if (!_cholesky(_matrix, _vector, columns))
+      return false;
+    System.arraycopy(_vector, 0, _delta, 0, columns);
+    return true;
+  }
+
+  /**
+   * Sets {@code _delta} to {@code alpha * J^T * error}, where {@code alpha} minimizes the
+   * linearized error along that direction.
+   */
+  protected void _transpose(int rows, int columns) {
+    _jacobianTranspose(rows, columns, _error);
+    // v = J * J^T * error
+    float numerator = 0, denominator = 0;
+    for (int r = 0; r < rows; r++) {
+      float v = 0;
+      for (int c = 0; c < columns; c++)
+        v += _jacobian[r * columns + c] * _delta[c];
+      numerator += _error[r] * v;
+      denominator += v * v;
+    }
+    float alpha = denominator > 0 ? numerator / denominator : 0;
+    for (int c = 0; c < columns; c++)
+      _delta[c] *= alpha;
+  }
+
+  /**
+   * Sets {@code _matrix} to {@code J * J^T + damping * I} ({@code rows x rows}).
+   */
+  protected void _jacobianJacobianTranspose(int rows, int columns, float damping) {
+    for (int i = 0; i < rows; i++)
+      for (int k = 0; k <= i; k++) {
+        float sum = 0;
+        for (int c = 0; c < columns; c++)
+          sum += _jacobian[i * columns + c] * _jacobian[k * columns + c];
+        _matrix[i * rows + k] = sum;
+        _matrix[k * rows + i] = sum;
+      }
+    for (int i = 0; i < rows; i++)
+      _matrix[i * rows + i] += damping;
+  }
+
+  /**
+   * Sets {@code _delta} to {@code J^T * vector}.
+   */
+  protected void _jacobianTranspose(int rows, int columns, float[] vector) {
+    for (int c = 0; c < columns; c++) {
+      float sum = 0;
+      for (int r = 0; r < rows; r++)
+        sum += _jacobian[r * columns + c] * vector[r];
+      _delta[c] = sum;
+    }
+  }
+
+  /**
+   * Solves {@code matrix * x = vector} in place (the solution overwrites {@code vector})
+   * using the Cholesky decomposition of the symmetric positive definite {@code n x n}
+   * {@code matrix}, which is overwritten too. Returns {@code false} if the matrix isn't
+   * positive definite.
+   */
+  protected static boolean _cholesky(float[] matrix, float[] vector, int n) {
+    // decomposition: matrix = L * L^T, L stored in the lower triangle
+    for (int i = 0; i < n; i++) {
+      for (int k = 0; k <= i; k++) {
+        float sum = matrix[i * n + k];
+        for (int m = 0; m < k; m++)
+          sum -= matrix[i * n + m] * matrix[k * n + m];
+        if (i == k) {
+          if (sum <= 0)
+            return false;
+          matrix[i * n + i] = (float) Math.sqrt(sum);
+        } else
+          matrix[i * n + k] = sum / matrix[k * n + k];
+      }
+    }
+    // forward substitution: L * y = vector
+    for (int i = 0; i < n; i++) {
+      float sum = vector[i];
+      for (int m = 0; m < i; m++)
+        sum -= matrix[i * n + m] * vector[m];
+      vector[i] = sum / matrix[i * n + i];
+    }
+    // back substitution: L^T * x = y
+    for (int i = n - 1; i >= 0; i--) {
+      float sum = vector[i];
+      for (int m = i + 1; m < n; m++)
+        sum -= matrix[m * n + i] * vector[m];
+      vector[i] = sum / matrix[i * n + i];
+    }
+    return true;
+  }
+}
@@ -0,0 +1,36 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.ik;
+
+import frames.primitives.Frame;
+
+import java.util.ArrayList;
+
+/**
+ * Jacobian transpose solver: joint deltas follow the (linearized) error gradient, i.e.,
+ * {@code alpha * J^T * error}. Cheap per iteration, but it needs more iterations than the
+ * {@link PseudoInverseSolver} and the {@link DLSSolver}.
+ */
+public class JacobianTransposeSolver extends JacobianSolver {
+  public JacobianTransposeSolver(ArrayList<? extends Frame> chain) {
+    super(chain);
+  }
+
+  public JacobianTransposeSolver(ArrayList<? extends Frame> chain, Frame target) {
+    super(chain, target);
+  }
+
+  @Override
+  protected void _solve(int rows, int columns) {
+    _transpose(rows, columns);
+  }
+}
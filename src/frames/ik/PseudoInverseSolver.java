@@ -0,0 +1,40 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.ik;
+
+import frames.primitives.Frame;
+
+import java.util.ArrayList;
+
+/**
+ * Jacobian pseudo-inverse solver: joint deltas are the least squares solution
+ * {@code J^T * (J * J^T)^-1 * error}. Converges fast away from singular configurations
+ * (e.g., fully stretched chains), where it becomes unstable. See {@link DLSSolver}.
+ */
+public class PseudoInverseSolver extends JacobianSolver {
+  // tiny damping only meant to keep the system solvable
+  public static float EPSILON = 1e-5f;
+
+  public PseudoInverseSolver(ArrayList<? extends Frame> chain) {
+    super(chain);
+  }
+
+  public PseudoInverseSolver(ArrayList<? extends Frame> chain, Frame target) {
+    super(chain, target);
+  }
+
+  @Override
+  protected void _solve(int rows, int columns) {
+    if (!_dampedLeastSquares(rows, columns, EPSILON))
+      _transpose(rows, columns);
+  }
+}
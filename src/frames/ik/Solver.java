@@ -28,6 +28,31 @@ public abstract class Solver {
   public float timesPerFrame = 1.f;
   public float frameCounter = 0;
   public int iterations = 0;
+  /*
+   * Number of iterations which actually moved the joints since the solver was instantiated.
+   * Unlike iterations, it's never reset nor set to maxIter when a termination condition is
+   * met, so it may be used to benchmark the solvers
+   */
+  public long totalIterations = 0;
+  /*
+   * Iterations stop early when the relative decrease of the solver error (see _error())
+   * between two consecutive iterations falls below this value (e.g., 0.001). Disabled (0)
+   * by default, but enabled on the solvers registered with Graph.registerTreeSolver(Node)
+   */
+  public float stagnation = 0;
+  /*
+   * When true, the iteration budget granted after a target change is proportional to the
+   * target displacement (relative to the solver reach, see _displacement()), so that
+   * slowly moving targets cost just a few iterations per frame. Disabled by default, but
+   * enabled on the solvers registered with Graph.registerTreeSolver(Node)
+   */
+  public boolean adaptive = false;
+  public int minIter = 4;
+  /*Relative share of the Graph IK budget granted to this solver (see Graph.setIKBudget(float))*/
+  public float priority = 1.f;
+
+  protected int _budget = Integer.MAX_VALUE;
+  protected float _lastError = -1;
 
   protected TimingTask _task;
 
@@ -53,27 +78,112 @@ public abstract class Solver {
 
   protected abstract void _reset();
 
-  public boolean solve() {
-    //Reset counter
+  /*
+   * Returns the current solver error (e.g., the distance between the end effectors and
+   * their targets) used to detect stagnation, or -1 if it can't be computed
+   */
+  protected float _error() {
+    return -1;
+  }
+
+  /*
+   * Returns the target displacement since the last reset relative to the solver reach, or
+   * -1 if unknown. Called just before _reset()
+   */
+  protected float _displacement() {
+    return -1;
+  }
+
+  /*
+   * Returns the iteration budget for the given relative target displacement. Note that
+   * solving starts from the current (i.e., last solved) pose, so a small displacement
+   * only requires a few iterations
+   */
+  protected int _budget(float displacement) {
+    if (!adaptive || displacement < 0)
+      return maxIter;
+    return Math.min(maxIter, minIter + (int) Math.ceil(displacement * maxIter));
+  }
+
+  /*
+   * Resets the solver if its targets have changed
+   */
+  protected void _check() {
     if (_changed()) {
+      _budget = _budget(_displacement());
+      _lastError = -1;
       _reset();
     }
+  }
+
+  /*
+   * Returns true if the solver has nothing left to do until its targets change
+   */
+  protected boolean _finished() {
+    return iterations >= Math.min(_budget, maxIter);
+  }
+
+  /*
+   * Performs a single iteration, checking the termination conditions. Returns true if a
+   * termination condition has been accomplished or the iteration budget is exhausted
+   */
+  protected boolean _step() {
+    //Returns a boolean that indicates if a termination condition has been accomplished
+    if (_iterate()) {
+      iterations = maxIter;
+      return true;
+    } else iterations += 1;
+    //Stop when the error doesn't decrease anymore
+    if (stagnation > 0) {
+      float error = _error();
+      if (_lastError > 0 && error >= 0 && (_lastError - error) / _lastError < stagnation) {
+        iterations = maxIter;
+        return true;
+      }
+      _lastError = error;
+    }
+    return _finished();
+  }
+
+  public boolean solve() {
+    //Reset counter
+    _check();
 
-    if (iterations == maxIter) {
+    if (_finished()) {
       return true;
     }
     frameCounter += timesPerFrame;
 
     while (Math.floor(frameCounter) > 0) {
-      //Returns a boolean that indicates if a termination condition has been accomplished
-      if (_iterate()) {
-        iterations = maxIter;
+      if (_step())
         break;
-      } else iterations += 1;
       frameCounter -= 1;
     }
     //update positions
     _update();
     return false;
   }
-}
\ No newline at end of file
+
+  /*
+   * Same as solve() but performs a single iteration regardless of timesPerFrame. The solver
+   * state is kept between calls, so that an external scheduler (see
+   * Graph.setIKBudget(float)) may spread the solving across several frames. Returns true
+   * if the solver has nothing left to do until its targets change
+   */
+  public boolean iterate() {
+    _check();
+    if (_finished())
+      return true;
+    boolean finished = _step();
+    _update();
+    return finished;
+  }
+
+  /*
+   * Returns the current solver error, i.e., the distance between the end effectors and their
+   * targets, or -1 if unknown. Used by Graph to schedule the solvers
+   */
+  public float residual() {
+    return _error();
+  }
+}
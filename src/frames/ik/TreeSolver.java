@@ -13,10 +13,13 @@ package frames.ik;
 
 import frames.core.Node;
 import frames.primitives.Frame;
+import frames.primitives.Matrix;
 import frames.primitives.Quaternion;
 import frames.primitives.Vector;
 
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 public class TreeSolver extends FABRIKSolver {
   /*Convenient Class to store ChainSolvers in a Tree Structure*/
@@ -26,6 +29,8 @@ public class TreeSolver extends FABRIKSolver {
     protected ChainSolver _solver;
     protected boolean _modified;
     protected float _weight = 1.f;
+    //Target reused by the chain solver when it is driven by its children
+    protected Frame _target;
 
     public TreeNode() {
       _children = new ArrayList<TreeNode>();
@@ -66,6 +71,38 @@ public class TreeSolver extends FABRIKSolver {
   /*Tree structure that contains a list of Solvers that must be accessed in a BFS way*/
   protected TreeNode root;
 
+  /*
+   * When true, the forward reaching stage of sibling sub-chains is split across the common
+   * fork-join pool. Sub-chains only write their own packed positions in that stage, whereas
+   * nodes are only rotated in the (sequential) backward reaching stage, which keeps results
+   * deterministic
+   */
+  public boolean parallel = false;
+
+  /*Head pose at the last reset, used to detect whole tree displacements*/
+  protected Vector _headPosition;
+  protected Quaternion _headOrientation = new Quaternion();
+
+  /*Scratch values reused across iterations*/
+  protected Vector _centroid = new Vector();
+  protected Vector _newCentroid = new Vector();
+  protected Matrix _matrix = new Matrix();
+
+  /*Fork-join task performing the forward reaching stage of a sub-tree*/
+  protected class ForwardTask extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+    protected TreeNode _treeNode;
+
+    protected ForwardTask(TreeNode treeNode) {
+      _treeNode = treeNode;
+    }
+
+    @Override
+    protected Integer compute() {
+      return _forwardReaching(_treeNode);
+    }
+  }
+
   public Node head() {
     return (Node) root._solver().head();
   }
@@ -109,6 +146,22 @@ public class TreeSolver extends FABRIKSolver {
     return _addTarget(root, endEffector, target);
   }
 
+  /**
+   * Returns the targets of the tree end effectors.
+   */
+  public ArrayList<Frame> targets() {
+    ArrayList<Frame> targets = new ArrayList<Frame>();
+    _targets(root, targets);
+    return targets;
+  }
+
+  protected void _targets(TreeNode treeNode, ArrayList<Frame> targets) {
+    if (treeNode._children().isEmpty() && treeNode._solver().target() != null)
+      targets.add(treeNode._solver().target());
+    for (TreeNode child : treeNode._children())
+      _targets(child, targets);
+  }
+
   public TreeSolver(Node genericFrame) {
     super();
     TreeNode dummy = new TreeNode(); //Dummy TreeNode to Keep Reference
@@ -121,8 +174,17 @@ public class TreeSolver extends FABRIKSolver {
     float totalWeight = 0;
     boolean modified = false;
     int chains = 0;
+    if (parallel && treeNode._children().size() > 1) {
+      ArrayList<ForwardTask> tasks = new ArrayList<ForwardTask>();
+      for (TreeNode child : treeNode._children())
+        tasks.add(new ForwardTask(child));
+      for (ForwardTask task : ForkJoinTask.invokeAll(tasks))
+        chains += task.join();
+    } else {
+      for (TreeNode child : treeNode._children())
+        chains += _forwardReaching(child);
+    }
     for (TreeNode child : treeNode._children()) {
-      chains += _forwardReaching(child);
       if (child._solver().target() != null) totalWeight += child._weight();
       modified = modified || child._modified;
     }
@@ -130,14 +192,20 @@ public class TreeSolver extends FABRIKSolver {
     ChainSolver solver = treeNode._solver();
     //TODO: add embedded target and enable to give it some weight - Weight/Target as an attribute of Chain or as TreeNode attribute?
     //Update Target according to children Head new Position
-    Vector newTarget = new Vector();
+    //(scratch values of the sub-chain solver are used, since sub-trees may run concurrently)
+    Vector newTarget = solver._targetPosition;
+    newTarget.set(0, 0, 0);
     for (TreeNode child : treeNode._children()) {
       //If Child Chain Joints new positions doesn't matter
       if (child._solver().target() == null) continue;
-      newTarget.add(Vector.multiply(child._solver()._positions().get(0), 1.f / totalWeight));
+      newTarget.add(Vector.multiply(child._solver()._position(0, solver._diff), 1.f / totalWeight, solver._diff));
     }
     if (newTarget.magnitude() > 0) {
-      solver.setTarget(new Frame(newTarget, solver.endEffector().orientation().get()));
+      if (treeNode._target == null)
+        treeNode._target = new Frame();
+      treeNode._target.setPosition(newTarget);
+      treeNode._target.setOrientation(solver.endEffector().orientation(solver._quaternion));
+      solver.setTarget(treeNode._target);
     }
 
     //Execute Until the distance between the end effector and the target is below a threshold
@@ -145,11 +213,11 @@ public class TreeSolver extends FABRIKSolver {
       treeNode._modified = false;
       return chains;
     }
-    if (Vector.distance(solver.endEffector().position(), solver.target().position()) <= error) {
+    if (Vector.distance(solver.endEffector().position(solver._p), solver.target().position(solver._q)) <= error) {
       treeNode._modified = false;
       return chains;
     }
-    solver._positions().set(solver.chain().size() - 1, solver._target.position().get());
+    solver._setPosition(solver.chain().size() - 1, solver._q);
     solver._forwardReaching();
     treeNode._modified = true;
     return chains + 1;
@@ -159,7 +227,7 @@ public class TreeSolver extends FABRIKSolver {
     float change = minDistance;
     if (treeNode._modified) {
       ChainSolver solver = treeNode._solver();
-      solver._positions().set(0, solver.head().position());
+      solver._setPosition(0, solver.head().position(_p));
       change = solver._backwardReaching();
       /*When executing Backward Step, if the Frame is a SubBase (Has more than 1 Child) and
        * it is not a "dummy Frame" (Convenient Frame that constraints position but no orientation of
@@ -169,21 +237,23 @@ public class TreeSolver extends FABRIKSolver {
       //TODO : Perhaps add an option to not execute this step
       // (Last chain modified determines Sub Base orientation)
       if (treeNode._children().size() > 1) {
-        Vector centroid = new Vector();
-        Vector newCentroid = new Vector();
+        Vector centroid = _centroid;
+        Vector newCentroid = _newCentroid;
+        centroid.set(0, 0, 0);
+        newCentroid.set(0, 0, 0);
         float totalWeight = 0;
         for (TreeNode child : treeNode._children()) {
           //If target is null, then Joint must not be included
           if (child._solver().target() == null) continue;
           if (child._solver().chain().size() < 2) continue;
           if (child._solver().chain().get(1).translation().magnitude() == 0) continue;
-          Vector diff = solver.endEffector().coordinatesOf(child._solver().chain().get(1).position());
-          centroid.add(Vector.multiply(diff, child._weight()));
+          Vector diff = solver.endEffector().coordinatesOf(child._solver().chain().get(1).position(_p), _diff);
+          centroid.add(Vector.multiply(diff, child._weight(), _scaled));
           if (child._modified) {
-            diff = solver.endEffector().coordinatesOf(child._solver()._positions().get(1));
-            newCentroid.add(Vector.multiply(diff, child._weight()));
+            diff = solver.endEffector().coordinatesOf(child._solver()._position(1, _p), _diff);
+            newCentroid.add(Vector.multiply(diff, child._weight(), _scaled));
           } else {
-            newCentroid.add(Vector.multiply(diff, child._weight()));
+            newCentroid.add(Vector.multiply(diff, child._weight(), _scaled));
           }
           totalWeight += child._weight();
         }
@@ -191,13 +261,14 @@ public class TreeSolver extends FABRIKSolver {
         if (Vector.distance(centroid, newCentroid) > 0.001) {
           centroid.multiply(1.f / totalWeight);
           newCentroid.multiply(1.f / totalWeight);
-          Quaternion deltaOrientation = new Quaternion(centroid, newCentroid);
+          Quaternion deltaOrientation = _quaternion;
+          deltaOrientation.fromTo(centroid, newCentroid);
           treeNode._solver().endEffector().rotate(deltaOrientation);
           for (TreeNode child : treeNode._children()) {
             if (child._solver().chain().size() < 2) continue;
             if (child._solver().chain().get(1).translation().magnitude() == 0) continue;
             if (child._modified) {
-              child._solver()._positions().set(1, child._solver().chain().get(1).position());
+              child._solver()._setPosition(1, child._solver().chain().get(1).position(_p));
             }
           }
         }
@@ -209,8 +280,25 @@ public class TreeSolver extends FABRIKSolver {
     return change;
   }
 
+  /*
+   * Updates the world cache of all the tree nodes and of their targets (together with
+   * their reference chains) before a parallel forward reaching stage, so that concurrent
+   * sub-chains only read them
+   * */
+  protected void _cache(TreeNode treeNode) {
+    treeNode._solver().endEffector().position(_diff);
+    if (treeNode._solver().target() != null)
+      treeNode._solver().target().worldMatrix(_matrix);
+    for (TreeNode child : treeNode._children()) {
+      _cache(child);
+    }
+  }
+
   @Override
   protected boolean _iterate() {
+    totalIterations++;
+    if (parallel)
+      _cache(root);
     int modifiedChains = _forwardReaching(root);
     float change = _backwardReaching(root);
     change = modifiedChains > 0 ? change / (modifiedChains * 1.f) : change;
@@ -236,24 +324,80 @@ public class TreeSolver extends FABRIKSolver {
     return false;
   }
 
+  /*
+   * Returns true if the target of the tree node chain is a user one, i.e., it isn't the one
+   * computed from its children in the forward reaching stage
+   * */
+  protected boolean _hasTarget(TreeNode treeNode) {
+    return treeNode._solver().target() != null && treeNode._solver().target() != treeNode._target;
+  }
+
   protected boolean _changed(TreeNode treeNode) {
     if (treeNode == null) return false;
-    if (treeNode._solver()._changed()) return true;
+    //Targets computed from the children change on every iteration and don't require a reset
+    if (treeNode._solver().target() != treeNode._target && treeNode._solver()._changed()) return true;
     for (TreeNode child : treeNode._children()) {
       if (_changed(child)) return true;
     }
     return false;
   }
 
+  /*
+   * Returns true if the head (or its reference) has been moved since the last reset
+   * */
+  protected boolean _headChanged() {
+    if (_headPosition == null)
+      return true;
+    Frame head = root._solver().head();
+    if (!head.position(_diff).matches(_headPosition))
+      return true;
+    return head.reference() != null && !head.reference().orientation(_quaternion).matches(_headOrientation);
+  }
+
   @Override
   protected boolean _changed() {
-    return _changed(root);
+    return _changed(root) || _headChanged();
+  }
+
+  protected float _displacement(TreeNode treeNode) {
+    float displacement = 0;
+    if (_hasTarget(treeNode) && treeNode._solver()._changed()) {
+      displacement = treeNode._solver()._displacement();
+      if (displacement < 0)
+        return -1;
+    }
+    for (TreeNode child : treeNode._children()) {
+      float childDisplacement = _displacement(child);
+      if (childDisplacement < 0)
+        return -1;
+      displacement = Math.max(displacement, childDisplacement);
+    }
+    return displacement;
+  }
+
+  @Override
+  protected float _displacement() {
+    return _headChanged() ? -1 : _displacement(root);
+  }
+
+  protected float _error(TreeNode treeNode) {
+    float error = _hasTarget(treeNode) ? treeNode._solver()._error() : 0;
+    for (TreeNode child : treeNode._children()) {
+      error += _error(child);
+    }
+    return error;
+  }
+
+  @Override
+  protected float _error() {
+    return _error(root);
   }
 
   protected void _reset(TreeNode treeNode) {
     if (treeNode == null) return;
-    //Update Previous Target
+    //Update Previous Target, otherwise just seed the chain from the current (last solved) pose
     if (treeNode._solver()._changed()) treeNode._solver()._reset();
+    else treeNode._solver()._init();
     for (TreeNode child : treeNode._children()) {
       _reset(child);
     }
@@ -262,6 +406,10 @@ public class TreeSolver extends FABRIKSolver {
   @Override
   public void _reset() {
     iterations = 0;
+    Frame head = root._solver().head();
+    _headPosition = head.position(_headPosition);
+    if (head.reference() != null)
+      head.reference().orientation(_headOrientation);
     _reset(root);
   }
 }
\ No newline at end of file
@@ -64,7 +64,10 @@ public abstract class Agent {
       setDefaultGrabber(null);
     if (trackedGrabber() == grabber)
       resetTrackedGrabber();
-    return _grabberPool.remove(grabber);
+    boolean result = _grabberPool.remove(grabber);
+    if (result)
+      _grabbersModified();
+    return result;
   }
 
   /**
@@ -79,6 +82,16 @@ public abstract class Agent {
     setDefaultGrabber(null);
     _trackedGrabber = null;
     _grabberPool.clear();
+    _grabbersModified();
+  }
+
+  /**
+   * Notifies the {@link InputHandler#grabberIndex()} (if any) that the {@link #grabbers()}
+   * list has changed.
+   */
+  protected void _grabbersModified() {
+    if (inputHandler() != null && inputHandler().grabberIndex() != null)
+      inputHandler().grabberIndex().invalidate(this);
   }
 
   /**
@@ -121,6 +134,7 @@ public abstract class Agent {
       return false;
     if (hasGrabber(grabber))
       return false;
+    _grabbersModified();
     return _grabberPool.add(grabber);
   }
 
@@ -182,6 +196,17 @@ public abstract class Agent {
     return null;
   }
 
+  /**
+   * Same as {@code return inputHandler().post(this, event)}. Thread-safe, i.e., events
+   * may be published from a device thread instead of being polled with the feeds.
+   *
+   * @see InputHandler#post(Agent, Event)
+   * @see #feed()
+   */
+  public boolean post(Event event) {
+    return inputHandler().post(this, event);
+  }
+
   /**
    * Returns the {@link InputHandler} this agent is registered to.
    */
@@ -197,6 +222,9 @@ public abstract class Agent {
    * returned. Note that a null grabber means that no object in the {@link #grabbers()}
    * met the condition. A {@link #inputGrabber()} may also be enforced simply with
    * {@link #setDefaultGrabber(Grabber)}.
+   * <p>
+   * If an {@link InputHandler#grabberIndex()} is set, only its
+   * {@link GrabberIndex#candidates(Agent, Event)} are queried.
    *
    * @param event to query the {@link #grabbers()}
    * @return the new grabber which may be null.
@@ -224,9 +252,10 @@ public abstract class Agent {
     if (tG != null)
       if (tG.track(event))
         return trackedGrabber();
-    // pick the first otherwise
+    // pick the first otherwise (among the grabber index candidates, if any)
     _trackedGrabber = null;
-    for (Grabber grabber : _grabberPool)
+    List<Grabber> candidates = inputHandler().grabberIndex() == null ? null : inputHandler().grabberIndex().candidates(this, event);
+    for (Grabber grabber : candidates == null ? _grabberPool : candidates)
       if (grabber != dG && grabber != tG)
         if (grabber.track(event)) {
           _trackedGrabber = grabber;
@@ -82,6 +82,18 @@ public class Event {
     return new Event(this);
   }
 
+  /**
+   * Returns a new event equivalent to this event immediately followed by the {@code next}
+   * one, or {@code null} if the two events can't be merged (default). Used by the
+   * {@link InputHandler} to coalesce redundant {@link InputHandler#post(Agent, Event)}ed
+   * events.
+   *
+   * @see frames.input.event.MotionEvent
+   */
+  protected Event _coalesce(Event next) {
+    return null;
+  }
+
   /**
    * Same as {@code this.get()} but sets the {@link #flushed()} flag to true. Only agents
    * may call this.
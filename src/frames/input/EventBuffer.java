@@ -0,0 +1,133 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.input;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free multi-producer single-consumer ring buffer of [{@link Agent},
+ * {@link Event}] pairs. Any number of threads (e.g., device, network or replay ones) may
+ * {@link #offer(Agent, Event)} events concurrently, while a single thread (the
+ * {@link InputHandler} one) {@link #drain(Agent[], Event[])}s them in batches.
+ * <p>
+ * Each slot has a sequence number telling whether it's free for the producer claiming it
+ * or ready for the consumer, so that producers only contend on the tail counter and the
+ * consumer never does.
+ */
+public class EventBuffer {
+  protected final int _capacity;
+  protected final int _mask;
+  protected final AtomicLongArray _sequences;
+  protected final Agent[] _agents;
+  protected final Event[] _events;
+  protected final AtomicLong _tail = new AtomicLong();
+  // consumer only
+  protected long _head;
+
+  /**
+   * Constructs a buffer holding up to {@code capacity} events (rounded up to the next power
+   * of two).
+   */
+  public EventBuffer(int capacity) {
+    int size = 1;
+    while (size < capacity)
+      size <<= 1;
+    _capacity = size;
+    _mask = size - 1;
+    _sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++)
+      _sequences.set(i, i);
+    _agents = new Agent[size];
+    _events = new Event[size];
+  }
+
+  /**
+   * Returns the buffer capacity.
+   */
+  public int capacity() {
+    return _capacity;
+  }
+
+  /**
+   * Publishes the {@code event} to be handled by the given {@code agent}. Thread-safe and
+   * lock-free. Returns {@code false} (and discards the event) if the buffer is full.
+   */
+  public boolean offer(Agent agent, Event event) {
+    long tail;
+    int index;
+    while (true) {
+      tail = _tail.get();
+      index = (int) tail & _mask;
+      long sequence = _sequences.get(index);
+      if (sequence == tail) {
+        if (_tail.compareAndSet(tail, tail + 1))
+          break;
+      } else if (sequence < tail)
+        // the slot still holds an event published a lap ago
+        return false;
+    }
+    _agents[index] = agent;
+    _events[index] = event;
+    // publishes the slot (the volatile write orders the plain writes above)
+    _sequences.set(index, tail + 1);
+    return true;
+  }
+
+  /**
+   * Returns the sequence number of the next event to be offered, i.e., the number of
+   * events offered so far.
+   *
+   * @see #drain(Agent[], Event[], long)
+   */
+  public long tail() {
+    return _tail.get();
+  }
+
+  /**
+   * Same as {@code drain(agents, events, Long.MAX_VALUE)}.
+   *
+   * @see #drain(Agent[], Event[], long)
+   */
+  public int drain(Agent[] agents, Event[] events) {
+    return drain(agents, events, Long.MAX_VALUE);
+  }
+
+  /**
+   * Moves the published events (up to {@code events.length}) whose sequence number is
+   * below {@code limit} (see {@link #tail()}) into the given arrays, in publishing order,
+   * and returns their number. Must only be called from the consumer thread.
+   */
+  public int drain(Agent[] agents, Event[] events, long limit) {
+    int count = 0;
+    while (count < events.length && _head < limit) {
+      int index = (int) _head & _mask;
+      if (_sequences.get(index) != _head + 1)
+        break;
+      agents[count] = _agents[index];
+      events[count++] = _events[index];
+      _agents[index] = null;
+      _events[index] = null;
+      // frees the slot for the next lap
+      _sequences.lazySet(index, _head + _capacity);
+      _head++;
+    }
+    return count;
+  }
+
+  /**
+   * Returns {@code true} if there are no published events. Must only be called from the
+   * consumer thread.
+   */
+  public boolean isEmpty() {
+    return _sequences.get((int) _head & _mask) != _head + 1;
+  }
+}
@@ -0,0 +1,33 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.input;
+
+import java.util.List;
+
+/**
+ * Grabber indices speed up {@link Agent#poll(Event)} by narrowing the
+ * {@link Agent#grabbers()} that need to be queried to those which may actually
+ * {@link Grabber#track(Event)} the event. Set it with
+ * {@link InputHandler#setGrabberIndex(GrabberIndex)}.
+ */
+public interface GrabberIndex {
+  /**
+   * Returns the subset of the {@code agent} {@link Agent#grabbers()} which may
+   * {@link Grabber#track(Event)} the {@code event}, in the same order they appear in
+   * the agent grabbers list, or {@code null} if all of them should be queried.
+   */
+  List<Grabber> candidates(Agent agent, Event event);
+
+  /**
+   * Called by the {@code agent} when its {@link Agent#grabbers()} list changes.
+   */
+  void invalidate(Agent agent);
+}
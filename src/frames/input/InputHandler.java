@@ -11,8 +11,12 @@
 package frames.input;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The InputHandler object is the high level package handler which holds a collection of
@@ -26,17 +30,48 @@ import java.util.List;
  * At runtime, the inputGrabber handler should continuously run the two loops defined in
  * {@link #handle()}. Therefore, simply attach a call to {@link #handle()} at the end of
  * your main event (drawing) loop for that to take effect.
+ * <p>
+ * Besides the agent feeds, events may be {@link #post(Agent, Event)}ed from any thread
+ * (e.g., network controllers, HID readers or replay streams) into a lock-free
+ * {@link EventBuffer} which is drained by {@link #handle()}.
  */
 public class InputHandler {
   // D E V I C E S & E V E N T S
   protected List<Agent> _agents;
   protected LinkedList<Tuple> _tupleQueue;
+  protected Set<Tuple> _tupleSet;
+  protected GrabberIndex _grabberIndex;
+
+  // Events posted from other threads
+  protected EventBuffer _eventBuffer;
+  protected Agent[] _batchAgents;
+  protected Event[] _batchEvents;
+  protected boolean _coalescing;
 
+  /**
+   * Same as {@code this(1024, 64)}.
+   *
+   * @see #InputHandler(int, int)
+   */
   public InputHandler() {
+    this(1024, 64);
+  }
+
+  /**
+   * Constructs a handler whose {@link #post(Agent, Event)}ed events buffer holds up to
+   * {@code bufferSize} events (see {@link #eventBufferSize()}), drained in batches of
+   * {@code batchSize} events (see {@link #batchSize()}).
+   */
+  public InputHandler(int bufferSize, int batchSize) {
     // agents
     _agents = new ArrayList<Agent>();
     // events
     _tupleQueue = new LinkedList<Tuple>();
+    _tupleSet = Collections.newSetFromMap(new IdentityHashMap<Tuple, Boolean>());
+    _eventBuffer = new EventBuffer(bufferSize);
+    _batchAgents = new Agent[Math.max(1, batchSize)];
+    _batchEvents = new Event[Math.max(1, batchSize)];
+    _coalescing = true;
   }
 
   /**
@@ -52,7 +87,9 @@ public class InputHandler {
    * {@link Agent#pollFeed()} and
    * {@link Agent#handleFeed()} methods, respectively. The event
    * may also be obtained from {@link Agent#handleFeed()} which may
-   * replace both of the previous feeds when they are null.<br>
+   * replace both of the previous feeds when they are null. Then, for each
+   * {@link #post(Agent, Event)}ed event (see {@link #isEventCoalescingEnabled()}), calls
+   * {@link Agent#poll(Event)} and {@link Agent#handle(Event)} on its agent.<br>
    * 2. User-defined action consumer loop: which for each
    * {@link Tuple} calls
    * {@link Tuple#interact()}.<br>
@@ -67,9 +104,126 @@ public class InputHandler {
       agent.poll(agent.pollFeed() != null ? agent.pollFeed() : agent.feed());
       agent.handle(agent.handleFeed() != null ? agent.handleFeed() : agent.feed());
     }
+    _drain();
     // 2. Low level events
     while (!_tupleQueue.isEmpty())
       _tupleQueue.remove().interact();
+    _tupleSet.clear();
+  }
+
+  /**
+   * Drains the {@link #post(Agent, Event)}ed events in batches, merging consecutive events
+   * of the same agent if {@link #isEventCoalescingEnabled()}. Only the events posted before
+   * the call are drained, so that steady posting can't hold the handler forever; the
+   * others are left for the next call.
+   */
+  protected void _drain() {
+    Agent agent = null;
+    Event event = null;
+    long limit = _eventBuffer.tail();
+    int count;
+    while ((count = _eventBuffer.drain(_batchAgents, _batchEvents, limit)) > 0) {
+      for (int i = 0; i < count; i++) {
+        Event coalesced = _coalescing && agent == _batchAgents[i] && event != null ? event._coalesce(_batchEvents[i]) : null;
+        if (coalesced != null)
+          event = coalesced;
+        else {
+          _dispatch(agent, event);
+          agent = _batchAgents[i];
+          event = _batchEvents[i];
+        }
+        _batchAgents[i] = null;
+        _batchEvents[i] = null;
+      }
+      if (count < _batchEvents.length)
+        break;
+    }
+    _dispatch(agent, event);
+  }
+
+  protected void _dispatch(Agent agent, Event event) {
+    if (agent == null || event == null)
+      return;
+    agent.poll(event);
+    agent.handle(event);
+  }
+
+  /**
+   * Publishes the {@code event} to be handled by the given {@code agent} (i.e., its
+   * {@link Agent#poll(Event)} and {@link Agent#handle(Event)} methods) at the next
+   * {@link #handle()} call. Unlike the rest of the handler methods, this one may be
+   * called from any thread, without locking. Returns {@code false} if the event couldn't
+   * be published since {@link #eventBufferSize()} events are already pending.
+   *
+   * @see Agent#post(Event)
+   */
+  public boolean post(Agent agent, Event event) {
+    if (agent == null || event == null)
+      return false;
+    return _eventBuffer.offer(agent, event);
+  }
+
+  /**
+   * Returns the maximum number of {@link #post(Agent, Event)}ed events pending to be
+   * handled, i.e., the constructor {@code bufferSize} rounded up to the next power of two.
+   *
+   * @see #InputHandler(int, int)
+   */
+  public int eventBufferSize() {
+    return _eventBuffer.capacity();
+  }
+
+  /**
+   * Returns the number of {@link #post(Agent, Event)}ed events drained at once.
+   *
+   * @see #InputHandler(int, int)
+   */
+  public int batchSize() {
+    return _batchEvents.length;
+  }
+
+  /**
+   * Disables the coalescing of {@link #post(Agent, Event)}ed events.
+   *
+   * @see #enableEventCoalescing()
+   * @see #isEventCoalescingEnabled()
+   */
+  public void disableEventCoalescing() {
+    enableEventCoalescing(false);
+  }
+
+  /**
+   * Enables the coalescing of {@link #post(Agent, Event)}ed events, i.e., consecutive
+   * events of the same agent which are redundant (such as motion events of the same
+   * type and shortcut, see {@link frames.input.event.MotionEvent}) are merged into a
+   * single one before being handled. Enabled by default.
+   *
+   * @see #disableEventCoalescing()
+   * @see #isEventCoalescingEnabled()
+   */
+  public void enableEventCoalescing() {
+    enableEventCoalescing(true);
+  }
+
+  /**
+   * Enables or disables the coalescing of {@link #post(Agent, Event)}ed events according
+   * to {@code flag}.
+   *
+   * @see #enableEventCoalescing()
+   * @see #disableEventCoalescing()
+   */
+  public void enableEventCoalescing(boolean flag) {
+    _coalescing = flag;
+  }
+
+  /**
+   * Returns {@code true} if the coalescing of {@link #post(Agent, Event)}ed events is
+   * enabled and {@code false} otherwise.
+   *
+   * @see #enableEventCoalescing(boolean)
+   */
+  public boolean isEventCoalescingEnabled() {
+    return _coalescing;
   }
 
   /**
@@ -148,6 +302,26 @@ public class InputHandler {
       agent.resetTrackedGrabber();
   }
 
+  /**
+   * Returns the grabber index used by the {@link #agents()} to {@link Agent#poll(Event)}
+   * their grabbers, or {@code null} if none is set (default).
+   *
+   * @see #setGrabberIndex(GrabberIndex)
+   */
+  public GrabberIndex grabberIndex() {
+    return _grabberIndex;
+  }
+
+  /**
+   * Sets the grabber index used by the {@link #agents()} to {@link Agent#poll(Event)}
+   * their grabbers. Pass {@code null} to query all the agent grabbers.
+   *
+   * @see #grabberIndex()
+   */
+  public void setGrabberIndex(GrabberIndex index) {
+    _grabberIndex = index;
+  }
+
   /**
    * Returns a list of the registered agents.
    */
@@ -200,18 +374,26 @@ public class InputHandler {
    * @see #handle()
    */
   public boolean enqueueTuple(Tuple tuple) {
-    if (!_tupleQueue.contains(tuple))
+    if (_tupleSet.add(tuple))
       return _tupleQueue.add(tuple);
     return false;
   }
 
   /**
-   * Removes the given event from the event queue. No action is executed.
+   * Removes the tuples holding the given event from the event queue. No action is
+   * executed.
    *
    * @param event to be removed.
    */
   public void removeTuple(Event event) {
-    _tupleQueue.remove(event);
+    Iterator<Tuple> iterator = _tupleQueue.iterator();
+    while (iterator.hasNext()) {
+      Tuple tuple = iterator.next();
+      if (tuple.event() == event) {
+        iterator.remove();
+        _tupleSet.remove(tuple);
+      }
+    }
   }
 
   /**
@@ -219,5 +401,6 @@ public class InputHandler {
    */
   public void removeTuples() {
     _tupleQueue.clear();
+    _tupleSet.clear();
   }
 }
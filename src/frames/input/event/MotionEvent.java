@@ -74,6 +74,34 @@ public class MotionEvent extends Event {
     return (MotionEvent) super.fire();
   }
 
+  /**
+   * Two motion events of the same type and {@link #shortcut()}, none of them being
+   * {@link #fired()} nor {@link #flushed()}, are merged into a copy of the {@code next}
+   * one whose dof deltas, {@link #distance()} and {@link #delay()} accumulate those of
+   * both events.
+   */
+  @Override
+  protected MotionEvent _coalesce(Event next) {
+    if (next == null || next.getClass() != getClass() || fired() || flushed() || next.fired() || next.flushed())
+      return null;
+    MotionEvent motionEvent = (MotionEvent) next;
+    if (motionEvent.modifiers() != modifiers() || motionEvent.id() != id() || motionEvent.isRelative() != isRelative())
+      return null;
+    MotionEvent event = motionEvent.get();
+    event._merge(this, motionEvent);
+    event._distance = _distance + motionEvent._distance;
+    event._delay = _delay + motionEvent._delay;
+    event._speed = event._delay == 0 ? event._distance : event._distance / (float) event._delay;
+    return event;
+  }
+
+  /**
+   * Sets the dof deltas of this event (a copy of {@code next}) as the sum of the
+   * {@code previous} and {@code next} ones. See {@link #_coalesce(Event)}.
+   */
+  protected void _merge(MotionEvent previous, MotionEvent next) {
+  }
+
   /**
    * Returns the delay between two consecutive motion events. Meaningful only if the event
    * {@link #isRelative()}.
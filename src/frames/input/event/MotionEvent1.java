@@ -111,6 +111,11 @@ public class MotionEvent1 extends MotionEvent {
     return (MotionEvent1) super.fire();
   }
 
+  @Override
+  protected void _merge(MotionEvent previous, MotionEvent next) {
+    _dx = ((MotionEvent1) previous)._dx + ((MotionEvent1) next)._dx;
+  }
+
   @Override
   protected void _setPrevious(MotionEvent previous) {
     _relative = true;
@@ -123,6 +123,12 @@ public class MotionEvent2 extends MotionEvent {
     return (MotionEvent2) super.fire();
   }
 
+  @Override
+  protected void _merge(MotionEvent previous, MotionEvent next) {
+    _dx = ((MotionEvent2) previous)._dx + ((MotionEvent2) next)._dx;
+    _dy = ((MotionEvent2) previous)._dy + ((MotionEvent2) next)._dy;
+  }
+
   @Override
   protected void _setPrevious(MotionEvent previous) {
     _relative = true;
@@ -134,6 +134,13 @@ public class MotionEvent3 extends MotionEvent {
     return (MotionEvent3) super.fire();
   }
 
+  @Override
+  protected void _merge(MotionEvent previous, MotionEvent next) {
+    _dx = ((MotionEvent3) previous)._dx + ((MotionEvent3) next)._dx;
+    _dy = ((MotionEvent3) previous)._dy + ((MotionEvent3) next)._dy;
+    _dz = ((MotionEvent3) previous)._dz + ((MotionEvent3) next)._dz;
+  }
+
   @Override
   protected void _setPrevious(MotionEvent previous) {
     _relative = true;
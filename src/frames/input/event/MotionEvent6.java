@@ -169,6 +169,16 @@ public class MotionEvent6 extends MotionEvent {
     return (MotionEvent6) super.fire();
   }
 
+  @Override
+  protected void _merge(MotionEvent previous, MotionEvent next) {
+    _dx = ((MotionEvent6) previous)._dx + ((MotionEvent6) next)._dx;
+    _dy = ((MotionEvent6) previous)._dy + ((MotionEvent6) next)._dy;
+    _dz = ((MotionEvent6) previous)._dz + ((MotionEvent6) next)._dz;
+    _drx = ((MotionEvent6) previous)._drx + ((MotionEvent6) next)._drx;
+    _dry = ((MotionEvent6) previous)._dry + ((MotionEvent6) next)._dry;
+    _drz = ((MotionEvent6) previous)._drz + ((MotionEvent6) next)._drz;
+  }
+
   @Override
   protected void _setPrevious(MotionEvent previous) {
     _relative = true;
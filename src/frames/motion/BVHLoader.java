@@ -0,0 +1,307 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.motion;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * Streams a <a href="http://www.dcs.shef.ac.uk/intranet/research/public/resmes/CS0111.pdf">
+ * bvh</a> file into a {@link Clip}.
+ * <p>
+ * The motion data is tokenized straight from the reader buffer (numbers are parsed without
+ * instantiating any string) and each frame is converted and quantized into the clip as
+ * soon as it is read, so that no per-frame objects are kept. Translation channels holding
+ * the same value along the whole clip (e.g., bvh exporters usually emit six channels per
+ * joint) are dropped from the clip once loaded.
+ */
+public class BVHLoader {
+  protected static final int XPOSITION = 0, YPOSITION = 1, ZPOSITION = 2, XROTATION = 3, YROTATION = 4, ZROTATION = 5;
+  protected static final double[] POWERS = new double[23];
+
+  static {
+    POWERS[0] = 1;
+    for (int i = 1; i < POWERS.length; i++)
+      POWERS[i] = 10 * POWERS[i - 1];
+  }
+
+  protected Reader _reader;
+  protected char[] _buffer = new char[1 << 16];
+  protected int _length, _position;
+  protected StringBuilder _token = new StringBuilder();
+
+  protected ArrayList<String> _names = new ArrayList<String>();
+  protected ArrayList<Integer> _parents = new ArrayList<Integer>();
+  protected ArrayList<float[]> _offsets = new ArrayList<float[]>();
+  protected ArrayList<int[]> _channels = new ArrayList<int[]>();
+
+  protected BVHLoader(Reader reader) {
+    _reader = reader;
+  }
+
+  /**
+   * Loads the bvh file at the given {@code path}.
+   */
+  public static Clip load(String path) throws IOException {
+    return load(new File(path));
+  }
+
+  /**
+   * Loads the given bvh {@code file}.
+   */
+  public static Clip load(File file) throws IOException {
+    Reader reader = new InputStreamReader(new FileInputStream(file), "US-ASCII");
+    try {
+      return load(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Loads a bvh from the given {@code reader}, which isn't closed.
+   */
+  public static Clip load(Reader reader) throws IOException {
+    return new BVHLoader(reader)._load();
+  }
+
+  protected Clip _load() throws IOException {
+    //Hierarchy
+    String token = _next();
+    if (token == null || !token.equalsIgnoreCase("HIERARCHY"))
+      throw new IOException("bvh HIERARCHY section expected");
+    token = _next();
+    if (token == null || !token.equalsIgnoreCase("ROOT"))
+      throw new IOException("bvh ROOT expected");
+    _joint(-1);
+    //A Clip holds a single skeleton
+    while ((token = _next()) != null && !token.equalsIgnoreCase("MOTION"))
+      if (token.equalsIgnoreCase("ROOT"))
+        throw new IOException("bvh multiple ROOTs aren't supported");
+    if (token == null)
+      throw new IOException("bvh MOTION section expected");
+    int frames = 0;
+    float period = 0;
+    for (int i = 0; i < 2; i++) {
+      token = _next();
+      if (token == null)
+        throw new IOException("bvh frame count and time expected");
+      if (token.toUpperCase().startsWith("FRAMES")) {
+        frames = (int) _nextFloat();
+      } else if (token.equalsIgnoreCase("FRAME")) {
+        _next();
+        period = _nextFloat();
+      }
+    }
+    //Motion
+    int joints = _names.size();
+    String[] names = _names.toArray(new String[joints]);
+    int[] parents = new int[joints];
+    float[] offsets = new float[3 * joints];
+    boolean[] translations = new boolean[joints];
+    boolean[] rotations = new boolean[joints];
+    for (int i = 0; i < joints; i++) {
+      parents[i] = _parents.get(i);
+      System.arraycopy(_offsets.get(i), 0, offsets, 3 * i, 3);
+      for (int channel : _channels.get(i)) {
+        translations[i] |= channel <= ZPOSITION;
+        rotations[i] |= channel >= XROTATION;
+      }
+    }
+    Clip clip = new Clip(names, parents, offsets, translations, rotations, period);
+    clip._reserve(frames);
+    while (_skipWhitespace()) {
+      int frame = clip._frames;
+      clip._reserve(frame + 1);
+      for (int i = 0; i < joints; i++) {
+        float tx = offsets[3 * i], ty = offsets[3 * i + 1], tz = offsets[3 * i + 2];
+        float x = 0, y = 0, z = 0, w = 1;
+        for (int channel : _channels.get(i)) {
+          float value = _nextFloat();
+          if (channel == XPOSITION)
+            tx = value;
+          else if (channel == YPOSITION)
+            ty = value;
+          else if (channel == ZPOSITION)
+            tz = value;
+          else {
+            //compose the rotation with the channel axis one
+            double half = Math.toRadians(value) / 2;
+            float s = (float) Math.sin(half), c = (float) Math.cos(half);
+            float rx = channel == XROTATION ? s : 0, ry = channel == YROTATION ? s : 0, rz = channel == ZROTATION ? s : 0;
+            float nx = w * rx + x * c + y * rz - z * ry;
+            float ny = w * ry - x * rz + y * c + z * rx;
+            float nz = w * rz + x * ry - y * rx + z * c;
+            w = w * c - x * rx - y * ry - z * rz;
+            x = nx;
+            y = ny;
+            z = nz;
+          }
+        }
+        if (translations[i])
+          clip._setTranslation(frame, i, tx, ty, tz);
+        if (rotations[i])
+          clip._setRotation(frame, i, x, y, z, w);
+      }
+      clip._frames++;
+    }
+    return clip._compact(clip._frames);
+  }
+
+  /**
+   * Parses a joint block (after its ROOT or JOINT keyword).
+   */
+  protected void _joint(int parent) throws IOException {
+    int index = _names.size();
+    _names.add(_next());
+    _parents.add(parent);
+    float[] offset = new float[3];
+    _offsets.add(offset);
+    _channels.add(new int[0]);
+    if (!"{".equals(_next()))
+      throw new IOException("bvh { expected after joint " + _names.get(index));
+    String token;
+    while ((token = _next()) != null) {
+      if (token.equals("}"))
+        return;
+      if (token.equalsIgnoreCase("OFFSET")) {
+        offset[0] = _nextFloat();
+        offset[1] = _nextFloat();
+        offset[2] = _nextFloat();
+      } else if (token.equalsIgnoreCase("CHANNELS")) {
+        int[] channels = new int[(int) _nextFloat()];
+        for (int i = 0; i < channels.length; i++)
+          channels[i] = _channel(_next());
+        _channels.set(index, channels);
+      } else if (token.equalsIgnoreCase("JOINT")) {
+        _joint(index);
+      } else if (token.equalsIgnoreCase("END")) {
+        //End Site: skip its block
+        while ((token = _next()) != null && !token.equals("}")) ;
+      }
+    }
+    throw new IOException("bvh unexpected end of hierarchy");
+  }
+
+  protected int _channel(String name) throws IOException {
+    if (name != null) {
+      String channel = name.toUpperCase();
+      if (channel.equals("XPOSITION")) return XPOSITION;
+      if (channel.equals("YPOSITION")) return YPOSITION;
+      if (channel.equals("ZPOSITION")) return ZPOSITION;
+      if (channel.equals("XROTATION")) return XROTATION;
+      if (channel.equals("YROTATION")) return YROTATION;
+      if (channel.equals("ZROTATION")) return ZROTATION;
+    }
+    throw new IOException("bvh unknown channel " + name);
+  }
+
+  protected int _peek() throws IOException {
+    if (_position == _length) {
+      _length = _reader.read(_buffer, 0, _buffer.length);
+      _position = 0;
+      if (_length <= 0) {
+        _length = 0;
+        return -1;
+      }
+    }
+    return _buffer[_position];
+  }
+
+  /**
+   * Skips whitespace. Returns false if the end of the stream has been reached.
+   */
+  protected boolean _skipWhitespace() throws IOException {
+    int c;
+    while ((c = _peek()) != -1 && c <= ' ')
+      _position++;
+    return c != -1;
+  }
+
+  /**
+   * Returns the next whitespace delimited token, or null at the end of the stream.
+   */
+  protected String _next() throws IOException {
+    if (!_skipWhitespace())
+      return null;
+    _token.setLength(0);
+    int c;
+    while ((c = _peek()) != -1 && c > ' ') {
+      _token.append((char) c);
+      _position++;
+    }
+    return _token.toString();
+  }
+
+  /**
+   * Parses the next number (e.g., {@code -1.23234e-007}) without instantiating any string.
+   */
+  protected float _nextFloat() throws IOException {
+    if (!_skipWhitespace())
+      throw new IOException("bvh unexpected end of motion data");
+    int c = _peek();
+    boolean negative = c == '-';
+    if (c == '-' || c == '+') {
+      _position++;
+      c = _peek();
+    }
+    long mantissa = 0;
+    int exponent = 0, digits = 0;
+    boolean fraction = false, valid = false;
+    while (c != -1) {
+      if (c >= '0' && c <= '9') {
+        valid = true;
+        if (digits < 18) {
+          mantissa = 10 * mantissa + (c - '0');
+          if (mantissa != 0)
+            digits++;
+          if (fraction)
+            exponent--;
+        } else if (!fraction)
+          exponent++;
+      } else if (c == '.' && !fraction)
+        fraction = true;
+      else
+        break;
+      _position++;
+      c = _peek();
+    }
+    if (c == 'e' || c == 'E') {
+      _position++;
+      c = _peek();
+      boolean negativeExponent = c == '-';
+      if (c == '-' || c == '+') {
+        _position++;
+        c = _peek();
+      }
+      int value = 0;
+      while (c >= '0' && c <= '9') {
+        value = 10 * value + (c - '0');
+        _position++;
+        c = _peek();
+      }
+      exponent += negativeExponent ? -value : value;
+    }
+    if (!valid || (c != -1 && c > ' '))
+      throw new IOException("bvh number expected");
+    double result = mantissa;
+    if (exponent < 0)
+      result = -exponent < POWERS.length ? result / POWERS[-exponent] : result / Math.pow(10, -exponent);
+    else if (exponent > 0)
+      result = exponent < POWERS.length ? result * POWERS[exponent] : result * Math.pow(10, exponent);
+    return (float) (negative ? -result : result);
+  }
+}
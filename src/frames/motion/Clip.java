@@ -0,0 +1,529 @@
+/****************************************************************************************
+ * frames
+ * Copyright (c) 2018 National University of Colombia, https://visualcomputing.github.io/
+ * @author Sebastian Chaparro, https://github.com/sechaparroc
+ * @author Jean Pierre Charalambos, https://github.com/VisualComputing
+ *
+ * All rights reserved. A 2D or 3D scene graph library providing eye, input and timing
+ * handling to a third party (real or non-real time) renderer. Released under the terms
+ * of the GPL v3.0 which is available at http://www.gnu.org/licenses/gpl.html
+ ****************************************************************************************/
+
+package frames.motion;
+
+import frames.core.Graph;
+import frames.core.Node;
+import frames.primitives.Frame;
+import frames.primitives.Quaternion;
+import frames.primitives.Vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact motion clip: a skeleton (joint names, parents and offsets) and the pose of its
+ * joints at each frame, packed into a single {@link ByteBuffer} which may be a heap one or a
+ * memory-mapped file (see {@link #map(File)}).
+ * <p>
+ * Each frame holds the translation (3 floats) of the joints having translation channels
+ * and the rotation of the joints having rotation channels, quantized with the
+ * <i>smallest three</i> scheme in 6 bytes (i.e., the largest quaternion component is
+ * dropped and the other three are stored with 15 or 16 bits). Quantization error is below
+ * 1e-4 per component.
+ * <p>
+ * Clips are read-only, so that they may be sampled concurrently. Use
+ * {@link #sample(float, List)} to pose a skeleton (e.g., the one returned by
+ * {@link #skeleton()}) at a given (fractional) frame.
+ *
+ * @see BVHLoader
+ */
+public class Clip {
+  protected static final int MAGIC = 0x46434C50;
+  protected static final int VERSION = 1;
+  protected static final float SQRT2 = (float) Math.sqrt(2);
+
+  protected String[] _names;
+  protected int[] _parents;
+  protected float[] _offsets;
+  //byte offset of the joint translation and rotation within a frame, or -1 if it has none
+  protected int[] _translations;
+  protected int[] _rotations;
+  protected int _stride;
+  protected int _frames;
+  protected float _period;
+  protected ByteBuffer _data;
+  protected int _base;
+
+  /**
+   * Defines an empty clip for the given skeleton. Joints are given in depth-first order
+   * (each joint parent, or -1 for the root, precedes it), together with their offsets (3
+   * floats per joint) and whether or not their translation and rotation are animated.
+   */
+  protected Clip(String[] names, int[] parents, float[] offsets, boolean[] translations, boolean[] rotations, float period) {
+    _names = names;
+    _parents = parents;
+    _offsets = offsets;
+    _translations = new int[names.length];
+    _rotations = new int[names.length];
+    _layout(translations, rotations);
+    _period = period;
+  }
+
+  protected void _layout(boolean[] translations, boolean[] rotations) {
+    _stride = 0;
+    for (int i = 0; i < _names.length; i++) {
+      _translations[i] = translations[i] ? _stride : -1;
+      _stride += translations[i] ? 12 : 0;
+      _rotations[i] = rotations[i] ? _stride : -1;
+      _stride += rotations[i] ? 6 : 0;
+    }
+  }
+
+  /**
+   * Returns the number of skeleton joints.
+   */
+  public int joints() {
+    return _names.length;
+  }
+
+  /**
+   * Returns the name of the given joint.
+   */
+  public String name(int joint) {
+    return _names[joint];
+  }
+
+  /**
+   * Returns the index of the joint having the given name, or -1 if there's none.
+   */
+  public int joint(String name) {
+    for (int i = 0; i < _names.length; i++)
+      if (_names[i].equalsIgnoreCase(name))
+        return i;
+    return -1;
+  }
+
+  /**
+   * Returns the parent index of the given joint, or -1 for the root.
+   */
+  public int parent(int joint) {
+    return _parents[joint];
+  }
+
+  /**
+   * Returns the number of frames.
+   */
+  public int frames() {
+    return _frames;
+  }
+
+  /**
+   * Returns the frame period in seconds.
+   */
+  public float period() {
+    return _period;
+  }
+
+  /**
+   * Returns the clip duration in seconds.
+   */
+  public float duration() {
+    return _frames * _period;
+  }
+
+  /**
+   * Returns the number of bytes used by each frame.
+   */
+  public int stride() {
+    return _stride;
+  }
+
+  /**
+   * Returns {@code true} if the clip data is a memory-mapped file.
+   */
+  public boolean isMapped() {
+    return _data.isDirect();
+  }
+
+  /**
+   * Returns the rest offset of the given joint, stored into {@code target} (if null a new
+   * vector is created).
+   */
+  public Vector offset(int joint, Vector target) {
+    if (target == null)
+      target = new Vector();
+    target.set(_offsets[3 * joint], _offsets[3 * joint + 1], _offsets[3 * joint + 2]);
+    return target;
+  }
+
+  /**
+   * Returns the translation of the {@code joint} at the given {@code frame}, stored into
+   * {@code target} (if null a new vector is created). Non-animated translations are the
+   * joint {@link #offset(int, Vector)}.
+   */
+  public Vector translation(int frame, int joint, Vector target) {
+    if (target == null)
+      target = new Vector();
+    int index = _translations[joint];
+    if (index < 0)
+      return offset(joint, target);
+    index += _base + frame * _stride;
+    target.set(_data.getFloat(index), _data.getFloat(index + 4), _data.getFloat(index + 8));
+    return target;
+  }
+
+  /**
+   * Returns the rotation of the {@code joint} at the given {@code frame}, stored into
+   * {@code target} (if null a new quaternion is created). Non-animated rotations are the
+   * identity.
+   */
+  public Quaternion rotation(int frame, int joint, Quaternion target) {
+    if (target == null)
+      target = new Quaternion();
+    float[] rotation = new float[4];
+    _rotation(frame, joint, rotation, 0);
+    target.setX(rotation[0]);
+    target.setY(rotation[1]);
+    target.setZ(rotation[2]);
+    target.setW(rotation[3]);
+    return target;
+  }
+
+  /**
+   * Returns a new skeleton made of plain frames, in joint order.
+   */
+  public ArrayList<Frame> skeleton() {
+    ArrayList<Frame> skeleton = new ArrayList<Frame>();
+    for (int i = 0; i < _names.length; i++) {
+      Frame joint = new Frame();
+      if (_parents[i] >= 0)
+        joint.setReference(skeleton.get(_parents[i]));
+      joint.setTranslation(offset(i, null));
+      skeleton.add(joint);
+    }
+    return skeleton;
+  }
+
+  /**
+   * Returns a new skeleton made of nodes attached to the given {@code graph}, in joint
+   * order.
+   */
+  public ArrayList<Node> skeleton(Graph graph) {
+    ArrayList<Node> skeleton = new ArrayList<Node>();
+    for (int i = 0; i < _names.length; i++) {
+      Node joint = new Node(graph);
+      if (_parents[i] >= 0)
+        joint.setReference(skeleton.get(_parents[i]));
+      joint.setTranslation(offset(i, null));
+      skeleton.add(joint);
+    }
+    return skeleton;
+  }
+
+  /**
+   * Poses the given {@code skeleton} (one frame per joint, in joint order) at the given
+   * fractional {@code frame}, interpolating the two nearest frames. Note that joint
+   * constraints, if any, are satisfied.
+   *
+   * @see #sampleTime(float, List)
+   */
+  public void sample(float frame, List<? extends Frame> skeleton) {
+    if (_frames == 0)
+      return;
+    frame = Math.max(0, Math.min(_frames - 1, frame));
+    int previous = (int) frame;
+    int next = Math.min(_frames - 1, previous + 1);
+    float t = frame - previous;
+    float[] rotations = new float[8];
+    Vector translation = new Vector();
+    Vector scratch = new Vector();
+    Quaternion rotation = new Quaternion();
+    int size = Math.min(skeleton.size(), _names.length);
+    for (int i = 0; i < size; i++) {
+      Frame joint = skeleton.get(i);
+      if (_translations[i] >= 0) {
+        translation(previous, i, translation);
+        if (t > 0) {
+          translation(next, i, scratch);
+          translation.set(translation.x() + t * (scratch.x() - translation.x()),
+              translation.y() + t * (scratch.y() - translation.y()),
+              translation.z() + t * (scratch.z() - translation.z()));
+        }
+        joint.setTranslation(translation);
+      }
+      if (_rotations[i] >= 0) {
+        _rotation(previous, i, rotations, 0);
+        if (t > 0) {
+          //normalized lerp along the shortest path
+          _rotation(next, i, rotations, 4);
+          float dot = rotations[0] * rotations[4] + rotations[1] * rotations[5] + rotations[2] * rotations[6] + rotations[3] * rotations[7];
+          float s = dot < 0 ? -t : t;
+          for (int k = 0; k < 4; k++)
+            rotations[k] = (1 - t) * rotations[k] + s * rotations[k + 4];
+        }
+        rotation.setX(rotations[0]);
+        rotation.setY(rotations[1]);
+        rotation.setZ(rotations[2]);
+        rotation.setW(rotations[3]);
+        rotation.normalize();
+        joint.setRotation(rotation);
+      }
+    }
+  }
+
+  /**
+   * Same as {@code sample(seconds / period(), skeleton)}.
+   */
+  public void sampleTime(float seconds, List<? extends Frame> skeleton) {
+    sample(_period > 0 ? seconds / _period : 0, skeleton);
+  }
+
+  /**
+   * Decodes the quantized rotation of the {@code joint} at the given {@code frame} into
+   * {@code target[offset]} ... {@code target[offset + 3]} as {@code (x,y,z,w)}.
+   */
+  protected void _rotation(int frame, int joint, float[] target, int offset) {
+    int index = _rotations[joint];
+    if (index < 0) {
+      target[offset] = target[offset + 1] = target[offset + 2] = 0;
+      target[offset + 3] = 1;
+      return;
+    }
+    index += _base + frame * _stride;
+    short a = _data.getShort(index), b = _data.getShort(index + 2), c = _data.getShort(index + 4);
+    int largest = ((a & 1) << 1) | (b & 1);
+    float first = (a >> 1) / (16383 * SQRT2);
+    float second = (b >> 1) / (16383 * SQRT2);
+    float third = c / (32767 * SQRT2);
+    float value = (float) Math.sqrt(Math.max(0, 1 - first * first - second * second - third * third));
+    //the three smallest components are stored in order, skipping the largest one
+    switch (largest) {
+      case 0:
+        _set(target, offset, value, first, second, third);
+        break;
+      case 1:
+        _set(target, offset, first, value, second, third);
+        break;
+      case 2:
+        _set(target, offset, first, second, value, third);
+        break;
+      default:
+        _set(target, offset, first, second, third, value);
+    }
+  }
+
+  protected static void _set(float[] target, int offset, float x, float y, float z, float w) {
+    target[offset] = x;
+    target[offset + 1] = y;
+    target[offset + 2] = z;
+    target[offset + 3] = w;
+  }
+
+  /**
+   * Quantizes the {@code (x,y,z,w)} rotation of the {@code joint} at the given
+   * {@code frame}.
+   */
+  protected void _setRotation(int frame, int joint, float x, float y, float z, float w) {
+    float norm = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+    if (norm == 0) {
+      w = norm = 1;
+    }
+    int largest = 3;
+    float max = Math.abs(w);
+    if (Math.abs(z) > max) {
+      largest = 2;
+      max = Math.abs(z);
+    }
+    if (Math.abs(y) > max) {
+      largest = 1;
+      max = Math.abs(y);
+    }
+    if (Math.abs(x) > max)
+      largest = 0;
+    float largestValue = largest == 0 ? x : largest == 1 ? y : largest == 2 ? z : w;
+    float scale = (largestValue < 0 ? -SQRT2 : SQRT2) / norm;
+    //the three smallest components, in order
+    float first = largest == 0 ? y : x;
+    float second = largest <= 1 ? z : y;
+    float third = largest == 3 ? z : w;
+    int a = Math.round(Math.max(-1, Math.min(1, first * scale)) * 16383);
+    int b = Math.round(Math.max(-1, Math.min(1, second * scale)) * 16383);
+    int c = Math.round(Math.max(-1, Math.min(1, third * scale)) * 32767);
+    int index = _base + frame * _stride + _rotations[joint];
+    _data.putShort(index, (short) ((a << 1) | (largest >> 1)));
+    _data.putShort(index + 2, (short) ((b << 1) | (largest & 1)));
+    _data.putShort(index + 4, (short) c);
+  }
+
+  protected void _setTranslation(int frame, int joint, float x, float y, float z) {
+    int index = _base + frame * _stride + _translations[joint];
+    _data.putFloat(index, x);
+    _data.putFloat(index + 4, y);
+    _data.putFloat(index + 8, z);
+  }
+
+  /**
+   * Returns a new clip holding only the first {@code frames} frames, where translation
+   * channels which keep the same value along the whole clip are removed (their value
+   * becomes the joint offset). Used by {@link BVHLoader} once all frames are read.
+   */
+  protected Clip _compact(int frames) {
+    boolean[] translations = new boolean[_names.length];
+    boolean[] rotations = new boolean[_names.length];
+    float[] offsets = _offsets.clone();
+    Vector first = new Vector(), current = new Vector();
+    for (int i = 0; i < _names.length; i++) {
+      rotations[i] = _rotations[i] >= 0;
+      if (_translations[i] < 0 || frames == 0)
+        continue;
+      translation(0, i, first);
+      for (int frame = 1; frame < frames && !translations[i]; frame++)
+        if (!translation(frame, i, current).matches(first))
+          translations[i] = true;
+      if (!translations[i]) {
+        offsets[3 * i] = first.x();
+        offsets[3 * i + 1] = first.y();
+        offsets[3 * i + 2] = first.z();
+      }
+    }
+    Clip clip = new Clip(_names, _parents, offsets, translations, rotations, _period);
+    clip._frames = frames;
+    clip._data = ByteBuffer.allocate(Math.max(1, frames * clip._stride));
+    for (int frame = 0; frame < frames; frame++)
+      for (int i = 0; i < _names.length; i++) {
+        if (clip._translations[i] >= 0)
+          _copy(frame, _translations[i], clip, clip._translations[i], 12);
+        if (clip._rotations[i] >= 0)
+          _copy(frame, _rotations[i], clip, clip._rotations[i], 6);
+      }
+    return clip;
+  }
+
+  protected void _copy(int frame, int index, Clip clip, int clipIndex, int length) {
+    int from = _base + frame * _stride + index, to = clip._base + frame * clip._stride + clipIndex;
+    for (int i = 0; i < length; i++)
+      clip._data.put(to + i, _data.get(from + i));
+  }
+
+  /**
+   * Grows the (heap) clip data, so that it can hold at least the given number of frames.
+   */
+  protected void _reserve(int frames) {
+    if (_data != null && _data.capacity() >= _base + frames * _stride)
+      return;
+    int capacity = Math.max(16, Math.max(frames, _data == null ? 0 : 2 * (_data.capacity() - _base) / Math.max(1, _stride)));
+    ByteBuffer data = ByteBuffer.allocate(_base + capacity * Math.max(1, _stride));
+    if (_data != null)
+      System.arraycopy(_data.array(), 0, data.array(), 0, _base + _frames * _stride);
+    _data = data;
+  }
+
+  /**
+   * Writes the clip into the given {@code file}, which may then be loaded back with
+   * {@link #read(File)} or memory-mapped with {@link #map(File)}.
+   */
+  public void write(File file) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream header = new DataOutputStream(bytes);
+    header.writeInt(_names.length);
+    header.writeInt(_frames);
+    header.writeFloat(_period);
+    for (int i = 0; i < _names.length; i++) {
+      header.writeUTF(_names[i]);
+      header.writeInt(_parents[i]);
+      header.writeFloat(_offsets[3 * i]);
+      header.writeFloat(_offsets[3 * i + 1]);
+      header.writeFloat(_offsets[3 * i + 2]);
+      header.writeBoolean(_translations[i] >= 0);
+      header.writeBoolean(_rotations[i] >= 0);
+    }
+    header.flush();
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      //data offset
+      output.writeInt(12 + bytes.size());
+      bytes.writeTo(output);
+      for (int i = 0; i < _frames * _stride; i++)
+        output.writeByte(_data.get(_base + i));
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Reads a clip previously written with {@link #write(File)} into the heap.
+   */
+  public static Clip read(File file) throws IOException {
+    return _read(file, false);
+  }
+
+  /**
+   * Memory-maps a clip previously written with {@link #write(File)}, so that its frames
+   * are paged in by the operating system on demand instead of being loaded into the heap.
+   */
+  public static Clip map(File file) throws IOException {
+    return _read(file, true);
+  }
+
+  protected static Clip _read(File file, boolean map) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    Clip clip;
+    int base;
+    try {
+      if (input.readInt() != MAGIC)
+        throw new IOException(file + " isn't a clip file");
+      if (input.readInt() != VERSION)
+        throw new IOException(file + " clip version isn't supported");
+      base = input.readInt();
+      int joints = input.readInt();
+      int frames = input.readInt();
+      float period = input.readFloat();
+      String[] names = new String[joints];
+      int[] parents = new int[joints];
+      float[] offsets = new float[3 * joints];
+      boolean[] translations = new boolean[joints];
+      boolean[] rotations = new boolean[joints];
+      for (int i = 0; i < joints; i++) {
+        names[i] = input.readUTF();
+        parents[i] = input.readInt();
+        offsets[3 * i] = input.readFloat();
+        offsets[3 * i + 1] = input.readFloat();
+        offsets[3 * i + 2] = input.readFloat();
+        translations[i] = input.readBoolean();
+        rotations[i] = input.readBoolean();
+      }
+      clip = new Clip(names, parents, offsets, translations, rotations, period);
+      clip._frames = frames;
+      if (!map) {
+        byte[] data = new byte[frames * clip._stride];
+        input.readFully(data);
+        clip._data = ByteBuffer.wrap(data);
+        return clip;
+      }
+    } finally {
+      input.close();
+    }
+    RandomAccessFile random = new RandomAccessFile(file, "r");
+    try {
+      clip._data = random.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, base + (long) clip._frames * clip._stride);
+      clip._base = base;
+    } finally {
+      random.close();
+    }
+    return clip;
+  }
+}
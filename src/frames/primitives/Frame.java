@@ -118,6 +118,16 @@ public class Frame {
   protected Constraint _constraint;
   protected long _lastUpdate;
 
+  // world transformation cache, see _cache()
+  protected Vector _position;
+  protected Quaternion _orientation;
+  protected float _magnitude;
+  protected Matrix _worldMatrix;
+  protected boolean _dirty = true;
+  protected boolean _worldMatrixDirty = true;
+  protected long _cacheStamp;
+  protected long _referenceStamp;
+
   /**
    * Same as {@code this(null, new Vector(), new Quaternion(), 1)}.
    *
@@ -256,6 +266,49 @@ public class Frame {
    */
   protected void _modified() {
     _lastUpdate = TimingHandler.frameCount;
+    _dirty = true;
+  }
+
+  /**
+   * Internal use. Updates the cached {@link #position()}, {@link #orientation()},
+   * {@link #magnitude()} and {@link #worldMatrix()} of the frame, if needed.
+   * <p>
+   * The cache is invalidated by {@link #_modified()}. Since a frame doesn't know which
+   * frames refer to it, the {@link #reference()} cache is also updated and its stamp
+   * compared against the one this cache was computed from, so that only the frames
+   * below a modified one get recomputed.
+   */
+  protected void _cache() {
+    Frame reference = reference();
+    if (reference != null) {
+      reference._cache();
+      if (reference._cacheStamp != _referenceStamp)
+        _dirty = true;
+    }
+    if (!_dirty)
+      return;
+    if (_position == null) {
+      _position = new Vector();
+      _orientation = new Quaternion();
+      _worldMatrix = new Matrix();
+    }
+    if (reference == null) {
+      _position.set(translation());
+      _orientation.set(rotation(), false);
+      _magnitude = scaling();
+      _referenceStamp = 0;
+    } else {
+      Vector.multiply(translation(), reference._magnitude, _position);
+      reference._orientation.rotate(_position, _position);
+      _position.add(reference._position);
+      _orientation.set(reference._orientation, false);
+      _orientation.compose(rotation());
+      _magnitude = reference._magnitude * scaling();
+      _referenceStamp = reference._cacheStamp;
+    }
+    _cacheStamp++;
+    _worldMatrixDirty = true;
+    _dirty = false;
   }
 
   /**
@@ -415,9 +468,11 @@ public class Frame {
    * @see #setConstraint(Constraint)
    */
   public void setTranslation(Vector translation) {
-    if (constraint() == null)
-      _translation = translation;
-    else
+    if (constraint() == null) {
+      if (_translation == null)
+        _translation = new Vector();
+      _translation.set(translation);
+    } else
       translation().add(constraint().constrainTranslation(Vector.subtract(translation, this.translation()), this));
     _modified();
   }
@@ -477,7 +532,21 @@ public class Frame {
    * @see #translation()
    */
   public Vector position() {
-    return inverseCoordinatesOf(new Vector(0, 0, 0));
+    return position(null);
+  }
+
+  /**
+   * Stores the frame {@link #position()} into {@code target}.
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   * @return the target vector, now set to the frame position
+   */
+  public Vector position(Vector target) {
+    _cache();
+    if (target == null)
+      return _position.get();
+    target.set(_position);
+    return target;
   }
 
   /**
@@ -546,9 +615,11 @@ public class Frame {
    * @see #setTranslation(Vector)
    */
   public void setRotation(Quaternion rotation) {
-    if (constraint() == null)
-      _rotation = rotation;
-    else {
+    if (constraint() == null) {
+      if (_rotation == null)
+        _rotation = new Quaternion();
+      _rotation.set(rotation, false);
+    } else {
       rotation().compose(constraint().constrainRotation(Quaternion.compose(rotation().inverse(), rotation), this));
       rotation().normalize(); // Prevents numerical drift
     }
@@ -615,13 +686,21 @@ public class Frame {
    * @see #rotation()
    */
   public Quaternion orientation() {
-    Quaternion quaternion = rotation().get();
-    Frame reference = reference();
-    while (reference != null) {
-      quaternion = Quaternion.compose(reference.rotation(), quaternion);
-      reference = reference.reference();
-    }
-    return quaternion;
+    return orientation(null);
+  }
+
+  /**
+   * Stores the frame {@link #orientation()} into {@code target}.
+   *
+   * @param target the target quaternion (if null, a new quaternion will be created)
+   * @return the target quaternion, now set to the frame orientation
+   */
+  public Quaternion orientation(Quaternion target) {
+    _cache();
+    if (target == null)
+      return _orientation.get();
+    target.set(_orientation, false);
+    return target;
   }
 
   /**
@@ -694,10 +773,8 @@ public class Frame {
    * @see #translation()
    */
   public float magnitude() {
-    if (reference() != null)
-      return reference().magnitude() * scaling();
-    else
-      return scaling();
+    _cache();
+    return _magnitude;
   }
 
   /**
@@ -1075,10 +1152,49 @@ public class Frame {
    * @see #view()
    */
   public Matrix worldMatrix() {
-    if (reference() != null)
-      return new Frame(position(), orientation(), magnitude()).matrix();
-    else
-      return matrix();
+    return worldMatrix(null);
+  }
+
+  /**
+   * Stores the frame {@link #worldMatrix()} into {@code target}.
+   *
+   * @param target the target matrix (if null, a new matrix will be created)
+   * @return the target matrix, now set to the frame world matrix
+   */
+  public Matrix worldMatrix(Matrix target) {
+    _cacheWorldMatrix();
+    if (target == null)
+      return _worldMatrix.get();
+    target.set(_worldMatrix);
+    return target;
+  }
+
+  /**
+   * Internal use. Updates the cached frame world transform, including its
+   * {@link #worldMatrix()}.
+   */
+  protected void _cacheWorldMatrix() {
+    _cache();
+    if (_worldMatrixDirty) {
+      _orientation.matrix(_worldMatrix);
+      _worldMatrix._matrix[12] = _position._vector[0];
+      _worldMatrix._matrix[13] = _position._vector[1];
+      _worldMatrix._matrix[14] = _position._vector[2];
+      if (_magnitude != 1) {
+        _worldMatrix.setM00(_worldMatrix.m00() * _magnitude);
+        _worldMatrix.setM10(_worldMatrix.m10() * _magnitude);
+        _worldMatrix.setM20(_worldMatrix.m20() * _magnitude);
+
+        _worldMatrix.setM01(_worldMatrix.m01() * _magnitude);
+        _worldMatrix.setM11(_worldMatrix.m11() * _magnitude);
+        _worldMatrix.setM21(_worldMatrix.m21() * _magnitude);
+
+        _worldMatrix.setM02(_worldMatrix.m02() * _magnitude);
+        _worldMatrix.setM12(_worldMatrix.m12() * _magnitude);
+        _worldMatrix.setM22(_worldMatrix.m22() * _magnitude);
+      }
+      _worldMatrixDirty = false;
+    }
   }
 
   /**
@@ -1208,6 +1324,7 @@ public class Frame {
     Vector z = new Vector(r[0][2], r[1][2], r[2][2]);
 
     rotation().fromRotatedBasis(x, y, z);
+    _modified();
   }
 
   /**
@@ -1317,9 +1434,9 @@ public class Frame {
    */
   public Vector coordinatesOfIn(Vector vector, Frame in) {
     Frame fr = this;
-    Vector res = vector;
+    Vector res = vector.get();
     while ((fr != null) && (fr != in)) {
-      res = fr.localInverseCoordinatesOf(res);
+      fr.localInverseCoordinatesOf(res, res);
       fr = fr.reference();
     }
 
@@ -1327,7 +1444,7 @@ public class Frame {
       // in was not found in the branch of this, res is now expressed in the
       // world
       // coordinate system. Simply convert to in coordinate system.
-      res = in.coordinatesOf(res);
+      in.coordinatesOf(res, res);
 
     return res;
   }
@@ -1342,7 +1459,19 @@ public class Frame {
    * @see #localTransformOf(Vector)
    */
   public Vector localCoordinatesOf(Vector vector) {
-    return Vector.divide(rotation().inverseRotate(Vector.subtract(vector, translation())), scaling());
+    return localCoordinatesOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #localCoordinatesOf(Vector)}, but the result is stored into {@code target}
+   * (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector localCoordinatesOf(Vector vector, Vector target) {
+    target = Vector.subtract(vector, translation(), target);
+    rotation().inverseRotate(target, target);
+    return Vector.divide(target, scaling(), target);
   }
 
   /**
@@ -1353,10 +1482,20 @@ public class Frame {
    * {@link #transformOf(Vector)} converts vectors instead of coordinates.
    */
   public Vector coordinatesOf(Vector vector) {
-    if (reference() != null)
-      return localCoordinatesOf(reference().coordinatesOf(vector));
-    else
-      return localCoordinatesOf(vector);
+    return coordinatesOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #coordinatesOf(Vector)}, but the result is stored into {@code target}
+   * (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector coordinatesOf(Vector vector, Vector target) {
+    _cache();
+    target = Vector.subtract(vector, _position, target);
+    _orientation.inverseRotate(target, target);
+    return Vector.divide(target, _magnitude, target);
   }
 
   // VECTOR CONVERSION
@@ -1384,16 +1523,16 @@ public class Frame {
    */
   public Vector transformOfIn(Vector vector, Frame in) {
     Frame fr = this;
-    Vector res = vector;
+    Vector res = vector.get();
     while ((fr != null) && (fr != in)) {
-      res = fr.localInverseTransformOf(res);
+      fr.localInverseTransformOf(res, res);
       fr = fr.reference();
     }
 
     if (fr != in)
       // in was not found in the branch of this, res is now expressed in
       // the world coordinate system. Simply convert to in coordinate system.
-      res = in.transformOf(res);
+      in.transformOf(res, res);
 
     return res;
   }
@@ -1407,7 +1546,19 @@ public class Frame {
    * @see #localInverseTransformOf(Vector)
    */
   public Vector localInverseCoordinatesOf(Vector vector) {
-    return Vector.add(rotation().rotate(Vector.multiply(vector, scaling())), translation());
+    return localInverseCoordinatesOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #localInverseCoordinatesOf(Vector)}, but the result is stored into
+   * {@code target} (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector localInverseCoordinatesOf(Vector vector, Vector target) {
+    target = Vector.multiply(vector, scaling(), target);
+    rotation().rotate(target, target);
+    return Vector.add(target, translation(), target);
   }
 
   /**
@@ -1418,13 +1569,20 @@ public class Frame {
    * {@link #inverseTransformOf(Vector)} to transform vectors instead of coordinates.
    */
   public Vector inverseCoordinatesOf(Vector vector) {
-    Frame fr = this;
-    Vector res = vector;
-    while (fr != null) {
-      res = fr.localInverseCoordinatesOf(res);
-      fr = fr.reference();
-    }
-    return res;
+    return inverseCoordinatesOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #inverseCoordinatesOf(Vector)}, but the result is stored into
+   * {@code target} (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector inverseCoordinatesOf(Vector vector, Vector target) {
+    _cache();
+    target = Vector.multiply(vector, _magnitude, target);
+    _orientation.rotate(target, target);
+    return Vector.add(target, _position, target);
   }
 
   /**
@@ -1436,10 +1594,19 @@ public class Frame {
    * rotational part of the transformation is taken into account).
    */
   public Vector transformOf(Vector vector) {
-    if (reference() != null)
-      return localTransformOf(reference().transformOf(vector));
-    else
-      return localTransformOf(vector);
+    return transformOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #transformOf(Vector)}, but the result is stored into {@code target}
+   * (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector transformOf(Vector vector, Vector target) {
+    _cache();
+    target = _orientation.inverseRotate(vector, target);
+    return Vector.divide(target, _magnitude, target);
   }
 
   /**
@@ -1450,13 +1617,19 @@ public class Frame {
    * {@link #inverseCoordinatesOf(Vector)} to transform coordinates instead of vectors.
    */
   public Vector inverseTransformOf(Vector vector) {
-    Frame fr = this;
-    Vector res = vector;
-    while (fr != null) {
-      res = fr.localInverseTransformOf(res);
-      fr = fr.reference();
-    }
-    return res;
+    return inverseTransformOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #inverseTransformOf(Vector)}, but the result is stored into
+   * {@code target} (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector inverseTransformOf(Vector vector, Vector target) {
+    _cache();
+    target = Vector.multiply(vector, _magnitude, target);
+    return _orientation.rotate(target, target);
   }
 
   /**
@@ -1469,7 +1642,18 @@ public class Frame {
    * @see #localCoordinatesOf(Vector)
    */
   public Vector localTransformOf(Vector vector) {
-    return Vector.divide(rotation().inverseRotate(vector), scaling());
+    return localTransformOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #localTransformOf(Vector)}, but the result is stored into {@code target}
+   * (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector localTransformOf(Vector vector, Vector target) {
+    target = rotation().inverseRotate(vector, target);
+    return Vector.divide(target, scaling(), target);
   }
 
   /**
@@ -1481,6 +1665,17 @@ public class Frame {
    * @see #localInverseCoordinatesOf(Vector)
    */
   public Vector localInverseTransformOf(Vector vector) {
-    return rotation().rotate(Vector.multiply(vector, scaling()));
+    return localInverseTransformOf(vector, null);
+  }
+
+  /**
+   * Same as {@link #localInverseTransformOf(Vector)}, but the result is stored into
+   * {@code target} (which may be {@code vector}).
+   *
+   * @param target the target vector (if null, a new vector will be created)
+   */
+  public Vector localInverseTransformOf(Vector vector, Vector target) {
+    target = Vector.multiply(vector, scaling(), target);
+    return rotation().rotate(target, target);
   }
 }
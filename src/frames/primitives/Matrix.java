@@ -688,28 +688,30 @@ public class Matrix {
   }
 
   /**
-   * Define {@code c} as {@code a x b}.
+   * Define {@code c} as {@code a x b}. {@code c} may be {@code a} or {@code b}.
    */
   public static void multiply(Matrix a, Matrix b, Matrix c) {
-    c._matrix[0] = a._matrix[0] * b._matrix[0] + a._matrix[4] * b._matrix[1] + a._matrix[8] * b._matrix[2] + a._matrix[12] * b._matrix[3];
-    c._matrix[4] = a._matrix[0] * b._matrix[4] + a._matrix[4] * b._matrix[5] + a._matrix[8] * b._matrix[6] + a._matrix[12] * b._matrix[7];
-    c._matrix[8] = a._matrix[0] * b._matrix[8] + a._matrix[4] * b._matrix[9] + a._matrix[8] * b._matrix[10] + a._matrix[12] * b._matrix[11];
-    c._matrix[12] = a._matrix[0] * b._matrix[12] + a._matrix[4] * b._matrix[13] + a._matrix[8] * b._matrix[14] + a._matrix[12] * b._matrix[15];
-
-    c._matrix[1] = a._matrix[1] * b._matrix[0] + a._matrix[5] * b._matrix[1] + a._matrix[9] * b._matrix[2] + a._matrix[13] * b._matrix[3];
-    c._matrix[5] = a._matrix[1] * b._matrix[4] + a._matrix[5] * b._matrix[5] + a._matrix[9] * b._matrix[6] + a._matrix[13] * b._matrix[7];
-    c._matrix[9] = a._matrix[1] * b._matrix[8] + a._matrix[5] * b._matrix[9] + a._matrix[9] * b._matrix[10] + a._matrix[13] * b._matrix[11];
-    c._matrix[13] = a._matrix[1] * b._matrix[12] + a._matrix[5] * b._matrix[13] + a._matrix[9] * b._matrix[14] + a._matrix[13] * b._matrix[15];
-
-    c._matrix[2] = a._matrix[2] * b._matrix[0] + a._matrix[6] * b._matrix[1] + a._matrix[10] * b._matrix[2] + a._matrix[14] * b._matrix[3];
-    c._matrix[6] = a._matrix[2] * b._matrix[4] + a._matrix[6] * b._matrix[5] + a._matrix[10] * b._matrix[6] + a._matrix[14] * b._matrix[7];
-    c._matrix[10] = a._matrix[2] * b._matrix[8] + a._matrix[6] * b._matrix[9] + a._matrix[10] * b._matrix[10] + a._matrix[14] * b._matrix[11];
-    c._matrix[14] = a._matrix[2] * b._matrix[12] + a._matrix[6] * b._matrix[13] + a._matrix[10] * b._matrix[14] + a._matrix[14] * b._matrix[15];
-
-    c._matrix[3] = a._matrix[3] * b._matrix[0] + a._matrix[7] * b._matrix[1] + a._matrix[11] * b._matrix[2] + a._matrix[15] * b._matrix[3];
-    c._matrix[7] = a._matrix[3] * b._matrix[4] + a._matrix[7] * b._matrix[5] + a._matrix[11] * b._matrix[6] + a._matrix[15] * b._matrix[7];
-    c._matrix[11] = a._matrix[3] * b._matrix[8] + a._matrix[7] * b._matrix[9] + a._matrix[11] * b._matrix[10] + a._matrix[15] * b._matrix[11];
-    c._matrix[15] = a._matrix[3] * b._matrix[12] + a._matrix[7] * b._matrix[13] + a._matrix[11] * b._matrix[14] + a._matrix[15] * b._matrix[15];
+    float m0 = a._matrix[0] * b._matrix[0] + a._matrix[4] * b._matrix[1] + a._matrix[8] * b._matrix[2] + a._matrix[12] * b._matrix[3];
+    float m4 = a._matrix[0] * b._matrix[4] + a._matrix[4] * b._matrix[5] + a._matrix[8] * b._matrix[6] + a._matrix[12] * b._matrix[7];
+    float m8 = a._matrix[0] * b._matrix[8] + a._matrix[4] * b._matrix[9] + a._matrix[8] * b._matrix[10] + a._matrix[12] * b._matrix[11];
+    float m12 = a._matrix[0] * b._matrix[12] + a._matrix[4] * b._matrix[13] + a._matrix[8] * b._matrix[14] + a._matrix[12] * b._matrix[15];
+
+    float m1 = a._matrix[1] * b._matrix[0] + a._matrix[5] * b._matrix[1] + a._matrix[9] * b._matrix[2] + a._matrix[13] * b._matrix[3];
+    float m5 = a._matrix[1] * b._matrix[4] + a._matrix[5] * b._matrix[5] + a._matrix[9] * b._matrix[6] + a._matrix[13] * b._matrix[7];
+    float m9 = a._matrix[1] * b._matrix[8] + a._matrix[5] * b._matrix[9] + a._matrix[9] * b._matrix[10] + a._matrix[13] * b._matrix[11];
+    float m13 = a._matrix[1] * b._matrix[12] + a._matrix[5] * b._matrix[13] + a._matrix[9] * b._matrix[14] + a._matrix[13] * b._matrix[15];
+
+    float m2 = a._matrix[2] * b._matrix[0] + a._matrix[6] * b._matrix[1] + a._matrix[10] * b._matrix[2] + a._matrix[14] * b._matrix[3];
+    float m6 = a._matrix[2] * b._matrix[4] + a._matrix[6] * b._matrix[5] + a._matrix[10] * b._matrix[6] + a._matrix[14] * b._matrix[7];
+    float m10 = a._matrix[2] * b._matrix[8] + a._matrix[6] * b._matrix[9] + a._matrix[10] * b._matrix[10] + a._matrix[14] * b._matrix[11];
+    float m14 = a._matrix[2] * b._matrix[12] + a._matrix[6] * b._matrix[13] + a._matrix[10] * b._matrix[14] + a._matrix[14] * b._matrix[15];
+
+    float m3 = a._matrix[3] * b._matrix[0] + a._matrix[7] * b._matrix[1] + a._matrix[11] * b._matrix[2] + a._matrix[15] * b._matrix[3];
+    float m7 = a._matrix[3] * b._matrix[4] + a._matrix[7] * b._matrix[5] + a._matrix[11] * b._matrix[6] + a._matrix[15] * b._matrix[7];
+    float m11 = a._matrix[3] * b._matrix[8] + a._matrix[7] * b._matrix[9] + a._matrix[11] * b._matrix[10] + a._matrix[15] * b._matrix[11];
+    float m15 = a._matrix[3] * b._matrix[12] + a._matrix[7] * b._matrix[13] + a._matrix[11] * b._matrix[14] + a._matrix[15] * b._matrix[15];
+
+    c.set(m0, m1, m2, m3, m4, m5, m6, m7, m8, m9, m10, m11, m12, m13, m14, m15);
   }
 
   /**
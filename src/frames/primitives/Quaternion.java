@@ -445,6 +445,15 @@ public class Quaternion {
     return multiply(a, b);
   }
 
+  /**
+   * Same as {@code return multiply(a, b, target)}.
+   *
+   * @see #multiply(Quaternion, Quaternion, Quaternion)
+   */
+  public static Quaternion compose(Quaternion a, Quaternion b, Quaternion target) {
+    return multiply(a, b, target);
+  }
+
   /**
    * Returns the product of quaternions {@code a} and {@code b}.
    *
@@ -452,12 +461,32 @@ public class Quaternion {
    * @param b the second Quaternion
    */
   public static Quaternion multiply(Quaternion a, Quaternion b) {
+    return multiply(a, b, null);
+  }
+
+  /**
+   * Multiply quaternions {@code a} and {@code b} and store the (normalized) result into
+   * {@code target}. {@code target} may be {@code a} or {@code b}.
+   *
+   * @param a      the first Quaternion
+   * @param b      the second Quaternion
+   * @param target the target quaternion (if null, a new quaternion will be created)
+   * @return the target quaternion, now set to {@code a * b}
+   */
+  public static Quaternion multiply(Quaternion a, Quaternion b, Quaternion target) {
     float x, y, z, w;
     w = a._quaternion[3] * b._quaternion[3] - a._quaternion[0] * b._quaternion[0] - a._quaternion[1] * b._quaternion[1] - a._quaternion[2] * b._quaternion[2];
     x = a._quaternion[3] * b._quaternion[0] + b._quaternion[3] * a._quaternion[0] + a._quaternion[1] * b._quaternion[2] - a._quaternion[2] * b._quaternion[1];
     y = a._quaternion[3] * b._quaternion[1] + b._quaternion[3] * a._quaternion[1] - a._quaternion[0] * b._quaternion[2] + a._quaternion[2] * b._quaternion[0];
     z = a._quaternion[3] * b._quaternion[2] + b._quaternion[3] * a._quaternion[2] + a._quaternion[0] * b._quaternion[1] - a._quaternion[1] * b._quaternion[0];
-    return new Quaternion(x, y, z, w);
+    if (target == null)
+      return new Quaternion(x, y, z, w);
+    target._quaternion[0] = x;
+    target._quaternion[1] = y;
+    target._quaternion[2] = z;
+    target._quaternion[3] = w;
+    target.normalize();
+    return target;
   }
 
   /**
@@ -521,9 +550,23 @@ public class Quaternion {
    * @see #invert()
    */
   public Quaternion inverse() {
-    Quaternion tempQuaternion = new Quaternion(this);
-    tempQuaternion.invert();
-    return tempQuaternion;
+    return inverse(null);
+  }
+
+  /**
+   * Stores the inverse quaternion (inverse rotation) into {@code target}.
+   *
+   * @param target the target quaternion (if null, a new quaternion will be created)
+   * @return the target quaternion, now set to the inverse of this quaternion
+   * @see #inverse()
+   */
+  public Quaternion inverse(Quaternion target) {
+    if (target == null)
+      target = new Quaternion(this);
+    else
+      target.set(this);
+    target.invert();
+    return target;
   }
 
   /**
@@ -578,22 +621,47 @@ public class Quaternion {
    * @param vector the Vector
    */
   public Vector rotate(Vector vector) {
-    float q00 = 2.0f * this._quaternion[0] * this._quaternion[0];
-    float q11 = 2.0f * this._quaternion[1] * this._quaternion[1];
-    float q22 = 2.0f * this._quaternion[2] * this._quaternion[2];
+    return rotate(vector, null);
+  }
 
-    float q01 = 2.0f * this._quaternion[0] * this._quaternion[1];
-    float q02 = 2.0f * this._quaternion[0] * this._quaternion[2];
-    float q03 = 2.0f * this._quaternion[0] * this._quaternion[3];
+  /**
+   * Stores the image of {@code vector} by the quaternion rotation into {@code target}.
+   * {@code target} may be {@code vector}.
+   *
+   * @param vector the Vector
+   * @param target the target vector (if null, a new vector will be created)
+   * @return the target vector, now set to the rotated {@code vector}
+   */
+  public Vector rotate(Vector vector, Vector target) {
+    return _rotate(this._quaternion[0], this._quaternion[1], this._quaternion[2], this._quaternion[3], vector, target);
+  }
 
-    float q12 = 2.0f * this._quaternion[1] * this._quaternion[2];
-    float q13 = 2.0f * this._quaternion[1] * this._quaternion[3];
+  /**
+   * Internal use. Rotates {@code vector} by the {@code (x,y,z,w)} quaternion and stores the
+   * result into {@code target}.
+   */
+  protected static Vector _rotate(float x, float y, float z, float w, Vector vector, Vector target) {
+    float q00 = 2.0f * x * x;
+    float q11 = 2.0f * y * y;
+    float q22 = 2.0f * z * z;
 
-    float q23 = 2.0f * this._quaternion[2] * this._quaternion[3];
+    float q01 = 2.0f * x * y;
+    float q02 = 2.0f * x * z;
+    float q03 = 2.0f * x * w;
+
+    float q12 = 2.0f * y * z;
+    float q13 = 2.0f * y * w;
+
+    float q23 = 2.0f * z * w;
+
+    float vx = (1.0f - q11 - q22) * vector._vector[0] + (q01 - q23) * vector._vector[1] + (q02 + q13) * vector._vector[2];
+    float vy = (q01 + q23) * vector._vector[0] + (1.0f - q22 - q00) * vector._vector[1] + (q12 - q03) * vector._vector[2];
+    float vz = (q02 - q13) * vector._vector[0] + (q12 + q03) * vector._vector[1] + (1.0f - q11 - q00) * vector._vector[2];
 
-    return new Vector((1.0f - q11 - q22) * vector._vector[0] + (q01 - q23) * vector._vector[1] + (q02 + q13) * vector._vector[2],
-        (q01 + q23) * vector._vector[0] + (1.0f - q22 - q00) * vector._vector[1] + (q12 - q03) * vector._vector[2],
-        (q02 - q13) * vector._vector[0] + (q12 + q03) * vector._vector[1] + (1.0f - q11 - q00) * vector._vector[2]);
+    if (target == null)
+      return new Vector(vx, vy, vz);
+    target.set(vx, vy, vz);
+    return target;
   }
 
   /**
@@ -604,9 +672,23 @@ public class Quaternion {
    * @param vector the Vector
    */
   public Vector inverseRotate(Vector vector) {
-    Quaternion tempQuaternion = new Quaternion(this._quaternion[0], this._quaternion[1], this._quaternion[2], this._quaternion[3]);
-    tempQuaternion.invert();
-    return tempQuaternion.rotate(vector);
+    return inverseRotate(vector, null);
+  }
+
+  /**
+   * Stores the image of {@code vector} by the quaternion {@link #inverse()} rotation into
+   * {@code target}. {@code target} may be {@code vector}.
+   *
+   * @param vector the Vector
+   * @param target the target vector (if null, a new vector will be created)
+   * @return the target vector, now set to the inverse rotated {@code vector}
+   * @see #rotate(Vector, Vector)
+   */
+  public Vector inverseRotate(Vector vector, Vector target) {
+    float norm = (float) Math.sqrt(squaredNorm(this));
+    if (norm == 0)
+      return _rotate(0, 0, 0, 1, vector, target);
+    return _rotate(-this._quaternion[0] / norm, -this._quaternion[1] / norm, -this._quaternion[2] / norm, this._quaternion[3] / norm, vector, target);
   }
 
   /**
@@ -620,7 +702,16 @@ public class Quaternion {
    * @param angle the angle in radians
    */
   public void fromAxisAngle(Vector axis, float angle) {
-    float norm = axis.magnitude();
+    fromAxisAngle(axis._vector[0], axis._vector[1], axis._vector[2], angle);
+  }
+
+  /**
+   * Same as {@code fromAxisAngle(new Vector(x,y,z), angle)}.
+   *
+   * @see #fromAxisAngle(Vector, float)
+   */
+  public void fromAxisAngle(float x, float y, float z, float angle) {
+    float norm = (float) Math.sqrt(x * x + y * y + z * z);
     if (norm == 0) {
       // Null rotation
       this._quaternion[0] = 0.0f;
@@ -629,22 +720,13 @@ public class Quaternion {
       this._quaternion[3] = 1.0f;
     } else {
       float sin_half_angle = (float) Math.sin(angle / 2.0f);
-      this._quaternion[0] = sin_half_angle * axis._vector[0] / norm;
-      this._quaternion[1] = sin_half_angle * axis._vector[1] / norm;
-      this._quaternion[2] = sin_half_angle * axis._vector[2] / norm;
+      this._quaternion[0] = sin_half_angle * x / norm;
+      this._quaternion[1] = sin_half_angle * y / norm;
+      this._quaternion[2] = sin_half_angle * z / norm;
       this._quaternion[3] = (float) Math.cos(angle / 2.0f);
     }
   }
 
-  /**
-   * Same as {@code fromAxisAngle(new Vector(x,y,z), angle)}.
-   *
-   * @see #fromAxisAngle(Vector, float)
-   */
-  public void fromAxisAngle(float x, float y, float z, float angle) {
-    fromAxisAngle(new Vector(x, y, z), angle);
-  }
-
   /**
    * Same as {@link #fromEulerAngles(Vector)}.
    */
@@ -753,38 +835,54 @@ public class Quaternion {
    * @see #fromAxisAngle(Vector, float)
    */
   public void fromTo(Vector from, Vector to) {
-    float fromSqNorm = from.squaredNorm();
-    float toSqNorm = to.squaredNorm();
+    fromTo(from._vector[0], from._vector[1], from._vector[2], to._vector[0], to._vector[1], to._vector[2]);
+  }
+
+  /**
+   * Same as {@code fromTo(new Vector(x1,y1,z1), new Vector(x2,y2,z2))}.
+   *
+   * @see #fromTo(Vector, Vector)
+   */
+  public void fromTo(float x1, float y1, float z1, float x2, float y2, float z2) {
+    float fromSqNorm = x1 * x1 + y1 * y1 + z1 * z1;
+    float toSqNorm = x2 * x2 + y2 * y2 + z2 * z2;
     // Identity Quaternion when one vector is null
     if (fromSqNorm == 0 || toSqNorm == 0) {
       this._quaternion[0] = this._quaternion[1] = this._quaternion[2] = 0.0f;
       this._quaternion[3] = 1.0f;
     } else {
+      // axis = from x to
+      float x = y1 * z2 - z1 * y2;
+      float y = z1 * x2 - x1 * z2;
+      float z = x1 * y2 - y1 * x2;
 
-      Vector axis = from.cross(to);
-
-      float axisSqNorm = axis.squaredNorm();
-
-      // Aligned vectors, pick any axis, not aligned with from or to
-      if (axisSqNorm == 0)
-        axis = from.orthogonalVector();
+      float axisSqNorm = x * x + y * y + z * z;
 
       float angle = (float) Math.asin((float) Math.sqrt(axisSqNorm / (fromSqNorm * toSqNorm)));
 
-      if (from.dot(to) < 0.0)
+      if (x1 * x2 + y1 * y2 + z1 * z2 < 0.0)
         angle = (float) Math.PI - angle;
 
-      fromAxisAngle(axis, angle);
-    }
-  }
+      // Aligned vectors, pick any axis, not aligned with from or to (see Vector.orthogonalVector())
+      if (axisSqNorm == 0) {
+        float ax = Math.abs(x1), ay = Math.abs(y1), az = Math.abs(z1);
+        if (ay >= 0.9f * ax && az >= 0.9f * ax) {
+          x = 0.0f;
+          y = -z1;
+          z = y1;
+        } else if (ax >= 0.9f * ay && az >= 0.9f * ay) {
+          x = -z1;
+          y = 0.0f;
+          z = x1;
+        } else {
+          x = -y1;
+          y = x1;
+          z = 0.0f;
+        }
+      }
 
-  /**
-   * Same as {@code fromTo(new Vector(x1,y1,z1), new Vector(x2,y2,z2))}.
-   *
-   * @see #fromTo(Vector, Vector)
-   */
-  public void fromTo(float x1, float y1, float z1, float x2, float y2, float z2) {
-    fromTo(new Vector(x1, y1, z1), new Vector(x2, y2, z2));
+      fromAxisAngle(x, y, z, angle);
+    }
   }
 
   /**
@@ -898,6 +996,16 @@ public class Quaternion {
    * Returns the rotation matrix associated with the quaternion.
    */
   public Matrix matrix() {
+    return matrix(null);
+  }
+
+  /**
+   * Stores the rotation matrix associated with the quaternion into {@code target}.
+   *
+   * @param target the target matrix (if null, a new matrix will be created)
+   * @return the target matrix, now set to the rotation matrix
+   */
+  public Matrix matrix(Matrix target) {
     float q00 = 2.0f * this._quaternion[0] * this._quaternion[0];
     float q11 = 2.0f * this._quaternion[1] * this._quaternion[1];
     float q22 = 2.0f * this._quaternion[2] * this._quaternion[2];
@@ -931,7 +1039,10 @@ public class Quaternion {
     float m32 = 0.0f;
     float m33 = 1.0f;
 
-    return new Matrix(m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23, m30, m31, m32, m33);
+    if (target == null)
+      return new Matrix(m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23, m30, m31, m32, m33);
+    target.set(m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23, m30, m31, m32, m33);
+    return target;
   }
 
   /**
@@ -1029,6 +1140,21 @@ public class Quaternion {
    * @param allowFlip tells whether or not the interpolation allows axis flip
    */
   public static Quaternion slerp(Quaternion a, Quaternion b, float t, boolean allowFlip) {
+    return slerp(a, b, t, allowFlip, null);
+  }
+
+  /**
+   * Same as {@link #slerp(Quaternion, Quaternion, float, boolean)}, but the result is stored
+   * into {@code target}, which may be {@code a} or {@code b}.
+   *
+   * @param a         the first Quaternion
+   * @param b         the second Quaternion
+   * @param t         the t interpolation parameter
+   * @param allowFlip tells whether or not the interpolation allows axis flip
+   * @param target    the target quaternion (if null, a new quaternion will be created)
+   * @return the target quaternion, now set to the slerp interpolation
+   */
+  public static Quaternion slerp(Quaternion a, Quaternion b, float t, boolean allowFlip, Quaternion target) {
     // Warning: this method should not normalize the Quaternion
     float cosAngle = Quaternion.dot(a, b);
 
@@ -1049,8 +1175,17 @@ public class Quaternion {
     if (allowFlip && (cosAngle < 0.0))
       c1 = -c1;
 
-    return new Quaternion(c1 * a._quaternion[0] + c2 * b._quaternion[0], c1 * a._quaternion[1] + c2 * b._quaternion[1], c1 * a._quaternion[2] + c2 * b._quaternion[2],
-        c1 * a._quaternion[3] + c2 * b._quaternion[3], false);
+    float x = c1 * a._quaternion[0] + c2 * b._quaternion[0];
+    float y = c1 * a._quaternion[1] + c2 * b._quaternion[1];
+    float z = c1 * a._quaternion[2] + c2 * b._quaternion[2];
+    float w = c1 * a._quaternion[3] + c2 * b._quaternion[3];
+    if (target == null)
+      return new Quaternion(x, y, z, w, false);
+    target._quaternion[0] = x;
+    target._quaternion[1] = y;
+    target._quaternion[2] = z;
+    target._quaternion[3] = w;
+    return target;
   }
 
   /**
@@ -1075,6 +1210,26 @@ public class Quaternion {
     return Quaternion.slerp(ab, tg, 2.0f * t * (1.0f - t), false);
   }
 
+  /**
+   * Same as {@link #squad(Quaternion, Quaternion, Quaternion, Quaternion, float)}, but the
+   * result is stored into {@code target}, using {@code cache} to hold the intermediate tangent
+   * slerp. Neither {@code target} nor {@code cache} should be any of the other params.
+   *
+   * @param a      the first Quaternion
+   * @param tgA    the first tangent Quaternion
+   * @param tgB    the second tangent Quaternion
+   * @param b      the second Quaternion
+   * @param t      the t interpolation parameter
+   * @param cache  quaternion used to store the intermediate tangent slerp
+   * @param target the target quaternion (if null, a new quaternion will be created)
+   * @return the target quaternion, now set to the squad interpolation
+   */
+  public static Quaternion squad(Quaternion a, Quaternion tgA, Quaternion tgB, Quaternion b, float t, Quaternion cache, Quaternion target) {
+    target = Quaternion.slerp(a, b, t, true, target);
+    cache = Quaternion.slerp(tgA, tgB, t, false, cache);
+    return Quaternion.slerp(target, cache, 2.0f * t * (1.0f - t), false, target);
+  }
+
   /**
    * Simply returns {@code log(a. inverse() * b)}.
    * <p>
@@ -31,6 +31,25 @@ public class PlanarPolygon extends Constraint {
   protected Quaternion _restRotation = new Quaternion();
   protected Vector _min, _max;
 
+  /*
+   * Number of angular sectors (around the cone axis) of the lookup table used by
+   * _isInside()
+   */
+  public static final int SECTORS = 64;
+
+  //Some pre-computations, see _init(). They're read-only once built, so that apply() may
+  //be called concurrently (e.g., by sibling sub-chains solved in parallel)
+  protected int _size;
+  //packed (x,y) vertices, v_i - v_(i-1) edges and their inverse squared lengths
+  protected float[] _points = new float[0];
+  protected float[] _edges = new float[0];
+  protected float[] _edgeInverses = new float[0];
+  //packed (a,b,c) edge lines s.t. a * x + b * y + c > 0 at the polygon side of the edge
+  protected float[] _lines = new float[0];
+  //per angular sector index of the edge seen from the origin (-1 when a vertex lies within
+  //the angular sector). Empty if the polygon isn't star-shaped with respect to the origin
+  protected int[] _sectors = new int[0];
+
   public Quaternion restRotation() {
     return _restRotation;
   }
@@ -59,6 +78,11 @@ public class PlanarPolygon extends Constraint {
 
   public void setVertices(ArrayList<Vector> vertices) {
     this._vertices = vertices;
+    for (Vector v : _vertices)
+      //Just not consider Z
+      v.setZ(0);
+    _setBoundingBox();
+    _init();
   }
 
   public float height() {
@@ -73,6 +97,8 @@ public class PlanarPolygon extends Constraint {
     _vertices = new ArrayList<Vector>();
     _restRotation = new Quaternion();
     _height = 5.f;
+    _setBoundingBox();
+    _init();
   }
 
   public PlanarPolygon(ArrayList<Vector> vertices, Quaternion restRotation, float height) {
@@ -83,6 +109,7 @@ public class PlanarPolygon extends Constraint {
       //Just not consider Z
       v.setZ(0);
     _setBoundingBox();
+    _init();
   }
 
   public PlanarPolygon(ArrayList<Vector> vertices, Quaternion restRotation) {
@@ -92,6 +119,7 @@ public class PlanarPolygon extends Constraint {
       //Just not consider Z
       v.setZ(0);
     _setBoundingBox();
+    _init();
   }
 
   public PlanarPolygon(ArrayList<Vector> vertices) {
@@ -100,6 +128,7 @@ public class PlanarPolygon extends Constraint {
       //Just not consider Z
       v.setZ(0);
     _setBoundingBox();
+    _init();
   }
 
   @Override
@@ -128,15 +157,15 @@ public class PlanarPolygon extends Constraint {
   }
 
   public Vector apply(Vector target, Quaternion restRotation) {
-    Vector point = restRotation.inverse().multiply(target);
-    Vector proj = new Vector(_height * point.x() / point.z(), _height * point.y() / point.z());
-    float inverse = (_height < 0) == (point.z() < 0) ? 1 : -1;
-    if (!_isInside(proj)) {
-      proj.multiply(inverse);
-      Vector constrained = _closestPoint(proj);
+    Vector point = restRotation.inverseRotate(target, new Vector());
+    float z = point.z();
+    float x = _height * point.x() / z, y = _height * point.y() / z;
+    float inverse = (_height < 0) == (z < 0) ? 1 : -1;
+    if (!_isInside(x, y)) {
+      Vector constrained = _closestPoint(inverse * x, inverse * y, point);
       constrained.setZ(_height);
-      constrained.multiply(inverse * point.z() / _height);
-      return restRotation.rotate(constrained);
+      constrained.multiply(inverse * z / _height);
+      return restRotation.rotate(constrained, constrained);
     }
     return inverse == -1 ? new Vector(target.x(), target.y(), -target.z()) : target;
   }
@@ -152,50 +181,160 @@ public class PlanarPolygon extends Constraint {
     }
   }
 
-  /*Code was transcript from https://wrf.ecse.rpi.edu//Research/Short_Notes/pnpoly.html*/
+  protected void _init() {
+    _size = _vertices.size();
+    _points = new float[2 * _size];
+    _edges = new float[2 * _size];
+    _edgeInverses = new float[_size];
+    _lines = new float[3 * _size];
+    for (int i = 0; i < _size; i++) {
+      _points[2 * i] = _vertices.get(i).x();
+      _points[2 * i + 1] = _vertices.get(i).y();
+    }
+    for (int i = 0, j = _size - 1; i < _size; j = i++) {
+      float ex = _points[2 * i] - _points[2 * j], ey = _points[2 * i + 1] - _points[2 * j + 1];
+      _edges[2 * i] = ex;
+      _edges[2 * i + 1] = ey;
+      float squaredMagnitude = ex * ex + ey * ey;
+      _edgeInverses[i] = squaredMagnitude == 0 ? 0 : 1 / squaredMagnitude;
+      float a = -ey, b = ex, c = -(a * _points[2 * j] + b * _points[2 * j + 1]);
+      float sign = c < 0 ? -1 : 1;
+      _lines[3 * i] = sign * a;
+      _lines[3 * i + 1] = sign * b;
+      _lines[3 * i + 2] = sign * c;
+    }
+    _initSectors();
+  }
+
+  /**
+   * Builds the angular sector table used by {@link #_isInside(float, float)}.
+   * <p>
+   * When the polygon is star-shaped with respect to the origin (i.e., the cone axis) each
+   * ray from it crosses a single edge, and the points of an angular sector not containing
+   * any vertex are inside the polygon iff they lie at the origin side of the edge crossed
+   * by the sector. Otherwise the table is left empty and the ray-casting test is used.
+   */
+  protected void _initSectors() {
+    _sectors = new int[0];
+    if (_size < 3 || !_rayCasting(0, 0))
+      return;
+    //all the edges should be seen from the origin in the same direction
+    float sweep = 0;
+    float orientation = 0;
+    for (int i = 0, j = _size - 1; i < _size; j = i++) {
+      float cross = _points[2 * j] * _points[2 * i + 1] - _points[2 * j + 1] * _points[2 * i];
+      float dot = _points[2 * j] * _points[2 * i] + _points[2 * j + 1] * _points[2 * i + 1];
+      if (cross == 0 || (orientation != 0 && (cross > 0) != (orientation > 0)))
+        return;
+      orientation = cross;
+      sweep += Math.atan2(cross, dot);
+    }
+    if (Math.abs(Math.abs(sweep) - 2 * Math.PI) > 0.01f)
+      return;
+    int count = SECTORS;
+    int[] sectors = new int[count];
+    for (int i = 0; i < _size; i++) {
+      //vertices (too) close to a sector boundary mark both neighbours
+      float sector = _sector(_points[2 * i], _points[2 * i + 1], count);
+      sectors[(int) sector % count] = -1;
+      sectors[(int) (sector + 0.01f) % count] = -1;
+      sectors[((int) Math.floor(sector - 0.01f) + count) % count] = -1;
+    }
+    for (int sector = 0; sector < count; sector++) {
+      if (sectors[sector] == -1)
+        continue;
+      double angle = 2 * Math.PI * (sector + 0.5f) / count - Math.PI;
+      float x = (float) Math.cos(angle), y = (float) Math.sin(angle);
+      sectors[sector] = -1;
+      for (int i = 0, j = _size - 1; i < _size; j = i++) {
+        float crossJ = _points[2 * j] * y - _points[2 * j + 1] * x;
+        float crossI = x * _points[2 * i + 1] - y * _points[2 * i];
+        if ((crossJ > 0) == (orientation > 0) && (crossI > 0) == (orientation > 0)) {
+          sectors[sector] = i;
+          break;
+        }
+      }
+    }
+    _sectors = sectors;
+  }
+
+  /**
+   * Returns the (non-truncated) angular sector of the {@code (x,y)} point.
+   */
+  protected float _sector(float x, float y, int count) {
+    float sector = (float) ((Math.atan2(y, x) + Math.PI) / (2 * Math.PI)) * count;
+    return sector >= count ? sector - count : sector;
+  }
+
   protected boolean _isInside(Vector point) {
-    if (point.x() < _min.x() || point.x() > _max.x() ||
-        point.y() < _min.y() || point.y() > _max.y()) return false;
+    return _isInside(point.x(), point.y());
+  }
+
+  /**
+   * Same as {@link #_isInside(Vector)}. Looks up the edge seen from the origin in the
+   * {@code (x,y)} direction in the angular sector table (see {@link #_initSectors()}), so
+   * that it takes constant time regardless of the number of vertices.
+   */
+  protected boolean _isInside(float x, float y) {
+    if (x < _min.x() || x > _max.x() || y < _min.y() || y > _max.y()) return false;
+    if (_sectors.length > 0 && (x != 0 || y != 0)) {
+      int index = _sectors[(int) _sector(x, y, _sectors.length) % _sectors.length];
+      if (index != -1)
+        return _lines[3 * index] * x + _lines[3 * index + 1] * y + _lines[3 * index + 2] > 0;
+    }
+    return _rayCasting(x, y);
+  }
+
+  /*Code was transcript from https://wrf.ecse.rpi.edu//Research/Short_Notes/pnpoly.html*/
+  protected boolean _rayCasting(float x, float y) {
     //Ray-casting algorithm
     boolean c = false;
-    for (int i = 0, j = _vertices.size() - 1; i < _vertices.size(); j = i++) {
-      Vector v_i = _vertices.get(i);
-      Vector v_j = _vertices.get(j);
-      if (((v_i.y() > point.y()) != (v_j.y() > point.y())) &&
-          (point.x() < (v_j.x() - v_i.x()) * (point.y() - v_i.y()) / (v_j.y() - v_i.y()) + v_i.x()))
+    for (int i = 0, j = _size - 1; i < _size; j = i++) {
+      float xi = _points[2 * i], yi = _points[2 * i + 1];
+      float xj = _points[2 * j], yj = _points[2 * j + 1];
+      if (((yi > y) != (yj > y)) && (x < (xj - xi) * (y - yi) / (yj - yi) + xi))
         c = !c;
     }
     return c;
   }
 
   protected Vector _closestPoint(Vector point) {
-    float minDist = 999999;
-    Vector target = new Vector();
-    for (int i = 0, j = _vertices.size() - 1; i < _vertices.size(); j = i++) {
-      Vector projection;
-      float dist;
-      Vector v_i = _vertices.get(i);
-      Vector v_j = _vertices.get(j);
-      Vector edge = Vector.subtract(v_i, v_j);
-      //Get distance to line
-      float t = Vector.dot(edge, Vector.subtract(point, v_j));
-      t /= edge.magnitude() * edge.magnitude();
+    return _closestPoint(point.x(), point.y(), null);
+  }
 
+  /**
+   * Same as {@link #_closestPoint(Vector)} but stores the result into {@code target} (if
+   * null a new vector is created). Uses the precomputed edges, so that it doesn't allocate.
+   */
+  protected Vector _closestPoint(float x, float y, Vector target) {
+    float minDist = Float.MAX_VALUE;
+    float cx = 0, cy = 0;
+    for (int i = 0, j = _size - 1; i < _size; j = i++) {
+      float ex = _edges[2 * i], ey = _edges[2 * i + 1];
+      float jx = _points[2 * j], jy = _points[2 * j + 1];
+      //Get distance to line
+      float t = (ex * (x - jx) + ey * (y - jy)) * _edgeInverses[i];
+      float px, py;
       if (t < 0) {
-        dist = Vector.distance(v_j, point);
-        projection = v_j.get();
+        px = jx;
+        py = jy;
       } else if (t > 1) {
-        dist = Vector.distance(v_i, point);
-        projection = v_i.get();
+        px = _points[2 * i];
+        py = _points[2 * i + 1];
       } else {
-        projection = Vector.add(v_j, Vector.multiply(edge, t));
-        dist = Vector.subtract(point, projection).magnitude();
+        px = jx + ex * t;
+        py = jy + ey * t;
       }
+      float dist = (x - px) * (x - px) + (y - py) * (y - py);
       if (dist < minDist) {
         minDist = dist;
-        target = projection;
+        cx = px;
+        cy = py;
       }
     }
+    if (target == null)
+      return new Vector(cx, cy, 0);
+    target.set(cx, cy, 0);
     return target;
   }
 }
\ No newline at end of file
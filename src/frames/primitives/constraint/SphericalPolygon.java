@@ -31,9 +31,26 @@ public class SphericalPolygon extends Constraint {
   protected Quaternion _restRotation = new Quaternion();
   protected Vector _min, _max;
 
-  //Some pre-computations
-  protected ArrayList<Vector> _b = new ArrayList<Vector>();
-  protected ArrayList<Vector> _s = new ArrayList<Vector>();
+  /*
+   * Number of angular sectors (around the visible point) of the lookup table used by
+   * _isInside()
+   */
+  public static final int SECTORS = 64;
+
+  //Some pre-computations, see _init(). They're read-only once built, so that apply() may
+  //be called concurrently (e.g., by sibling sub-chains solved in parallel)
+  protected int _size;
+  //packed (x,y,z) vertices, S_i = visiblePoint x p_i and B_i = p_i x p_(i+1) normals
+  protected float[] _points = new float[0];
+  protected float[] _s = new float[0];
+  protected float[] _b = new float[0];
+  //packed p_i - p_(i-1) edges and their inverse squared lengths
+  protected float[] _edges = new float[0];
+  protected float[] _edgeInverses = new float[0];
+  //tangent basis at the visible point and per angular sector polygon sector index
+  //(-1 when a vertex lies within the angular sector)
+  protected Vector _u = new Vector(), _v = new Vector();
+  protected int[] _sectors = new int[0];
 
   /**
    * reference is a Quaternion that will be aligned to point to the given Basis Vectors
@@ -124,10 +141,10 @@ public class SphericalPolygon extends Constraint {
   }
 
   public Vector apply(Vector target, Quaternion restRotation) {
-    Vector point = restRotation.inverse().multiply(target);
-    if (!_isInside(point)) {
-      Vector constrained = _closestPoint(point);
-      return restRotation.rotate(constrained);
+    Vector point = restRotation.inverseRotate(target, new Vector());
+    if (!_isInside(point.x(), point.y(), point.z())) {
+      _closestPoint(point.x(), point.y(), point.z(), point);
+      return restRotation.rotate(point, point);
     }
     return target;
   }
@@ -168,56 +185,160 @@ public class SphericalPolygon extends Constraint {
 
   //TODO: seems this one should be protected
   protected void _init() {
-    _b = new ArrayList<Vector>();
-    _s = new ArrayList<Vector>();
-    for (int i = 0; i < _vertices.size(); i++) {
+    _size = _vertices.size();
+    _points = new float[3 * _size];
+    _s = new float[3 * _size];
+    _b = new float[3 * _size];
+    _edges = new float[3 * _size];
+    _edgeInverses = new float[_size];
+    Vector vector = new Vector();
+    for (int i = 0; i < _size; i++) {
       Vector p_i = _vertices.get(i);
-      Vector p_j = i + 1 == _vertices.size() ? _vertices.get(0) : _vertices.get(i + 1);
-      _s.add(Vector.cross(_visiblePoint, p_i, null));
-      _b.add(Vector.cross(p_i, p_j, null));
+      Vector p_j = i + 1 == _size ? _vertices.get(0) : _vertices.get(i + 1);
+      Vector p_k = i == 0 ? _vertices.get(_size - 1) : _vertices.get(i - 1);
+      _store(_points, i, p_i);
+      _store(_s, i, Vector.cross(_visiblePoint, p_i, vector));
+      _store(_b, i, Vector.cross(p_i, p_j, vector));
+      _store(_edges, i, Vector.subtract(p_i, p_k, vector));
+      float squaredMagnitude = vector.squaredNorm();
+      _edgeInverses[i] = squaredMagnitude == 0 ? 0 : 1 / squaredMagnitude;
     }
+    _initSectors();
   }
 
-  protected boolean _isInside(Vector L) {
-    //1. Find i s.t p_i = S_i . L >= 0 and p_j = S_j . L < 0 with j = i + 1
-    int index = 0;
-    for (int i = 0; i < _vertices.size(); i++) {
-      if (Vector.dot(_s.get(i), L) >= 0 && Vector.dot(_s.get((i + 1) % _vertices.size()), L) < 0) {
-        index = i;
-        break;
+  protected void _store(float[] array, int i, Vector vector) {
+    array[3 * i] = vector.x();
+    array[3 * i + 1] = vector.y();
+    array[3 * i + 2] = vector.z();
+  }
+
+  /**
+   * Builds the angular sector table used by {@link #_isInside(float, float, float)}.
+   * <p>
+   * Since every S_i is orthogonal to the visible point, the sign of S_i . L only depends on
+   * the angle of L around it. Hence, the polygon sector found by the linear search is the
+   * same for all the points within an angular sector not containing any vertex (nor any
+   * vertex opposite direction), and it may be looked up from the point angle.
+   */
+  protected void _initSectors() {
+    if (_size == 0 || _visiblePoint == null) {
+      _sectors = new int[0];
+      return;
+    }
+    _u = _visiblePoint.orthogonalVector();
+    _u.normalize();
+    _v = Vector.cross(_visiblePoint, _u, null);
+    _v.normalize();
+    int count = SECTORS;
+    _sectors = new int[count];
+    boolean[] vertex = new boolean[count];
+    for (int i = 0; i < _size; i++) {
+      float x = _u.x() * _points[3 * i] + _u.y() * _points[3 * i + 1] + _u.z() * _points[3 * i + 2];
+      float y = _v.x() * _points[3 * i] + _v.y() * _points[3 * i + 1] + _v.z() * _points[3 * i + 2];
+      //S_i . L changes its sign at both the p_i and the opposite directions. Vertices
+      //(too) close to a sector boundary mark both neighbours
+      for (int k = 0; k < 2; k++) {
+        float sector = _sector(k == 0 ? x : -x, k == 0 ? y : -y, count);
+        vertex[(int) sector % count] = true;
+        vertex[(int) (sector + 0.01f) % count] = true;
+        vertex[((int) Math.floor(sector - 0.01f) + count) % count] = true;
       }
     }
-    return Vector.dot(_b.get(index), L) >= 0;
+    for (int sector = 0; sector < count; sector++) {
+      if (vertex[sector]) {
+        _sectors[sector] = -1;
+        continue;
+      }
+      float angle = (float) (2 * Math.PI * (sector + 0.5f) / count - Math.PI);
+      float x = (float) Math.cos(angle), y = (float) Math.sin(angle);
+      _sectors[sector] = _search(_u.x() * x + _v.x() * y, _u.y() * x + _v.y() * y, _u.z() * x + _v.z() * y);
+    }
+  }
+
+  /**
+   * Returns the (non-truncated) angular sector of the point having {@code (x,y)} tangent
+   * coordinates.
+   */
+  protected float _sector(float x, float y, int count) {
+    float sector = (float) ((Math.atan2(y, x) + Math.PI) / (2 * Math.PI)) * count;
+    return sector >= count ? sector - count : sector;
+  }
+
+  /**
+   * Linear search of the polygon sector i s.t. S_i . L >= 0 and S_j . L < 0 with j = i + 1.
+   */
+  protected int _search(float x, float y, float z) {
+    for (int i = 0; i < _size; i++) {
+      int j = i + 1 == _size ? 0 : i + 1;
+      if (_s[3 * i] * x + _s[3 * i + 1] * y + _s[3 * i + 2] * z >= 0 &&
+          _s[3 * j] * x + _s[3 * j + 1] * y + _s[3 * j + 2] * z < 0)
+        return i;
+    }
+    return 0;
+  }
+
+  protected boolean _isInside(Vector L) {
+    return _isInside(L.x(), L.y(), L.z());
+  }
+
+  /**
+   * Same as {@link #_isInside(Vector)} but looks up the polygon sector containing
+   * {@code (x,y,z)} in the angular sector table, so that it takes constant time
+   * regardless of the number of vertices (see {@link #_initSectors()}).
+   */
+  protected boolean _isInside(float x, float y, float z) {
+    if (_size == 0)
+      return true;
+    //1. Find i s.t p_i = S_i . L >= 0 and p_j = S_j . L < 0 with j = i + 1
+    float tu = _u.x() * x + _u.y() * y + _u.z() * z;
+    float tv = _v.x() * x + _v.y() * y + _v.z() * z;
+    int index = tu == 0 && tv == 0 ? -1 : _sectors[(int) _sector(tu, tv, _sectors.length) % _sectors.length];
+    if (index == -1)
+      index = _search(x, y, z);
+    return _b[3 * index] * x + _b[3 * index + 1] * y + _b[3 * index + 2] * z >= 0;
   }
 
   protected Vector _closestPoint(Vector point) {
-    float minDist = 999999;
-    Vector target = new Vector();
-    for (int i = 0, j = _vertices.size() - 1; i < _vertices.size(); j = i++) {
-      Vector projection;
-      float dist;
-      Vector v_i = _vertices.get(i);
-      Vector v_j = _vertices.get(j);
-      Vector edge = Vector.subtract(v_i, v_j);
-      //Get distance to line
-      float t = Vector.dot(edge, Vector.subtract(point, v_j));
-      t /= edge.magnitude() * edge.magnitude();
+    return _closestPoint(point.x(), point.y(), point.z(), null);
+  }
 
+  /**
+   * Same as {@link #_closestPoint(Vector)} but stores the result into {@code target} (if
+   * null a new vector is created). Uses the precomputed edges, so that it doesn't allocate.
+   */
+  protected Vector _closestPoint(float x, float y, float z, Vector target) {
+    float minDist = Float.MAX_VALUE;
+    float cx = 0, cy = 0, cz = 0;
+    for (int i = 0, j = _size - 1; i < _size; j = i++) {
+      float ex = _edges[3 * i], ey = _edges[3 * i + 1], ez = _edges[3 * i + 2];
+      float jx = _points[3 * j], jy = _points[3 * j + 1], jz = _points[3 * j + 2];
+      //Get distance to line
+      float t = (ex * (x - jx) + ey * (y - jy) + ez * (z - jz)) * _edgeInverses[i];
+      float px, py, pz;
       if (t < 0) {
-        dist = Vector.distance(v_j, point);
-        projection = v_j.get();
+        px = jx;
+        py = jy;
+        pz = jz;
       } else if (t > 1) {
-        dist = Vector.distance(v_i, point);
-        projection = v_i.get();
+        px = _points[3 * i];
+        py = _points[3 * i + 1];
+        pz = _points[3 * i + 2];
       } else {
-        projection = Vector.add(v_j, Vector.multiply(edge, t));
-        dist = Vector.subtract(point, projection).magnitude();
+        px = jx + ex * t;
+        py = jy + ey * t;
+        pz = jz + ez * t;
       }
+      float dist = (x - px) * (x - px) + (y - py) * (y - py) + (z - pz) * (z - pz);
       if (dist < minDist) {
         minDist = dist;
-        target = projection;
+        cx = px;
+        cy = py;
+        cz = pz;
       }
     }
+    if (target == null)
+      return new Vector(cx, cy, cz);
+    target.set(cx, cy, cz);
     return target;
   }
 }
\ No newline at end of file
@@ -12,17 +12,38 @@ package frames.processing;
 
 import frames.timing.Taskable;
 import frames.timing.Timer;
+import frames.timing.TimingHandler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Parrallel timer based on java.util.Timer and java.util.TimerTask.
+ * Parrallel timer. All parallel timers share a single pool of {@link #poolSize()} daemon
+ * threads (a {@code java.util.concurrent.ScheduledThreadPoolExecutor}), so that running,
+ * stopping or cancelling a timer doesn't create nor destroy any thread.
+ * <p>
+ * Timers having a {@link TimingHandler} only keep time in parallel: each time they fire
+ * the task is {@link TimingHandler#post(Taskable)}ed to the handler, which executes it on
+ * the render thread before the graph is traversed (see {@code Graph.preDraw()}), so that
+ * node transforms are never read while being written. Firings which take place between
+ * two frames are coalesced into a single post but all of them are executed. Timers
+ * without a handler execute the task right away on the pool thread.
  */
 class ParallelTimer implements Timer {
-  java.util.Timer _timer;
-  java.util.TimerTask _timerTask;
+  private static int _poolSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  protected static ScheduledThreadPoolExecutor _executor;
+
   Taskable _task;
   boolean _once;
-  boolean _active;
   long _period;
+  volatile ScheduledFuture<?> _future;
+  TimingHandler _handler;
+  // number of firings not yet executed by the handler
+  AtomicInteger _pending = new AtomicInteger();
+  Taskable _handOff;
 
   /**
    * Same as {@code this(task, false)}.
@@ -40,8 +61,72 @@ class ParallelTimer implements Timer {
    * @param singleShot
    */
   public ParallelTimer(Taskable task, boolean singleShot) {
+    this(null, task, singleShot);
+  }
+
+  /**
+   * Same as {@code this(handler, task, false)}.
+   *
+   * @see #ParallelTimer(TimingHandler, Taskable, boolean)
+   */
+  public ParallelTimer(TimingHandler handler, Taskable task) {
+    this(handler, task, false);
+  }
+
+  /**
+   * Defines a parallel (multi-threaded) timer whose task is executed by the given
+   * {@code handler} {@link TimingHandler#flush()}.
+   *
+   * @param handler
+   * @param task
+   * @param singleShot
+   */
+  public ParallelTimer(TimingHandler handler, Taskable task, boolean singleShot) {
+    _handler = handler;
     _once = singleShot;
     _task = task;
+    _handOff = new Taskable() {
+      @Override
+      public void execute() {
+        for (int i = _pending.getAndSet(0); i > 0; i--)
+          _task.execute();
+      }
+    };
+  }
+
+  /**
+   * Returns the shared executor, instantiating it on first use.
+   */
+  protected static synchronized ScheduledThreadPoolExecutor _executor() {
+    if (_executor == null) {
+      _executor = new ScheduledThreadPoolExecutor(_poolSize, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "frames-timer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      // cancelled timers are removed from the queue right away
+      _executor.setRemoveOnCancelPolicy(true);
+    }
+    return _executor;
+  }
+
+  /**
+   * Returns the number of threads shared by all parallel timers.
+   */
+  public static synchronized int poolSize() {
+    return _executor == null ? _poolSize : _executor.getCorePoolSize();
+  }
+
+  /**
+   * Sets the number of threads shared by all parallel timers.
+   */
+  public static synchronized void setPoolSize(int size) {
+    _poolSize = Math.max(1, size);
+    if (_executor != null)
+      _executor.setCorePoolSize(_poolSize);
   }
 
   @Override
@@ -52,12 +137,6 @@ class ParallelTimer implements Timer {
   @Override
   public void create() {
     stop();
-    _timer = new java.util.Timer();
-    _timerTask = new java.util.TimerTask() {
-      public void run() {
-        _task.execute();
-      }
-    };
   }
 
   @Override
@@ -68,12 +147,25 @@ class ParallelTimer implements Timer {
 
   @Override
   public void run() {
-    create();
+    stop();
+    Runnable runnable = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (_handler == null)
+            _task.execute();
+          else if (_pending.getAndIncrement() == 0)
+            _handler.post(_handOff);
+        } catch (RuntimeException exception) {
+          // report and swallow it: a periodic task throwing would be cancelled for good
+          exception.printStackTrace();
+        }
+      }
+    };
     if (isSingleShot())
-      _timer.schedule(_timerTask, _period);
+      _future = _executor().schedule(runnable, _period, TimeUnit.MILLISECONDS);
     else
-      _timer.scheduleAtFixedRate(_timerTask, 0, _period);
-    _active = true;
+      _future = _executor().scheduleAtFixedRate(runnable, 0, Math.max(1, _period), TimeUnit.MILLISECONDS);
   }
 
   @Override
@@ -83,16 +175,17 @@ class ParallelTimer implements Timer {
 
   @Override
   public void stop() {
-    if (_timer != null) {
-      _timer.cancel();
-      _timer.purge();
-    }
-    _active = false;
+    ScheduledFuture<?> future = _future;
+    if (future != null)
+      future.cancel(false);
+    _future = null;
+    _pending.set(0);
   }
 
   @Override
   public boolean isActive() {
-    return _timer != null && _active;
+    ScheduledFuture<?> future = _future;
+    return future != null && !future.isDone();
   }
 
   @Override
@@ -33,6 +33,8 @@ import processing.opengl.PGraphics3D;
 import processing.opengl.PGraphicsOpenGL;
 import processing.opengl.PShader;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.List;
@@ -223,6 +225,12 @@ public class Scene extends Graph implements PConstants {
   protected PGraphics _targetPGraphics;
   protected PGraphics _bb;
   protected boolean _bbEnabled;
+  // _bb region around the pointer, rendered and read back on demand
+  protected int _bbRegion = 9;
+  protected int _bbX, _bbY, _bbWidth, _bbHeight;
+  protected long _bbFrame = -1;
+  protected int[] _bbPixels;
+  protected ByteBuffer _bbBytes;
   protected PShader _triangleShader, _lineShader, _pointShader;
 
   // CONSTRUCTORS
@@ -284,6 +292,9 @@ public class Scene extends Graph implements PConstants {
         pApplet().createGraphics(frontBuffer().width, frontBuffer().height, frontBuffer() instanceof PGraphics3D ? P3D : P2D) :
         null;
     if (_bb != null) {
+      // ids shouldn't get blended by multisampling, which also lets pixels be read right
+      // off the bound framebuffer, see _renderBackBuffer(int, int)
+      _bb.noSmooth();
       _triangleShader = pApplet().loadShader("PickingBuffer.frag");
       _lineShader = pApplet().loadShader("PickingBuffer.frag");
       _pointShader = pApplet().loadShader("PickingBuffer.frag");
@@ -337,29 +348,107 @@ public class Scene extends Graph implements PConstants {
   /**
    * Returns the back buffer, used for
    * <a href="http://schabby.de/picking-opengl-ray-tracing/">'ray-picking'</a>.
+   * <p>
+   * Note that the back buffer contents are partial and lazy: it isn't rendered every
+   * frame, but only the {@link #pickingRegion()} around the pointer, and only when an
+   * {@link Node.Precision#EXACT} shape is actually polled. The rest of the buffer is blank
+   * or stale. Call {@link #renderBackBuffer()} to render the whole of it, e.g., to display
+   * it.
    */
   public PGraphics backBuffer() {
     return _bb;
   }
 
   /**
-   * Internal use. Traverse the scene {@link #nodes()}) into the
-   * {@link #backBuffer()} to perform picking on the scene {@link #nodes()}.
-   * <p>
-   * Called by {@link #draw()} (on-screen scenes) and {@link #endDraw()} (off-screen
-   * scenes).
+   * Renders the whole {@link #backBuffer()} (i.e., the ids of all the scene shapes) and
+   * returns it. Meant for debugging and visualization only, since picking just renders
+   * the {@link #pickingRegion()} around the pointer. Returns {@code null} if the scene
+   * has no back buffer.
    */
-  protected void _renderBackBuffer() {
-    if (!_bbEnabled)
-      return;
+  public PGraphics renderBackBuffer() {
+    if (backBuffer() == null)
+      return null;
     backBuffer().beginDraw();
     backBuffer().pushStyle();
     backBuffer().background(0);
     traverse(backBuffer());
     backBuffer().popStyle();
     backBuffer().endDraw();
-    // if (frames().size() > 0)
-    backBuffer().loadPixels();
+    return backBuffer();
+  }
+
+  /**
+   * Returns the side length (in pixels) of the {@link #backBuffer()} region rendered
+   * around the pointer when picking {@link Node.Precision#EXACT} shapes.
+   *
+   * @see #setPickingRegion(int)
+   */
+  public int pickingRegion() {
+    return _bbRegion;
+  }
+
+  /**
+   * Sets the side length (in pixels) of the {@link #backBuffer()} region rendered around
+   * the pointer when picking {@link Node.Precision#EXACT} shapes. Default is 9. Larger
+   * regions let more pointer positions be resolved from a single back buffer pass within
+   * the same frame.
+   */
+  public void setPickingRegion(int size) {
+    _bbRegion = Math.max(1, size);
+    _bbFrame = -1;
+  }
+
+  /**
+   * Internal use. Returns the {@link #backBuffer()} pixel (in ARGB format) at
+   * {@code (x, y)}, or 0 if it lies outside the buffer. The back buffer is rendered
+   * lazily: only when an agent actually polls an {@link Node.Precision#EXACT} shape, at
+   * most once per frame and pointer region, see {@link #_renderBackBuffer(int, int)}.
+   */
+  protected int _backBufferPixel(int x, int y) {
+    if (!_bbEnabled || x < 0 || y < 0 || x >= backBuffer().width || y >= backBuffer().height)
+      return 0;
+    if (_bbFrame != TimingHandler.frameCount || x < _bbX || y < _bbY || x >= _bbX + _bbWidth || y >= _bbY + _bbHeight)
+      _renderBackBuffer(x, y);
+    // rows are read back bottom-up
+    return _bbPixels[(_bbY + _bbHeight - 1 - y) * _bbWidth + x - _bbX];
+  }
+
+  /**
+   * Internal use. Traverse the scene {@link #nodes()}) into the {@link #backBuffer()},
+   * restricted (by a clip, i.e., scissor, region) to the {@link #pickingRegion()} around
+   * {@code (x, y)}, and reads back just those pixels.
+   */
+  protected void _renderBackBuffer(int x, int y) {
+    int half = _bbRegion / 2;
+    _bbX = Math.max(0, x - half);
+    _bbY = Math.max(0, y - half);
+    _bbWidth = Math.min(backBuffer().width, x - half + _bbRegion) - _bbX;
+    _bbHeight = Math.min(backBuffer().height, y - half + _bbRegion) - _bbY;
+    int size = _bbWidth * _bbHeight;
+    if (_bbPixels == null || _bbPixels.length < size) {
+      _bbPixels = new int[_bbRegion * _bbRegion];
+      _bbBytes = ByteBuffer.allocateDirect(4 * _bbPixels.length).order(ByteOrder.nativeOrder());
+    }
+    backBuffer().beginDraw();
+    backBuffer().pushStyle();
+    backBuffer().clip(_bbX, _bbY, _bbWidth, _bbHeight);
+    backBuffer().background(0);
+    traverse(backBuffer());
+    _bbBytes.rewind();
+    PGL pgl = backBuffer().beginPGL();
+    pgl.readPixels(_bbX, backBuffer().height - _bbY - _bbHeight, _bbWidth, _bbHeight, PGL.RGBA, PGL.UNSIGNED_BYTE, _bbBytes);
+    backBuffer().endPGL();
+    backBuffer().noClip();
+    backBuffer().popStyle();
+    backBuffer().endDraw();
+    for (int i = 0; i < size; i++) {
+      int r = _bbBytes.get(4 * i) & 255;
+      int g = _bbBytes.get(4 * i + 1) & 255;
+      int b = _bbBytes.get(4 * i + 2) & 255;
+      int a = _bbBytes.get(4 * i + 3) & 255;
+      _bbPixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+    }
+    _bbFrame = TimingHandler.frameCount;
   }
 
   // Mouse agent
@@ -536,7 +625,7 @@ public class Scene extends Graph implements PConstants {
     if (areTimersSequential())
       timingHandler().registerTask(task);
     else
-      timingHandler().registerTask(task, new ParallelTimer(task));
+      timingHandler().registerTask(task, new ParallelTimer(timingHandler(), task));
   }
 
   /**
@@ -555,7 +644,8 @@ public class Scene extends Graph implements PConstants {
   }
 
   /**
-   * Sets all {@link #timingHandler()} timers as (multi-threaded) java.util.Timer(s).
+   * Sets all {@link #timingHandler()} timers as (multi-threaded) parallel timers, all of
+   * them sharing a pool of {@link #parallelTimersPoolSize()} threads.
    *
    * @see #setSequentialTimers()
    * @see #shiftTimers()
@@ -576,7 +666,7 @@ public class Scene extends Graph implements PConstants {
         rOnce = task.timer().isSingleShot();
       }
       task.stop();
-      task.setTimer(new ParallelTimer(task));
+      task.setTimer(new ParallelTimer(timingHandler(), task));
       if (isActive) {
         if (rOnce)
           task.runOnce(period);
@@ -589,6 +679,27 @@ public class Scene extends Graph implements PConstants {
     PApplet.println("java util timers set");
   }
 
+  /**
+   * Returns the number of threads shared by all the parallel timers.
+   *
+   * @see #setParallelTimers()
+   * @see #setParallelTimersPoolSize(int)
+   */
+  public int parallelTimersPoolSize() {
+    return ParallelTimer.poolSize();
+  }
+
+  /**
+   * Sets the number of threads shared by all the parallel timers. Default is half the
+   * number of available processors.
+   *
+   * @see #setParallelTimers()
+   * @see #parallelTimersPoolSize()
+   */
+  public void setParallelTimersPoolSize(int size) {
+    ParallelTimer.setPoolSize(size);
+  }
+
   /**
    * Returns true, if timing is handling sequentially (i.e., all {@link #timingHandler()}
    * timers are (single-threaded) {@link SequentialTimer}(s)).
@@ -676,7 +787,7 @@ public class Scene extends Graph implements PConstants {
 
   /**
    * Paint method which is called just after your {@code PApplet.draw()} method. Simply
-   * render the back buffer (useful for picking) and call {@link #postDraw()}. This method
+   * call {@link #postDraw()}. This method
    * is registered at the PApplet and hence you don't need to call it. Only meaningful if
    * the graph is on-screen (it the graph {@link #isOffscreen()} it even doesn't get
    * registered at the PApplet.
@@ -692,7 +803,6 @@ public class Scene extends Graph implements PConstants {
    */
   public void draw() {
     popModelView();
-    _renderBackBuffer();
     postDraw();
     if (hasAutoFocus())
       _handleFocus();
@@ -747,7 +857,6 @@ public class Scene extends Graph implements PConstants {
    *
    * <ol>
    * <li>{@code frontBuffer().endDraw()} and hence there's no need to explicitly call it</li>
-   * <li>{@code _renderBackBuffer()}: Render the back buffer (useful for picking)</li>
    * <li>{@link #postDraw()}</li>
    * <li>{@link #_handleFocus()} if {@link #hasAutoFocus()} is {@code true}</li>
    * </ol>
@@ -772,7 +881,6 @@ public class Scene extends Graph implements PConstants {
           + "endDraw() and they cannot be nested. Check your implementation!");
     popModelView();
     frontBuffer().endDraw();
-    _renderBackBuffer();
     postDraw();
     _lastDisplay = TimingHandler.frameCount;
     if (hasAutoFocus())
@@ -1205,6 +1313,8 @@ public class Scene extends Graph implements PConstants {
 
   @Override
   protected void _visit(Node node) {
+    if (_cullBranch(node))
+      return;
     _targetPGraphics.pushMatrix();
     applyTransformation(_targetPGraphics, node);
     node.visit();
@@ -40,10 +40,12 @@ import processing.opengl.PGraphicsOpenGL;
  * graphics procedures for rendering and picking, respectively.
  * <h2>Picking</h2>
  * Picking a shape is done according to a precision which can either be:
- * {@link Precision#FIXED}, {@link Precision#ADAPTIVE} or {@link Precision#EXACT}. Refer
- * to the {@link Node} documentation for both, {@link Precision#FIXED} and
- * {@link Precision#ADAPTIVE}. The default {@link Precision#EXACT} precision use ray-casting
- * of the pointer device over the projected pixels of the back shape. To set a different
+ * {@link Precision#FIXED}, {@link Precision#ADAPTIVE}, {@link Precision#EXACT} or
+ * {@link Precision#RAY}. Refer to the {@link Node} documentation for
+ * {@link Precision#FIXED}, {@link Precision#ADAPTIVE} and {@link Precision#RAY}. The default
+ * {@link Precision#EXACT} precision use ray-casting of the pointer device over the projected
+ * pixels of the back shape. {@link Precision#RAY} casts the pointer ray against the shape
+ * bounds instead, so that no back buffer needs to be rendered. To set a different
  * precision, use {@link #setPrecision(Precision)}. See also {@link #precision()}.
  * <h2>Highlighting</h2>
  * The shape may be highlighted when picking takes place according to a
@@ -378,7 +380,8 @@ public class Shape extends Node {
    * color buffer (see {@link frames.processing.Scene#backBuffer()}). This method
    * compares the color of the {@link frames.processing.Scene#backBuffer()} at
    * {@code (x,y)} with the shape id. Returns true if both colors are the same, and false
-   * otherwise.
+   * otherwise. Only a small region of the back buffer around {@code (x,y)} is rendered
+   * (and read back) on demand, see {@link frames.processing.Scene#setPickingRegion(int)}.
    * <p>
    * This method is only meaningful when this shape is not an eye.
    *
@@ -391,10 +394,6 @@ public class Shape extends Node {
     }
     if (precision() != Precision.EXACT)
       return super.track(x, y);
-    int index = (int) y * graph().width() + (int) x;
-    if (graph().backBuffer().pixels != null)
-      if ((0 <= index) && (index < graph().backBuffer().pixels.length))
-        return graph().backBuffer().pixels[index] == _id();
-    return false;
+    return graph()._backBufferPixel((int) x, (int) y) == _id();
   }
 }
@@ -25,8 +25,8 @@ public class AnimatorObject implements Animator {
    */
   public AnimatorObject(TimingHandler handler) {
     _handler = handler;
-    _handler.registerAnimator(this);
     _animationTimer = new SequentialTimer(_handler);
+    _handler.registerAnimator(this);
     setPeriod(40); // 25Hz
     stop();
   }
@@ -12,6 +12,10 @@ package frames.timing;
 
 /**
  * Sequential timers are single-threaded timers handled by a TimingHandler.
+ * <p>
+ * Active timers are kept by their handler in a priority queue sorted by their next
+ * deadline, so that each frame only the timers that are due are visited (see
+ * {@link TimingHandler#handle()}).
  */
 public class SequentialTimer implements Timer {
   protected Taskable _task;
@@ -21,6 +25,13 @@ public class SequentialTimer implements Timer {
   private long _counter;
   private long _period;
   private long _startTime;
+  // next deadline (in nanoseconds) and priority queue index (-1 if not queued)
+  protected long _deadline;
+  protected int _index = -1;
+  // whether or not the handler should execute the timer (i.e., its task or animator is
+  // registered at the handler)
+  protected boolean _registered;
+  protected Animator _animator;
 
   /**
    * Defines a single shot sequential (single-threaded) timer.
@@ -58,19 +69,32 @@ public class SequentialTimer implements Timer {
   }
 
   /**
-   * Executes the callback method defined by the {@link #timingTask()}.
+   * Executes the callback method defined by the {@link #timingTask()} (or the animation
+   * callback of the animator the timer belongs to) once the timer is due, and schedules
+   * its next execution.
    *
    * <b>Note:</b> You should not call this method since it's done by the timing handler
    * (see {@link frames.timing.TimingHandler#handle()}).
    */
-  protected boolean _execute() {
-    boolean result = trigggered();
-    if (result) {
-      timingTask().execute();
-      if (_once)
-        inactivate();
-    }
-    return result;
+  protected void _execute() {
+    _counter++;
+    if (!_once)
+      _schedule();
+    if (_task != null)
+      _task.execute();
+    else if (_animator != null && _animator.started())
+      _animator.animate();
+    if (_once)
+      inactivate();
+  }
+
+  /**
+   * Computes the next deadline and (re)queues the timer at its handler.
+   */
+  protected void _schedule() {
+    _deadline = _startTime + _counter * _period * 1000000;
+    if (_registered)
+      _handler._schedule(this);
   }
 
   @Override
@@ -97,7 +121,8 @@ public class SequentialTimer implements Timer {
     inactivate();
     _counter = 1;
     _active = true;
-    _startTime = System.currentTimeMillis();
+    _startTime = _handler._time();
+    _schedule();
   }
 
   @Override
@@ -117,40 +142,40 @@ public class SequentialTimer implements Timer {
    */
   public void inactivate() {
     _active = false;
+    _handler._unschedule(this);
   }
 
   /**
-   * Returns {@code true} if the timer was triggered at the given frame.
-   *
-   * <b>Note:</b> You should not call this method since it's done by the timing handler
-   * (see {@link frames.timing.TimingHandler#handle()}).
+   * Returns {@code true} if the timer was triggered at the given frame, i.e., if its
+   * deadline is closer to the current frame than to the next one.
+   * <p>
+   * Registered timers are triggered by the timing handler (see
+   * {@link frames.timing.TimingHandler#handle()}), but this method may be polled for
+   * timers (e.g., an unregistered animator one) having no task.
    */
   public boolean trigggered() {
-    if (!_active)
+    if (!_active || !_due(_handler._time()))
       return false;
+    _counter++;
+    _schedule();
+    return true;
+  }
 
-    long elapsedTime = System.currentTimeMillis() - _startTime;
-
-    float timePerFrame = (1 / _handler.frameRate()) * 1000;
-    long threshold = _counter * _period;
-
-    boolean result = false;
-    if (threshold >= elapsedTime) {
-      long diff = elapsedTime + (long) timePerFrame - threshold;
-      if (diff >= 0) {
-        if ((threshold - elapsedTime) < diff) {
-          result = true;
-        }
-      }
-    } else {
-      result = true;
-    }
-
-    if (result) {
-      _counter++;
-    }
+  /**
+   * Returns {@code true} if the timer deadline is closer to {@code now} than to the next
+   * frame.
+   */
+  protected boolean _due(long now) {
+    return _deadline - _handler._tolerance() <= now;
+  }
 
-    return result;
+  /**
+   * Delays the timer (i.e., its start time and deadline) by the given nanoseconds. Used
+   * by the handler when switching clocks.
+   */
+  protected void _shift(long delay) {
+    _startTime += delay;
+    _deadline += delay;
   }
 
   @Override
@@ -11,6 +11,7 @@
 package frames.timing;
 
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * A timing handler holds a {@link #timerPool()} and an {@link #animatorPool()}. The timer
@@ -18,6 +19,13 @@ import java.util.ArrayList;
  * periodically). The animation pool are all the objects that implement an animation
  * callback function. For an introduction to FPSTiming please refer to
  * <a href="http://nakednous.github.io/projects/fpstiming">this</a>.
+ * <p>
+ * Active {@link SequentialTimer}s are kept in a binary heap sorted by their next deadline,
+ * so that {@link #handle()} only visits the timers that are due, reading the clock
+ * (monotonic {@code System.nanoTime()}) just once per frame.
+ * <p>
+ * Timers may also be driven by a fixed timestep simulation clock, decoupled from the
+ * frame rate (see {@link #enableFixedTimestep()}).
  */
 public class TimingHandler {
   static public long frameCount;
@@ -26,8 +34,26 @@ public class TimingHandler {
   protected long _deltaCount;
   // T i m e r P o o l
   protected ArrayList<TimingTask> _taskPool;
-  protected long _frameRateLastMillis;
+  protected long _frameRateLastNanos;
   protected long _localCount;
+  // half the time per frame, in nanoseconds
+  protected long _tolerance;
+
+  // Active sequential timers, sorted by deadline
+  protected SequentialTimer[] _heap;
+  protected int _size;
+  protected ArrayList<SequentialTimer> _due;
+
+  // Fixed timestep: simulation clock, time step and catch-up limit (in nanoseconds)
+  protected boolean _fixedTimestep;
+  protected long _time;
+  protected long _timestep;
+  protected long _accumulator;
+  protected long _lastNanos;
+  protected int _maxSteps;
+
+  // Tasks posted from other threads, executed by flush()
+  protected ConcurrentLinkedQueue<Taskable> _posted;
 
   // A N I M A T I O N
   protected ArrayList<Animator> _animatorPool;
@@ -39,8 +65,14 @@ public class TimingHandler {
     _localCount = 0;
     _deltaCount = frameCount;
     _frameRate = 10;
-    _frameRateLastMillis = System.currentTimeMillis();
+    _frameRateLastNanos = System.nanoTime();
+    _tolerance = 50000000;
+    _timestep = 1000000000 / 60;
+    _maxSteps = 5;
     _taskPool = new ArrayList<TimingTask>();
+    _heap = new SequentialTimer[16];
+    _due = new ArrayList<SequentialTimer>();
+    _posted = new ConcurrentLinkedQueue<Taskable>();
     _animatorPool = new ArrayList<Animator>();
   }
 
@@ -49,19 +81,280 @@ public class TimingHandler {
    * the following: 1. Recomputes the frame rate; 2. Executes the all timers (those in the
    * {@link #timerPool()}) callback functions; and, 3. Performs all the animated objects
    * (those in the {@link #animatorPool()}) animation functions.
+   * <p>
+   * Only the timers that are due are visited, each one at most once per call, in deadline
+   * order. If {@link #isFixedTimestepEnabled()} the real time elapsed since the previous
+   * call is consumed in {@link #timestep()} ticks (up to {@link #maxSteps()} per call) and
+   * the due timers are visited once per tick.
    */
   public void handle() {
-    _updateFrameRate();
-    for (TimingTask task : _taskPool)
-      if (task.timer() != null)
-        if (task.timer() instanceof SequentialTimer)
-          if (task.timer().timingTask() != null)
-            ((SequentialTimer) task.timer())._execute();
-    // Animation
-    for (Animator animator : _animatorPool)
-      if (animator.started())
-        if (animator.timer().trigggered())
-          animator.animate();
+    long now = System.nanoTime();
+    _updateFrameRate(now);
+    if (!_fixedTimestep) {
+      _handle(now);
+      return;
+    }
+    // time exceeding the catch-up limit is dropped, i.e., the simulation slows down
+    _accumulator += Math.min(now - _lastNanos, _maxSteps * _timestep);
+    _lastNanos = now;
+    while (_accumulator >= _timestep) {
+      _time += _timestep;
+      _accumulator -= _timestep;
+      _handle(_time);
+    }
+  }
+
+  /**
+   * Executes the timers that are due at the given time.
+   */
+  protected void _handle(long now) {
+    while (_size > 0 && _heap[0]._due(now)) {
+      SequentialTimer timer = _heap[0];
+      _unschedule(timer);
+      _due.add(timer);
+    }
+    for (int i = 0; i < _due.size(); i++) {
+      SequentialTimer timer = _due.get(i);
+      // skip timers stopped or restarted by a previously executed one
+      if (!timer.isActive() || !timer._registered || timer._index >= 0)
+        continue;
+      // skip stale timers whose task has been set a new timer
+      if (timer.timingTask() instanceof TimingTask && ((TimingTask) timer.timingTask()).timer() != timer) {
+        timer._registered = false;
+        continue;
+      }
+      timer._execute();
+    }
+    _due.clear();
+  }
+
+  /**
+   * Returns the current time (in nanoseconds) of the sequential timers clock, i.e., the
+   * simulation time if {@link #isFixedTimestepEnabled()} and {@code System.nanoTime()}
+   * otherwise.
+   */
+  protected long _time() {
+    return _fixedTimestep ? _time : System.nanoTime();
+  }
+
+  /**
+   * Returns the time (in nanoseconds) a timer may be triggered ahead of its deadline,
+   * i.e., half the time per frame, or none if {@link #isFixedTimestepEnabled()}.
+   */
+  protected long _tolerance() {
+    return _fixedTimestep ? 0 : _tolerance;
+  }
+
+  /**
+   * Disables the fixed timestep mode. Timers are then triggered at the frame closest to
+   * their deadline, at most once per frame.
+   *
+   * @see #enableFixedTimestep()
+   * @see #isFixedTimestepEnabled()
+   */
+  public void disableFixedTimestep() {
+    enableFixedTimestep(false);
+  }
+
+  /**
+   * Enables the fixed timestep mode: the sequential timers (i.e., the IK solvers,
+   * interpolators and animators tasks) are driven by a simulation clock advancing in
+   * {@link #timestep()} ticks, as many as needed (up to {@link #maxSteps()}) to keep up
+   * with the real time elapsed between frames. Animation speed thus doesn't depend on the
+   * frame rate. Disabled by default.
+   * <p>
+   * Note that the rendered state is the one of the last tick, i.e., neither the handler
+   * nor the graph interpolate it. Renderers needing smoother motion should keep the
+   * previous and current states of the animated objects and blend them with
+   * {@link #alpha()}.
+   *
+   * @see #disableFixedTimestep()
+   * @see #isFixedTimestepEnabled()
+   */
+  public void enableFixedTimestep() {
+    enableFixedTimestep(true);
+  }
+
+  /**
+   * Enables or disables the fixed timestep mode according to {@code flag}.
+   *
+   * @see #enableFixedTimestep()
+   * @see #disableFixedTimestep()
+   */
+  public void enableFixedTimestep(boolean flag) {
+    if (flag == _fixedTimestep)
+      return;
+    long now = System.nanoTime();
+    if (flag) {
+      _time = _lastNanos = now;
+      _accumulator = 0;
+    } else {
+      // the simulation clock may lag behind, so deadlines are shifted back to real time
+      long delay = now - _time;
+      for (int i = 0; i < _size; i++)
+        _heap[i]._shift(delay);
+    }
+    _fixedTimestep = flag;
+  }
+
+  /**
+   * Returns {@code true} if the fixed timestep mode is enabled and {@code false}
+   * otherwise.
+   *
+   * @see #enableFixedTimestep(boolean)
+   */
+  public boolean isFixedTimestepEnabled() {
+    return _fixedTimestep;
+  }
+
+  /**
+   * Returns the fixed timestep duration in milliseconds. Default is 1000/60.
+   *
+   * @see #enableFixedTimestep()
+   */
+  public float timestep() {
+    return _timestep / 1e6f;
+  }
+
+  /**
+   * Sets the fixed timestep duration in milliseconds.
+   *
+   * @see #timestep()
+   */
+  public void setTimestep(float timestep) {
+    if (timestep > 0)
+      _timestep = Math.max(1, (long) (timestep * 1e6));
+  }
+
+  /**
+   * Returns the maximum number of {@link #timestep()} ticks per {@link #handle()} call.
+   * When frames take longer than that the simulation slows down instead of spiralling
+   * into ever longer frames. Default is 5.
+   *
+   * @see #setMaxSteps(int)
+   */
+  public int maxSteps() {
+    return _maxSteps;
+  }
+
+  /**
+   * Sets the {@link #maxSteps()}.
+   */
+  public void setMaxSteps(int maxSteps) {
+    _maxSteps = Math.max(1, maxSteps);
+  }
+
+  /**
+   * Returns the fraction (in [0..1[) of a {@link #timestep()} elapsed since the last
+   * simulation tick, which the renderer may use to interpolate between the previous and
+   * the current simulation states (which it should keep itself). Always 0 if the fixed
+   * timestep mode is disabled.
+   *
+   * @see #enableFixedTimestep()
+   */
+  public float alpha() {
+    return _fixedTimestep ? (float) _accumulator / _timestep : 0;
+  }
+
+  /**
+   * Posts the {@code task} to be executed on the thread calling {@link #flush()} (i.e.,
+   * the render thread, see {@code Graph.preDraw()}). This method is thread-safe and is
+   * meant to be called by parallel timers, so that their tasks mutate the graph nodes
+   * only while the graph isn't being traversed.
+   */
+  public void post(Taskable task) {
+    _posted.add(task);
+  }
+
+  /**
+   * Executes (and removes) all the {@link #post(Taskable)}ed tasks, in posting order.
+   */
+  public void flush() {
+    Taskable task;
+    while ((task = _posted.poll()) != null)
+      task.execute();
+  }
+
+  /**
+   * Adds the timer to the deadline heap, or updates its heap position if it's already
+   * there.
+   */
+  protected void _schedule(SequentialTimer timer) {
+    if (timer._index < 0) {
+      if (_size == _heap.length) {
+        SequentialTimer[] heap = new SequentialTimer[2 * _size];
+        System.arraycopy(_heap, 0, heap, 0, _size);
+        _heap = heap;
+      }
+      timer._index = _size;
+      _heap[_size++] = timer;
+    }
+    _siftDown(_siftUp(timer._index));
+  }
+
+  /**
+   * Removes the timer from the deadline heap, if it's there.
+   */
+  protected void _unschedule(SequentialTimer timer) {
+    int index = timer._index;
+    if (index < 0)
+      return;
+    timer._index = -1;
+    SequentialTimer last = _heap[--_size];
+    _heap[_size] = null;
+    if (index == _size)
+      return;
+    _heap[index] = last;
+    last._index = index;
+    _siftDown(_siftUp(index));
+  }
+
+  protected int _siftUp(int index) {
+    SequentialTimer timer = _heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >> 1;
+      if (_heap[parent]._deadline <= timer._deadline)
+        break;
+      _heap[index] = _heap[parent];
+      _heap[index]._index = index;
+      index = parent;
+    }
+    _heap[index] = timer;
+    timer._index = index;
+    return index;
+  }
+
+  protected void _siftDown(int index) {
+    SequentialTimer timer = _heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= _size)
+        break;
+      if (child + 1 < _size && _heap[child + 1]._deadline < _heap[child]._deadline)
+        child++;
+      if (timer._deadline <= _heap[child]._deadline)
+        break;
+      _heap[index] = _heap[child];
+      _heap[index]._index = index;
+      index = child;
+    }
+    _heap[index] = timer;
+    timer._index = index;
+  }
+
+  /**
+   * Sets whether or not the handler should execute the given timer, (un)scheduling it
+   * accordingly.
+   */
+  protected void _register(Timer timer, boolean registered) {
+    if (!(timer instanceof SequentialTimer))
+      return;
+    SequentialTimer sequentialTimer = (SequentialTimer) timer;
+    sequentialTimer._registered = registered;
+    if (registered && sequentialTimer.isActive())
+      _schedule(sequentialTimer);
+    else if (!registered)
+      _unschedule(sequentialTimer);
   }
 
   /**
@@ -76,6 +369,7 @@ public class TimingHandler {
    */
   public void registerTask(TimingTask task) {
     task.setTimer(new SequentialTimer(this, task));
+    _register(task.timer(), true);
     _taskPool.add(task);
   }
 
@@ -84,6 +378,7 @@ public class TimingHandler {
    */
   public void registerTask(TimingTask task, Timer timer) {
     task.setTimer(timer);
+    _register(timer, true);
     _taskPool.add(task);
   }
 
@@ -93,6 +388,7 @@ public class TimingHandler {
    * @see #unregisterTask(TimingTask)
    */
   public void unregisterTask(SequentialTimer timer) {
+    _register(timer, false);
     _taskPool.remove(timer.timingTask());
   }
 
@@ -102,6 +398,7 @@ public class TimingHandler {
    * @see #unregisterTask(SequentialTimer)
    */
   public void unregisterTask(TimingTask task) {
+    _register(task.timer(), false);
     _taskPool.remove(task);
   }
 
@@ -117,15 +414,14 @@ public class TimingHandler {
    * called from within the application main event loop. The frame rate is needed to sync
    * all timing operations.
    */
-  protected void _updateFrameRate() {
-    long now = System.currentTimeMillis();
-    if (_localCount > 1) {
+  protected void _updateFrameRate(long now) {
+    if (_localCount > 1 && now > _frameRateLastNanos) {
       // update the current _frameRate
-      double rate = 1000.0 / ((now - _frameRateLastMillis) / 1000.0);
-      float instantaneousRate = (float) rate / 1000.0f;
+      float instantaneousRate = (float) (1e9 / (now - _frameRateLastNanos));
       _frameRate = (_frameRate * 0.9f) + (instantaneousRate * 0.1f);
+      _tolerance = (long) (5e8 / _frameRate);
     }
-    _frameRateLastMillis = now;
+    _frameRateLastNanos = now;
     _localCount++;
     //TODO needs testing but I think is also safe and simpler
     //if (TimingHandler.frameCount < frameCount())
@@ -166,6 +462,7 @@ public class TimingHandler {
       }
       task.stop();
       task.setTimer(new SequentialTimer(this, task));
+      _register(task.timer(), true);
       if (isActive) {
         if (rOnce)
           task.runOnce(period);
@@ -190,6 +487,9 @@ public class TimingHandler {
    * Registers the animation object.
    */
   public void registerAnimator(Animator animator) {
+    if (animator.timer() != null)
+      animator.timer()._animator = animator;
+    _register(animator.timer(), true);
     _animatorPool.add(animator);
   }
 
@@ -197,6 +497,7 @@ public class TimingHandler {
    * Unregisters the animation object.
    */
   public void unregisterAnimator(Animator animator) {
+    _register(animator.timer(), false);
     _animatorPool.remove(animator);
   }
 
@@ -0,0 +1,93 @@
+package ik.benchmark;
+
+import frames.ik.*;
+import frames.primitives.Frame;
+import frames.primitives.Quaternion;
+import frames.primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/*
+ * Headless comparison of the IK solvers: each solver pursues the same random reachable
+ * targets on a chain (starting from the same pose) and the success rate, mean iterations
+ * and mean solving time are reported.
+ * */
+
+public class SolverBenchmark {
+  static int joints = 12;
+  static float boneLength = 10;
+  static int trials = 300;
+
+  interface Factory {
+    Solver create(ArrayList<Frame> chain, Frame target);
+  }
+
+  static ArrayList<Frame> chain() {
+    ArrayList<Frame> chain = new ArrayList<Frame>();
+    Frame reference = null;
+    for (int i = 0; i < joints; i++) {
+      Frame joint = new Frame();
+      joint.setReference(reference);
+      joint.setTranslation(0, i == 0 ? 0 : boneLength, 0);
+      chain.add(joint);
+      reference = joint;
+    }
+    return chain;
+  }
+
+  static void run(String name, Factory factory) {
+    Random random = new Random(7);
+    int solved = 0;
+    long iterations = 0, time = 0;
+    for (int t = 0; t < trials; t++) {
+      ArrayList<Frame> chain = chain();
+      Vector position = Vector.random();
+      position.setMagnitude(random.nextFloat() * 0.9f * boneLength * (joints - 1));
+      Frame target = new Frame(position, new Quaternion());
+      Solver solver = factory.create(chain, target);
+      solver.maxIter = 500;
+      long start = System.nanoTime();
+      while (!solver.iterate()) ;
+      time += System.nanoTime() - start;
+      //only the iterations which moved the joints are counted (see Solver.totalIterations)
+      iterations += solver.totalIterations;
+      if (Vector.distance(chain.get(joints - 1).position(), position) <= 10 * solver.error)
+        solved++;
+    }
+    System.out.printf("%-24s solved %3d/%d  mean iterations %6.1f  mean time %8.3f ms%n", name, solved, trials,
+        iterations / (float) trials, time / 1e6 / trials);
+  }
+
+  public static void main(String[] args) {
+    // warm up and measure
+    for (int pass = 0; pass < 2; pass++) {
+      System.out.println(pass == 0 ? "warm up" : "results");
+      run("CCD", new Factory() {
+        public Solver create(ArrayList<Frame> chain, Frame target) {
+          return new CCDSolver(chain, target);
+        }
+      });
+      run("FABRIK", new Factory() {
+        public Solver create(ArrayList<Frame> chain, Frame target) {
+          return new ChainSolver(chain, target);
+        }
+      });
+      run("Jacobian transpose", new Factory() {
+        public Solver create(ArrayList<Frame> chain, Frame target) {
+          return new JacobianTransposeSolver(chain, target);
+        }
+      });
+      run("Jacobian pseudo-inverse", new Factory() {
+        public Solver create(ArrayList<Frame> chain, Frame target) {
+          return new PseudoInverseSolver(chain, target);
+        }
+      });
+      run("Jacobian DLS", new Factory() {
+        public Solver create(ArrayList<Frame> chain, Frame target) {
+          return new DLSSolver(chain, target);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package ik.benchmark;
+
+import frames.core.Graph;
+import frames.core.Node;
+import frames.ik.*;
+import frames.primitives.Frame;
+import frames.primitives.Quaternion;
+import frames.primitives.Vector;
+import frames.primitives.constraint.BallAndSocket;
+import frames.primitives.constraint.Constraint;
+import frames.primitives.constraint.Hinge;
+import frames.primitives.constraint.SphericalPolygon;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Headless IK benchmark and regression suite. Random (reachable) targets are pursued by
+ * each solver on generated chains and trees, with and without joint constraints, and the
+ * mean iterations to converge, mean final error, success rate, ns per iteration and
+ * allocated bytes per iteration are reported as JSON, so that results may be compared
+ * across releases.
+ *
+ * Usage: SolverSuite [-depth n] [-branching n] [-levels n] [-constraint none|hinge|ball|polygon]
+ *                    [-trials n] [-seed n] [-out file.json]
+ * When no topology is given a default matrix of chains and trees is run.
+ * */
+
+public class SolverSuite {
+  static float boneLength = 10;
+  static int trials = 100;
+  static int maxIter = 300;
+  static long seed = 7;
+
+  /*
+   * Skeleton topology: a segment of depth joints forking into branching segments, nested
+   * levels times (a chain has a single level)
+   * */
+  static class Scenario {
+    int depth, branching, levels;
+    String constraint;
+
+    Scenario(int depth, int branching, int levels, String constraint) {
+      this.depth = depth;
+      this.branching = branching;
+      this.levels = levels;
+      this.constraint = constraint;
+    }
+
+    boolean isChain() {
+      return branching == 1 || levels == 1;
+    }
+
+    String name() {
+      return (isChain() ? "chain" : "tree") + "-d" + depth + "-b" + branching + "-l" + levels + "-" + constraint;
+    }
+  }
+
+  static class Skeleton {
+    Node root;
+    ArrayList<Node> joints = new ArrayList<Node>();
+    ArrayList<Node> endEffectors = new ArrayList<Node>();
+    ArrayList<Quaternion> rest = new ArrayList<Quaternion>();
+  }
+
+  static class Result {
+    String solver;
+    int runs, solved;
+    long iterations, time, bytes;
+    double error;
+  }
+
+  interface Factory {
+    Solver create(Skeleton skeleton, List<Frame> targets);
+  }
+
+  static Skeleton skeleton(Scenario scenario, Random random) {
+    Graph graph = new Graph(800, 600);
+    Skeleton skeleton = new Skeleton();
+    skeleton.root = new Node(graph);
+    skeleton.joints.add(skeleton.root);
+    segment(graph, skeleton, skeleton.root, scenario, scenario.levels, random);
+    for (Node joint : skeleton.joints) {
+      if (!joint.children().isEmpty())
+        joint.setConstraint(constraint(scenario.constraint, joint));
+      skeleton.rest.add(joint.rotation().get());
+    }
+    return skeleton;
+  }
+
+  static void segment(Graph graph, Skeleton skeleton, Node reference, Scenario scenario, int level, Random random) {
+    Node joint = reference;
+    for (int i = 0; i < scenario.depth; i++) {
+      Node child = new Node(graph);
+      child.setReference(joint);
+      //bones slightly bent, so that chains aren't initially straight
+      child.setTranslation(new Vector((random.nextFloat() - 0.5f), boneLength, (random.nextFloat() - 0.5f)));
+      skeleton.joints.add(child);
+      joint = child;
+    }
+    if (level <= 1 || scenario.branching <= 1) {
+      skeleton.endEffectors.add(joint);
+      return;
+    }
+    for (int i = 0; i < scenario.branching; i++)
+      segment(graph, skeleton, joint, scenario, level - 1, random);
+  }
+
+  static Constraint constraint(String type, Node joint) {
+    if (type.equals("hinge"))
+      return new Hinge(1.2f, 1.2f, joint.rotation().get(), new Vector(0, 0, 1));
+    if (type.equals("ball")) {
+      BallAndSocket constraint = new BallAndSocket(0.8f, 0.8f, 0.8f, 0.8f);
+      constraint.setRestRotation(joint.rotation().get(), new Vector(0, 1, 0), new Vector(0, 1, 0));
+      return constraint;
+    }
+    if (type.equals("polygon")) {
+      ArrayList<Vector> vertices = new ArrayList<Vector>();
+      for (int i = 0; i < 6; i++) {
+        double angle = 2 * Math.PI * i / 6;
+        vertices.add(new Vector((float) (0.8 * Math.cos(angle)), (float) (0.6 * Math.sin(angle)), 1));
+      }
+      SphericalPolygon constraint = new SphericalPolygon(vertices);
+      constraint.setRestRotation(joint.rotation().get(), new Vector(0, 1, 0), new Vector(0, 1, 0));
+      return constraint;
+    }
+    return null;
+  }
+
+  /*Restores the skeleton rest pose, bypassing the joint constraints*/
+  static void restore(Skeleton skeleton) {
+    for (int i = 0; i < skeleton.joints.size(); i++) {
+      Node joint = skeleton.joints.get(i);
+      Constraint constraint = joint.constraint();
+      joint.setConstraint(null);
+      joint.setRotation(skeleton.rest.get(i).get());
+      joint.setConstraint(constraint);
+    }
+  }
+
+  /*Random reachable targets: end effectors poses after (constrained) random joint rotations*/
+  static List<Frame> targets(Skeleton skeleton, Random random) {
+    restore(skeleton);
+    for (Node joint : skeleton.joints)
+      joint.rotate(new Quaternion(Vector.random(), random.nextFloat() * 0.8f));
+    ArrayList<Frame> targets = new ArrayList<Frame>();
+    for (Node endEffector : skeleton.endEffectors)
+      targets.add(new Frame(endEffector.position().get(), endEffector.orientation().get()));
+    restore(skeleton);
+    return targets;
+  }
+
+  static float error(Skeleton skeleton, List<Frame> targets) {
+    float error = 0;
+    for (int i = 0; i < targets.size(); i++)
+      error += Vector.distance(skeleton.endEffectors.get(i).position(), targets.get(i).position());
+    return error;
+  }
+
+  /*Allocated bytes of the current thread, or -1 if the JVM doesn't support it*/
+  static long allocatedBytes() {
+    try {
+      Object bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean)
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    } catch (Throwable error) {
+      // not a HotSpot JVM
+    }
+    return -1;
+  }
+
+  static Result run(Scenario scenario, String name, Factory factory) {
+    Random random = new Random(seed);
+    Skeleton skeleton = skeleton(scenario, random);
+    Result result = new Result();
+    result.solver = name;
+    for (int t = 0; t < trials; t++) {
+      List<Frame> targets = targets(skeleton, random);
+      Solver solver = factory.create(skeleton, targets);
+      solver.maxIter = maxIter;
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      while (!solver.iterate()) ;
+      result.time += System.nanoTime() - start;
+      result.bytes = bytes < 0 || result.bytes < 0 ? -1 : result.bytes + allocatedBytes() - bytes;
+      //only the iterations which moved the joints are counted (see Solver.totalIterations)
+      result.iterations += solver.totalIterations;
+      float error = error(skeleton, targets);
+      result.error += error;
+      if (error <= 10 * solver.error * targets.size())
+        result.solved++;
+      result.runs++;
+    }
+    return result;
+  }
+
+  static List<Result> run(Scenario scenario) {
+    ArrayList<Result> results = new ArrayList<Result>();
+    if (scenario.isChain()) {
+      results.add(run(scenario, "CCD", new Factory() {
+        public Solver create(Skeleton skeleton, List<Frame> targets) {
+          return new CCDSolver(skeleton.joints, targets.get(0));
+        }
+      }));
+      results.add(run(scenario, "FABRIK", new Factory() {
+        public Solver create(Skeleton skeleton, List<Frame> targets) {
+          return new ChainSolver(skeleton.joints, targets.get(0));
+        }
+      }));
+    }
+    results.add(run(scenario, "Tree", new Factory() {
+      public Solver create(Skeleton skeleton, List<Frame> targets) {
+        TreeSolver solver = new TreeSolver(skeleton.root);
+        for (int i = 0; i < targets.size(); i++)
+          solver.addTarget(skeleton.endEffectors.get(i), targets.get(i));
+        return solver;
+      }
+    }));
+    results.add(run(scenario, "FullBody", new Factory() {
+      public Solver create(Skeleton skeleton, List<Frame> targets) {
+        FullBodySolver solver = new FullBodySolver(skeleton.root);
+        for (int i = 0; i < targets.size(); i++)
+          solver.addTarget(skeleton.endEffectors.get(i), targets.get(i));
+        return solver;
+      }
+    }));
+    return results;
+  }
+
+  static String json(List<Scenario> scenarios, List<List<Result>> results) {
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+    json.append("  \"trials\": ").append(trials).append(",\n  \"maxIter\": ").append(maxIter).append(",\n");
+    json.append("  \"seed\": ").append(seed).append(",\n  \"scenarios\": [");
+    for (int s = 0; s < scenarios.size(); s++) {
+      Scenario scenario = scenarios.get(s);
+      json.append(s == 0 ? "\n" : ",\n");
+      json.append("    {\"name\": \"").append(scenario.name()).append("\", \"depth\": ").append(scenario.depth);
+      json.append(", \"branching\": ").append(scenario.branching).append(", \"levels\": ").append(scenario.levels);
+      json.append(", \"constraint\": \"").append(scenario.constraint).append("\", \"solvers\": [");
+      List<Result> list = results.get(s);
+      for (int r = 0; r < list.size(); r++) {
+        Result result = list.get(r);
+        json.append(r == 0 ? "\n" : ",\n");
+        json.append(String.format(Locale.US,
+            "      {\"solver\": \"%s\", \"solved\": %.3f, \"iterations\": %.2f, \"error\": %.5f, \"nsPerIteration\": %.1f, \"bytesPerIteration\": %.1f}",
+            result.solver, result.solved / (float) result.runs, result.iterations / (float) result.runs,
+            result.error / result.runs, result.time / (double) Math.max(1, result.iterations),
+            result.bytes < 0 ? -1 : result.bytes / (double) Math.max(1, result.iterations)));
+      }
+      json.append("\n    ]}");
+    }
+    json.append("\n  ]\n}\n");
+    return json.toString();
+  }
+
+  public static void main(String[] args) throws IOException {
+    int depth = -1, branching = 1, levels = 1;
+    String constraint = null, out = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("-depth")) depth = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-branching")) branching = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-levels")) levels = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-constraint")) constraint = args[i + 1];
+      else if (args[i].equals("-trials")) trials = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-seed")) seed = Long.parseLong(args[i + 1]);
+      else if (args[i].equals("-out")) out = args[i + 1];
+    }
+    String[] constraints = constraint == null ? new String[]{"none", "hinge", "ball", "polygon"} : new String[]{constraint};
+    ArrayList<Scenario> scenarios = new ArrayList<Scenario>();
+    for (String type : constraints) {
+      if (depth > 0)
+        scenarios.add(new Scenario(depth, branching, levels, type));
+      else {
+        scenarios.add(new Scenario(8, 1, 1, type));
+        scenarios.add(new Scenario(16, 1, 1, type));
+        scenarios.add(new Scenario(4, 2, 3, type));
+        scenarios.add(new Scenario(3, 4, 2, type));
+      }
+    }
+    // warm up with the first scenario and measure
+    run(scenarios.get(0));
+    ArrayList<List<Result>> results = new ArrayList<List<Result>>();
+    for (Scenario scenario : scenarios) {
+      System.err.println("running " + scenario.name());
+      results.add(run(scenario));
+    }
+    String json = json(scenarios, results);
+    if (out == null)
+      System.out.print(json);
+    else {
+      FileWriter writer = new FileWriter(out);
+      writer.write(json);
+      writer.close();
+      System.err.println("results written to " + out);
+    }
+  }
+}
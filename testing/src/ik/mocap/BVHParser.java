@@ -1,16 +1,15 @@
 package ik.mocap;
 
+import frames.core.Graph;
 import frames.core.Node;
 import frames.primitives.Quaternion;
 import frames.primitives.Vector;
-import frames.processing.Scene;
-import processing.core.PApplet;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +19,11 @@ import java.util.List;
  * generate an animation.
  * <p>
  * For more info look at http://www.dcs.shef.ac.uk/intranet/research/public/resmes/CS0111.pdf
+ * <p>
+ * The parser doesn't require a renderer: nodes may be attached to any Graph (e.g., a
+ * headless one for offline retargeting, see BatchRetargeting), provided that the node
+ * class has a constructor taking that kind of Graph.
+ * <p>
  * Created by sebchaparr on 23/03/18.
  */
 public class BVHParser {
@@ -65,7 +69,7 @@ public class BVHParser {
    * Reads a .bvh file from the given path and builds
    * A Hierarchy of Nodes given by the .bvh header
    */
-  Node readHeader(String path, Scene scene, Node reference) {
+  Node readHeader(String path, Graph graph, Node reference) {
     _init();
     Node root = null;
     try {
@@ -118,17 +122,7 @@ public class BVHParser {
           return root;
         }
         //Create a node
-        try {
-          root = _nodeClass.getConstructor(Scene.class).newInstance(scene);
-        } catch (InstantiationException e) {
-          e.printStackTrace();
-        } catch (IllegalAccessException e) {
-          e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-          e.printStackTrace();
-        } catch (InvocationTargetException e) {
-          e.printStackTrace();
-        }
+        root = _node(graph);
         root.setReference(reference);
         currentNode = root;
         currentRoot = root;
@@ -147,17 +141,7 @@ public class BVHParser {
           currentProperties.addChannelType(expression[i + 2]);
       } else if (expression[0].equals("JOINT")) {
         //Create a node
-        try {
-          currentNode = _nodeClass.getConstructor(Scene.class).newInstance(scene);
-        } catch (InstantiationException e) {
-          e.printStackTrace();
-        } catch (IllegalAccessException e) {
-          e.printStackTrace();
-        } catch (NoSuchMethodException e) {
-          e.printStackTrace();
-        } catch (InvocationTargetException e) {
-          e.printStackTrace();
-        }
+        currentNode = _node(graph);
         currentNode.setReference(currentRoot);
         currentRoot = currentNode;
         currentProperties = new Properties(expression[1]);
@@ -186,20 +170,52 @@ public class BVHParser {
       }
     }
     _root = root;
-    _branch = scene.branch(_root);
+    _branch = graph.branch(_root);
     return root;
   }
 
-  void readNextFrame() {
+  /**
+   * Instantiates a node of the parser node class, using its constructor taking the
+   * given graph (or one of its super classes).
+   */
+  protected Node _node(Graph graph) {
+    for (Constructor<?> constructor : _nodeClass.getConstructors()) {
+      Class<?>[] parameters = constructor.getParameterTypes();
+      if (parameters.length == 1 && parameters[0].isInstance(graph)) {
+        try {
+          return (Node) constructor.newInstance(graph);
+        } catch (Exception e) {
+          e.printStackTrace();
+          return null;
+        }
+      }
+    }
+    throw new RuntimeException(_nodeClass.getName() + " has no constructor taking a " + graph.getClass().getName());
+  }
+
+  /**
+   * Returns the name of the given joint, as defined in the bvh header, or null if the node
+   * isn't a parsed joint.
+   */
+  String name(Node node) {
+    Properties properties = _joint.get(node);
+    return properties == null ? null : properties._name;
+  }
+
+  /**
+   * Reads the next motion line and poses the joints accordingly. Returns false if there
+   * are no frames left.
+   */
+  boolean readNextFrame() {
     //READ JUST ONE LINE
     String line = "";
     try {
       line = _buffer.readLine();
-      if (line == null) return;
+      if (line == null) return false;
       line = line.toUpperCase();
     } catch (IOException e) {
       e.printStackTrace();
-      return;
+      return false;
     }
 
     //clean line
@@ -235,15 +251,15 @@ public class BVHParser {
           }
           case "ZROTATION": {
             rotationInfo = true;
-            rotation.compose(new Quaternion(new Vector(0, 0, 1), PApplet.radians(value)));
+            rotation.compose(new Quaternion(new Vector(0, 0, 1), (float) Math.toRadians(value)));
             break;
           }
           case "YROTATION": {
-            rotation.compose(new Quaternion(new Vector(0, 1, 0), PApplet.radians(value)));
+            rotation.compose(new Quaternion(new Vector(0, 1, 0), (float) Math.toRadians(value)));
             break;
           }
           case "XROTATION": {
-            rotation.compose(new Quaternion(new Vector(1, 0, 0), PApplet.radians(value)));
+            rotation.compose(new Quaternion(new Vector(1, 0, 0), (float) Math.toRadians(value)));
             break;
           }
         }
@@ -256,6 +272,7 @@ public class BVHParser {
         node.setTranslation(translation);
       }
     }
+    return true;
   }
 }
 
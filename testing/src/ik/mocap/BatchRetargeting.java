@@ -0,0 +1,161 @@
+package ik.mocap;
+
+import frames.core.Graph;
+import frames.core.Node;
+import frames.ik.BatchSolver;
+import frames.ik.FullBodySolver;
+import frames.ik.Solver;
+import frames.primitives.Frame;
+import frames.primitives.Vector;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Headless retargeting of bvh clips: the end effectors (hands, feet and head) of the
+ * captured skeleton are used as the targets of a copy of it, which is solved for every
+ * clip frame by a {@link BatchSolver} (using a {@link FullBodySolver}) at CPU speed,
+ * without any renderer nor frame loop. Clips are solved in parallel, so they should all
+ * share the skeleton of the first one.
+ * <p>
+ * Usage: BatchRetargeting [path.bvh ...] [output.csv]. The output, if given, has a line
+ * per frame holding the clip index, the frame, the solved root translation and the joint
+ * rotations.
+ */
+public class BatchRetargeting {
+  static String[] names = {"LEFTHAND", "RIGHTHAND", "LEFTFOOT", "RIGHTFOOT", "HEAD"};
+
+  static class Rig implements BatchSolver.Rig {
+    Node root;
+    List<Node> endEffectors = new ArrayList<Node>();
+    List<Frame> targets = new ArrayList<Frame>();
+    float[][][] clips;
+
+    Rig(String path, float[][][] clips) {
+      BVHParser parser = new BVHParser(Node.class);
+      root = parser.readHeader(path, new Graph(1, 1), null);
+      for (String name : names)
+        endEffectors.add(find(parser, root, name));
+      for (int i = 0; i < names.length; i++)
+        targets.add(new Frame());
+      this.clips = clips;
+    }
+
+    @Override
+    public Node root() {
+      return root;
+    }
+
+    @Override
+    public List<Node> endEffectors() {
+      return endEffectors;
+    }
+
+    @Override
+    public List<Frame> targets() {
+      return targets;
+    }
+
+    @Override
+    public void pose(int clip, int frame) {
+      float[] pose = clips[clip][frame];
+      root.setTranslation(pose[0], pose[1], pose[2]);
+      for (int i = 0; i < targets.size(); i++)
+        targets.get(i).setPosition(new Vector(pose[3 + 3 * i], pose[4 + 3 * i], pose[5 + 3 * i]));
+    }
+  }
+
+  static Node find(BVHParser parser, Node root, String name) {
+    for (Node node : BatchSolver.joints(root))
+      if (name.equals(parser.name(node)))
+        return node;
+    throw new RuntimeException("No " + name + " joint found");
+  }
+
+  /*Reads the whole clip, keeping the root translation and end effector positions of each frame*/
+  static float[][] clip(String path) {
+    BVHParser parser = new BVHParser(Node.class);
+    Node root = parser.readHeader(path, new Graph(1, 1), null);
+    Node[] endEffectors = new Node[names.length];
+    for (int i = 0; i < names.length; i++)
+      endEffectors[i] = find(parser, root, names[i]);
+    ArrayList<float[]> clip = new ArrayList<float[]>();
+    while (parser.readNextFrame()) {
+      float[] pose = new float[3 + 3 * names.length];
+      Vector translation = root.translation();
+      pose[0] = translation.x();
+      pose[1] = translation.y();
+      pose[2] = translation.z();
+      for (int i = 0; i < names.length; i++) {
+        Vector position = endEffectors[i].position();
+        pose[3 + 3 * i] = position.x();
+        pose[4 + 3 * i] = position.y();
+        pose[5 + 3 * i] = position.z();
+      }
+      clip.add(pose);
+    }
+    return clip.toArray(new float[clip.size()][]);
+  }
+
+  public static void main(String[] args) throws IOException {
+    ArrayList<String> paths = new ArrayList<String>();
+    String out = null;
+    for (String arg : args) {
+      if (arg.toLowerCase().endsWith(".csv"))
+        out = arg;
+      else
+        paths.add(arg);
+    }
+    if (paths.isEmpty())
+      paths.add("testing/data/bvh/walk-03-sneak-yokoyama.bvh");
+    final String path = paths.get(0);
+    final float[][][] clips = new float[paths.size()][][];
+    int[] frames = new int[clips.length];
+    int total = 0;
+    for (int i = 0; i < clips.length; i++) {
+      clips[i] = clip(paths.get(i));
+      frames[i] = clips[i].length;
+      total += frames[i];
+    }
+    BatchSolver solver = new BatchSolver(new BatchSolver.RigFactory() {
+      @Override
+      public BatchSolver.Rig create() {
+        return new Rig(path, clips);
+      }
+    }, frames) {
+      //Targets are set on the hands, feet and head all at once, so a full body solver is used
+      @Override
+      protected Solver _solver(BatchSolver.Rig rig) {
+        FullBodySolver solver = new FullBodySolver(rig.root());
+        for (int i = 0; i < rig.endEffectors().size(); i++)
+          solver.addTarget(rig.endEffectors().get(i), rig.targets().get(i));
+        return solver;
+      }
+    };
+    solver.error = 0.05f;
+    final PrintWriter writer = out != null ? new PrintWriter(new FileWriter(out)) : null;
+    final float[] error = new float[1];
+    long start = System.nanoTime();
+    solver.solve(new BatchSolver.Listener() {
+      @Override
+      public void solved(int clip, int frame, float[] pose, float residual) {
+        error[0] += residual;
+        if (writer == null)
+          return;
+        StringBuilder line = new StringBuilder().append(clip).append(',').append(frame);
+        for (float value : pose)
+          line.append(',').append(String.format(Locale.US, "%.6f", value));
+        writer.println(line);
+      }
+    });
+    long time = System.nanoTime() - start;
+    if (writer != null)
+      writer.close();
+    System.out.printf(Locale.US, "%d clips, %d frames solved in %.1f ms (%.0f frames/s) with %d workers, mean error %.4f%n",
+        clips.length, total, time / 1e6, total / (time / 1e9), solver.workers, error[0] / Math.max(1, total));
+  }
+}